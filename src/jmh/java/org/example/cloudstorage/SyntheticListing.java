@@ -0,0 +1,28 @@
+package org.example.cloudstorage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic relative keys shaped like a real user tree: directories of up to 100 entries,
+ * nested three levels deep, with a directory marker for every folder.
+ */
+public final class SyntheticListing {
+    private static final String[] EXTENSIONS = {".txt", ".jpg", ".pdf", ".mp4", ".docx"};
+
+    private SyntheticListing() {
+    }
+
+    public static List<String> keys(int count) {
+        List<String> keys = new ArrayList<>(count);
+        for (int i = 0; keys.size() < count; i++) {
+            String directory = "projects-" + i / 10000 + "/year-" + (i / 100) % 100 + "/";
+            if (i % 100 == 0) {
+                keys.add(directory);
+                continue;
+            }
+            keys.add(directory + "document-" + i + EXTENSIONS[i % EXTENSIONS.length]);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,203 @@
+package org.example.cloudstorage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.Filter;
+import org.example.cloudstorage.config.InMemoryStorageProperties;
+import org.example.cloudstorage.config.UploadProperties;
+import org.example.cloudstorage.controller.DirectoryController;
+import org.example.cloudstorage.controller.ResourceController;
+import org.example.cloudstorage.repository.FileStorageRepository;
+import org.example.cloudstorage.repository.InMemoryFileStorageRepository;
+import org.example.cloudstorage.security.CustomUserDetails;
+import org.example.cloudstorage.service.ResourceMetadataService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.embedded.EmbeddedWebServerFactoryCustomizerAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a burst of concurrent requests to the resource and directory controllers, served
+ * over HTTP by embedded Tomcat with {@code spring.threads.virtual.enabled} off or on. Storage is the
+ * in-memory backend with a fixed latency per round trip, so requests spend most of their time
+ * blocked on storage. The score is the time to drain the whole burst.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ThreadingModelBenchmark {
+    private static final Long USER_ID = 1L;
+    private static final int DIRECTORIES = 100;
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    @Param({"500", "2000"})
+    private int concurrentRequests;
+
+    @Param({"5"})
+    private int roundTripMillis;
+
+    private ConfigurableApplicationContext context;
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ControllerApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=warn")
+                .run();
+        FileStorageRepository repository = context.getBean(FileStorageRepository.class);
+        repository.createDefaultUserDirectory(USER_ID);
+        repository.createEmptyDirectory(USER_ID, "projects/");
+        for (int i = 0; i < DIRECTORIES; i++) {
+            repository.createEmptyDirectory(USER_ID, "projects/directory-" + i + "/");
+        }
+        context.getBean(InMemoryStorageProperties.class).setDefaultLatency(Duration.ofMillis(roundTripMillis));
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://127.0.0.1:" + port;
+        // the client's own work runs on virtual threads, so it does not compete with Tomcat for platform threads
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clientExecutor).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        clientExecutor.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    public long burst() {
+        List<CompletableFuture<HttpResponse<byte[]>>> responses = new ArrayList<>(concurrentRequests);
+        for (int i = 0; i < concurrentRequests; i++) {
+            // one stat for a resource, a stat and a listing for a directory
+            String uri = i % 2 == 0
+                    ? baseUrl + "/api/resource?path=projects/directory-" + i % DIRECTORIES + "/"
+                    : baseUrl + "/api/directory?path=projects/";
+            responses.add(client.sendAsync(HttpRequest.newBuilder(URI.create(uri)).build(), HttpResponse.BodyHandlers.ofByteArray()));
+        }
+        long bytes = 0;
+        for (CompletableFuture<HttpResponse<byte[]>> response : responses) {
+            HttpResponse<byte[]> result = response.join();
+            if (result.statusCode() != 200) {
+                throw new IllegalStateException("Request to " + result.uri() + " failed with " + result.statusCode());
+            }
+            bytes += result.body().length;
+        }
+        return bytes;
+    }
+
+    /**
+     * The controllers under test on the in-memory backend, without the database, Redis and the
+     * security filter chain; every request is authenticated as the same user.
+     */
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({
+            ServletWebServerFactoryAutoConfiguration.class,
+            EmbeddedWebServerFactoryCustomizerAutoConfiguration.class,
+            DispatcherServletAutoConfiguration.class,
+            WebMvcAutoConfiguration.class,
+            HttpMessageConvertersAutoConfiguration.class,
+            JacksonAutoConfiguration.class,
+            ValidationAutoConfiguration.class})
+    static class ControllerApplication implements WebMvcConfigurer {
+
+        @Bean
+        InMemoryStorageProperties inMemoryStorageProperties() {
+            return new InMemoryStorageProperties();
+        }
+
+        @Bean
+        FileStorageRepository fileStorageRepository(InMemoryStorageProperties inMemoryStorageProperties,
+                                                    ApplicationEventPublisher eventPublisher) {
+            return new InMemoryFileStorageRepository(inMemoryStorageProperties, indexedMetadataService(), null,
+                    new UploadProperties(), eventPublisher);
+        }
+
+        @Bean
+        ResourceController resourceController(FileStorageRepository fileStorageRepository, ObjectMapper objectMapper) {
+            return new ResourceController(fileStorageRepository, null, null, objectMapper);
+        }
+
+        @Bean
+        DirectoryController directoryController(FileStorageRepository fileStorageRepository) {
+            return new DirectoryController(fileStorageRepository);
+        }
+
+        @Bean
+        Filter authenticationFilter() {
+            CustomUserDetails user = new CustomUserDetails("benchmark", USER_ID);
+            return (request, response, chain) -> {
+                SecurityContextHolder.getContext()
+                        .setAuthentication(UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            };
+        }
+
+        @Override
+        public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+            resolvers.add(new AuthenticationPrincipalArgumentResolver());
+        }
+
+        // every user counts as indexed, so the in-memory repository never asks for the metadata table
+        private static ResourceMetadataService indexedMetadataService() {
+            return (ResourceMetadataService) Proxy.newProxyInstance(ResourceMetadataService.class.getClassLoader(),
+                    new Class<?>[]{ResourceMetadataService.class},
+                    (proxy, method, args) -> method.getName().equals("isIndexed") ? Boolean.TRUE : null);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.cloudstorage.repository;
+
+import org.example.cloudstorage.SyntheticListing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ZIP entry overhead of directory downloads: one small entry per listed file, written to a
+ * discarding stream so only the CPU cost of the archive format is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArchiveEntryBenchmark {
+    private static final byte[] CONTENT = new byte[256];
+
+    @Param({"10000", "100000", "1000000"})
+    private int keyCount;
+
+    private List<String> files;
+
+    @Setup
+    public void setUp() {
+        files = SyntheticListing.keys(keyCount).stream()
+                .filter(key -> !MinioRepository.isDirectory(key))
+                .toList();
+    }
+
+    @Benchmark
+    public long writeEntries() throws IOException {
+        CountingOutputStream outputStream = new CountingOutputStream();
+        ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+        for (String file : files) {
+            zipOutputStream.putNextEntry(new ZipEntry(file));
+            zipOutputStream.write(CONTENT);
+            zipOutputStream.closeEntry();
+        }
+        zipOutputStream.finish();
+        return outputStream.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.cloudstorage.repository;
+
+import org.example.cloudstorage.SyntheticListing;
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.service.StoragePath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-item key handling of {@link MinioRepository} over a whole listing, reported per listing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ObjectKeyBenchmark {
+    private static final long USER_ID = 42L;
+
+    @Param({"10000", "100000", "1000000"})
+    private int keyCount;
+
+    private List<String> relativeKeys;
+    private List<String> objectKeys;
+
+    @Setup
+    public void setUp() {
+        relativeKeys = SyntheticListing.keys(keyCount);
+        objectKeys = relativeKeys.stream()
+                .map(key -> MinioRepository.formatPath(USER_ID, key))
+                .toList();
+    }
+
+    @Benchmark
+    public void name(Blackhole blackhole) {
+        for (String key : relativeKeys) {
+            blackhole.consume(StoragePath.ofStored(key).name());
+        }
+    }
+
+    @Benchmark
+    public void parent(Blackhole blackhole) {
+        for (String key : relativeKeys) {
+            blackhole.consume(StoragePath.ofStored(key).parent());
+        }
+    }
+
+    @Benchmark
+    public void validate(Blackhole blackhole) {
+        for (String key : relativeKeys) {
+            blackhole.consume(StoragePath.of(key));
+        }
+    }
+
+    @Benchmark
+    public void userPrefix(Blackhole blackhole) {
+        for (int i = 0; i < keyCount; i++) {
+            blackhole.consume(StoragePath.userPrefix(USER_ID));
+        }
+    }
+
+    @Benchmark
+    public void removeUserPrefix(Blackhole blackhole) {
+        for (String key : objectKeys) {
+            blackhole.consume(MinioRepository.removeUserPrefix(key));
+        }
+    }
+
+    @Benchmark
+    public void createResourceInfoResponseDto(Blackhole blackhole) {
+        for (String key : relativeKeys) {
+            blackhole.consume(ResourceInfoResponses.createResourceInfoResponseDto(key, key.length()));
+        }
+    }
+
+    @Benchmark
+    public void listing(Blackhole blackhole) {
+        for (String key : objectKeys) {
+            ResourceInfoResponseDto dto = ResourceInfoResponses.createResourceInfoResponseDto(
+                    MinioRepository.removeUserPrefix(key), key.length());
+            blackhole.consume(dto);
+        }
+    }
+}
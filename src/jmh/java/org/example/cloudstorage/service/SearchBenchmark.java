@@ -0,0 +1,60 @@
+package org.example.cloudstorage.service;
+
+import org.example.cloudstorage.SyntheticListing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name search over one user's in-memory index, for a selective, a broad and a short query, plus
+ * the cost of loading the index from a listing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int keyCount;
+
+    @Param({"document-4242", "year-1", "pd"})
+    private String query;
+
+    private List<String> keys;
+    private UserSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        keys = SyntheticListing.keys(keyCount);
+        index = load();
+    }
+
+    @Benchmark
+    public List<UserSearchIndex.Entry> search() {
+        return index.search(query);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public UserSearchIndex load() {
+        UserSearchIndex loaded = new UserSearchIndex();
+        for (String key : keys) {
+            loaded.add(key, (long) key.length());
+        }
+        return loaded;
+    }
+}
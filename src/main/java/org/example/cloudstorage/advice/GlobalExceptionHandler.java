@@ -1,6 +1,11 @@
 package org.example.cloudstorage.advice;
 
+import jakarta.validation.ConstraintViolationException;
 import org.example.cloudstorage.dto.response.ErrorResponseDto;
+import org.example.cloudstorage.exception.InvalidResourcePathException;
+import org.example.cloudstorage.exception.InvalidCursorException;
+import org.example.cloudstorage.exception.InvalidUploadException;
+import org.example.cloudstorage.exception.QuotaExceededException;
 import org.example.cloudstorage.exception.ResourceAlreadyExistsException;
 import org.example.cloudstorage.exception.ResourceNotFoundException;
 import org.example.cloudstorage.exception.UsernameIsAlreadyTakenException;
@@ -51,12 +56,37 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponseDto("Resource not found"));
     }
 
+    @ExceptionHandler(InvalidResourcePathException.class)
+    public ResponseEntity<ErrorResponseDto> handleInvalidResourcePathException(InvalidResourcePathException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ErrorResponseDto("Invalid path format"));
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ErrorResponseDto> handleInvalidCursorException(InvalidCursorException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ErrorResponseDto("Invalid cursor"));
+    }
+
+    @ExceptionHandler(InvalidUploadException.class)
+    public ResponseEntity<ErrorResponseDto> handleInvalidUploadException(InvalidUploadException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ErrorResponseDto(e.getMessage()));
+    }
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<ErrorResponseDto> handleConstraintViolationException(ConstraintViolationException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ErrorResponseDto("Not a valid request"));
+    }
+
     @ExceptionHandler(MaxUploadSizeExceededException.class)
     public ResponseEntity<ErrorResponseDto> handleMaxUploadSizeExceededException(MaxUploadSizeExceededException e) {
         return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
                 .body(new ErrorResponseDto("Max upload size exceeded"));
     }
 
+    @ExceptionHandler(QuotaExceededException.class)
+    public ResponseEntity<ErrorResponseDto> handleQuotaExceededException(QuotaExceededException e) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(new ErrorResponseDto("Storage quota exceeded"));
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<ErrorResponseDto> unexpectedException(RuntimeException e) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponseDto("Unexpected exception"));
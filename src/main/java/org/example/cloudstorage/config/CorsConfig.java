@@ -1,5 +1,6 @@
 package org.example.cloudstorage.config;
 
+import org.example.cloudstorage.controller.DirectoryController;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.cors.CorsConfiguration;
@@ -13,8 +14,10 @@ public class CorsConfig {
     public UrlBasedCorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration corsConfiguration = new CorsConfiguration();
         corsConfiguration.addAllowedOriginPattern("http://localhost:[*]");
-        corsConfiguration.setAllowedMethods(List.of("POST", "GET", "OPTIONS", "DELETE"));
+        corsConfiguration.setAllowedMethods(List.of("POST", "GET", "PUT", "OPTIONS", "DELETE"));
         corsConfiguration.addAllowedHeader("Content-Type");
+        corsConfiguration.setExposedHeaders(List.of(StorageAccountingFilter.CALLS_HEADER,
+                StorageAccountingFilter.SERVER_TIMING_HEADER, DirectoryController.NEXT_CURSOR_HEADER));
         corsConfiguration.setAllowCredentials(true);
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", corsConfiguration);
@@ -0,0 +1,22 @@
+package org.example.cloudstorage.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Setter
+@Getter
+@Component
+@ConfigurationProperties(prefix = "cloudstorage.storage.dedup")
+public class DedupProperties {
+    private boolean enabled = false;
+
+    private Duration gcInterval = Duration.ofHours(1);
+
+    private Duration gcGracePeriod = Duration.ofHours(1);
+
+    private int gcBatchSize = 1000;
+}
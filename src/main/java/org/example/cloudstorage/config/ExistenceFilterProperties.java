@@ -0,0 +1,23 @@
+package org.example.cloudstorage.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Setter
+@Getter
+@Component
+@ConfigurationProperties(prefix = "cloudstorage.storage.existence-filter")
+public class ExistenceFilterProperties {
+    private boolean enabled = true;
+
+    private DataSize memoryPerUser = DataSize.ofKilobytes(128);
+
+    private double falsePositiveRate = 0.01;
+
+    private Duration ttl = Duration.ofDays(1);
+}
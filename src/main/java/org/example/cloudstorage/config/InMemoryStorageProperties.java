@@ -0,0 +1,33 @@
+package org.example.cloudstorage.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Setter
+@Getter
+@Component
+@ConfigurationProperties(prefix = "cloudstorage.storage.memory")
+public class InMemoryStorageProperties {
+    private Duration defaultLatency = Duration.ZERO;
+
+    /**
+     * Latency per operation: list, stat, read, write, copy and delete.
+     */
+    private Map<String, Duration> latency = new HashMap<>();
+
+    /**
+     * Simulated transfer rate per second for reads and writes, zero for unlimited.
+     */
+    private DataSize bandwidth = DataSize.ofBytes(0);
+
+    public Duration getLatency(String operation) {
+        return latency.getOrDefault(operation, defaultLatency);
+    }
+}
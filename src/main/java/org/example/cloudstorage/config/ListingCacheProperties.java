@@ -0,0 +1,18 @@
+package org.example.cloudstorage.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Setter
+@Getter
+@Component
+@ConfigurationProperties(prefix = "cloudstorage.storage.listing-cache")
+public class ListingCacheProperties {
+    private boolean enabled = true;
+
+    private Duration ttl = Duration.ofMinutes(10);
+}
@@ -0,0 +1,16 @@
+package org.example.cloudstorage.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+@Setter
+@Getter
+@Component
+@ConfigurationProperties(prefix = "cloudstorage.storage.local")
+public class LocalStorageProperties {
+    private Path root = Path.of("data");
+}
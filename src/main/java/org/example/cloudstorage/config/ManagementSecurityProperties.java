@@ -0,0 +1,17 @@
+package org.example.cloudstorage.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Setter
+@Getter
+@Component
+@ConfigurationProperties(prefix = "cloudstorage.management")
+public class ManagementSecurityProperties {
+    private String username = "prometheus";
+
+    // without a password no one can read the actuator endpoints except health
+    private String password = "";
+}
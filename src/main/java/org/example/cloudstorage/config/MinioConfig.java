@@ -2,17 +2,23 @@ package org.example.cloudstorage.config;
 
 import io.minio.BucketExistsArgs;
 import io.minio.MakeBucketArgs;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @Configuration
 @Setter
 @RequiredArgsConstructor
-@ConditionalOnProperty(prefix = "cloudstorage.storage.minio", name = "enabled", havingValue = "true")
+@ConditionalOnProperty(prefix = "cloudstorage.storage", name = "backend", havingValue = "minio", matchIfMissing = true)
 public class MinioConfig {
 
     private final MinioProperties minioProperties;
@@ -33,5 +39,25 @@ public class MinioConfig {
         }
         return minio;
     }
-}
 
+    @Bean
+    public MinioAsyncClient minioAsyncClient() {
+        return MinioAsyncClient.builder()
+                .endpoint(minioProperties.getEndpoint())
+                .credentials(minioProperties.getUser(), minioProperties.getPassword())
+                .build();
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ExecutorService minioTaskExecutor() {
+        return Executors.newFixedThreadPool(minioProperties.getThreads());
+    }
+
+    // bulk operations keep their own concurrency limits, so one virtual thread per task is enough here
+    @Bean(name = "minioTaskExecutor", destroyMethod = "shutdownNow")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public ExecutorService virtualMinioTaskExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
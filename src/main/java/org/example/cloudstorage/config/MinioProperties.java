@@ -4,6 +4,7 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
 @Setter
 @Getter
@@ -17,4 +18,20 @@ public class MinioProperties {
     private String user;
 
     private String password;
-}
\ No newline at end of file
+
+    private int threads = 16;
+
+    private int copyConcurrency = 16;
+
+    private int archivePrefetchDepth = 8;
+
+    private DataSize archivePrefetchMemoryCap = DataSize.ofMegabytes(64);
+
+    private DataSize snowballThreshold = DataSize.ofMegabytes(5);
+
+    private boolean snowballCompression = false;
+
+    private DataSize multipartPartSize = DataSize.ofMegabytes(16);
+
+    private int multipartConcurrency = 4;
+}
@@ -0,0 +1,21 @@
+package org.example.cloudstorage.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Setter
+@Getter
+@Component
+@ConfigurationProperties(prefix = "cloudstorage.storage.search-index")
+public class SearchIndexProperties {
+    private boolean enabled = true;
+
+    private DataSize memoryBudget = DataSize.ofMegabytes(256);
+
+    private Duration versionTtl = Duration.ofHours(1);
+}
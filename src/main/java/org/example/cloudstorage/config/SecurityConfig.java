@@ -4,13 +4,20 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.CsrfConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.logout.HeaderWriterLogoutHandler;
 import org.springframework.security.web.authentication.logout.LogoutSuccessHandler;
@@ -25,9 +32,35 @@ import static org.springframework.security.web.header.writers.ClearSiteDataHeade
 
 @RequiredArgsConstructor
 public class SecurityConfig {
+    private static final String METRICS_ROLE = "METRICS";
+
     private final CorsConfig corsConfig;
+    private final ManagementSecurityProperties managementSecurityProperties;
+
+    // the scraper authenticates with its own credential, which application users can not obtain
+    @Bean
+    @Order(1)
+    public SecurityFilterChain managementSecurityFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher("/actuator/**")
+                .csrf(CsrfConfigurer::disable)
+                .authorizeHttpRequests(
+                        request -> request
+                                .requestMatchers("/actuator/health")
+                                .permitAll()
+                                .anyRequest()
+                                .hasRole(METRICS_ROLE))
+                .httpBasic(Customizer.withDefaults())
+                .sessionManagement(
+                        sessionManagement -> sessionManagement
+                                .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authenticationManager(managementAuthenticationManager());
+
+        return http.build();
+    }
 
     @Bean
+    @Order(2)
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .csrf(CsrfConfigurer::disable)
@@ -77,5 +110,18 @@ public class SecurityConfig {
         return new BCryptPasswordEncoder();
     }
 
+    private AuthenticationManager managementAuthenticationManager() {
+        InMemoryUserDetailsManager users = new InMemoryUserDetailsManager();
+        if (!managementSecurityProperties.getPassword().isBlank()) {
+            users.createUser(User.withUsername(managementSecurityProperties.getUsername())
+                    .password(passwordEncoder().encode(managementSecurityProperties.getPassword()))
+                    .roles(METRICS_ROLE)
+                    .build());
+        }
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(passwordEncoder());
+        provider.setUserDetailsService(users);
+        return new ProviderManager(provider);
+    }
+
 
 }
@@ -0,0 +1,16 @@
+package org.example.cloudstorage.config;
+
+import org.example.cloudstorage.repository.StorageCallAccounting;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+@Configuration
+public class StorageAccountingConfig {
+
+    // applied by Spring Boot to the application task executor, which also runs MVC async request bodies
+    @Bean
+    public TaskDecorator storageCallAccountingTaskDecorator() {
+        return StorageCallAccounting::wrap;
+    }
+}
@@ -0,0 +1,126 @@
+package org.example.cloudstorage.config;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.cloudstorage.repository.StorageCallAccounting;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the object storage calls made while handling a request, reports them in the
+ * {@code X-Storage-Calls} and {@code Server-Timing} response headers and warns when an
+ * endpoint exceeds the configured call or time budget. Requests that continue asynchronously are
+ * reported once they complete; their headers only cover the calls made before the response was
+ * committed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StorageAccountingFilter extends OncePerRequestFilter {
+    public static final String CALLS_HEADER = "X-Storage-Calls";
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private final StorageAccountingProperties storageAccountingProperties;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !storageAccountingProperties.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        StorageCallAccounting accounting = StorageCallAccounting.start();
+        AccountingResponse accountingResponse = new AccountingResponse(response, accounting);
+        try {
+            filterChain.doFilter(request, accountingResponse);
+        } finally {
+            StorageCallAccounting.finish();
+            String endpoint = endpoint(request);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(() -> report(endpoint, accounting)));
+            } else {
+                accountingResponse.writeHeaders();
+                report(endpoint, accounting);
+            }
+        }
+    }
+
+    private String endpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+    }
+
+    private void report(String endpoint, StorageCallAccounting accounting) {
+        if (accounting.calls() == 0) {
+            return;
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(accounting.nanos());
+        if (accounting.calls() > storageAccountingProperties.getCallBudget()
+                || millis > storageAccountingProperties.getTimeBudget().toMillis()) {
+            log.warn("Storage budget exceeded: endpoint=\"{}\" calls={} timeMs={} callBudget={} timeBudgetMs={} operations={}",
+                    endpoint, accounting.calls(), millis, storageAccountingProperties.getCallBudget(),
+                    storageAccountingProperties.getTimeBudget().toMillis(), accounting.callsByOperation());
+        } else {
+            log.debug("Storage calls: endpoint=\"{}\" calls={} timeMs={} operations={}",
+                    endpoint, accounting.calls(), millis, accounting.callsByOperation());
+        }
+    }
+
+    private record CompletionListener(Runnable onComplete) implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            onComplete.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        // a new async cycle drops the listeners of the previous one
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    private static class AccountingResponse extends OnCommittedResponseWrapper {
+        private final StorageCallAccounting accounting;
+        private boolean headersWritten;
+
+        AccountingResponse(HttpServletResponse response, StorageCallAccounting accounting) {
+            super(response);
+            this.accounting = accounting;
+        }
+
+        @Override
+        protected void onResponseCommitted() {
+            writeHeaders();
+        }
+
+        void writeHeaders() {
+            if (headersWritten || isCommitted()) {
+                return;
+            }
+            headersWritten = true;
+            setHeader(CALLS_HEADER, String.valueOf(accounting.calls()));
+            addHeader(SERVER_TIMING_HEADER, String.format(Locale.ROOT, "storage;dur=%.1f", accounting.nanos() / 1_000_000.0));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.cloudstorage.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Setter
+@Getter
+@Component
+@ConfigurationProperties(prefix = "cloudstorage.storage.accounting")
+public class StorageAccountingProperties {
+    private boolean enabled = true;
+
+    private int callBudget = 10;
+
+    private Duration timeBudget = Duration.ofSeconds(1);
+}
@@ -0,0 +1,29 @@
+package org.example.cloudstorage.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Configuration
+@EnableScheduling
+@RequiredArgsConstructor
+public class StorageJobConfig {
+
+    private final StorageJobProperties storageJobProperties;
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService storageJobExecutor() {
+        return Executors.newFixedThreadPool(Math.max(storageJobProperties.getThreads(), 1));
+    }
+
+    // leases are renewed apart from the shared scheduler, so a slow scheduled task can not let them expire
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService storageJobLeaseScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("storage-job-lease").daemon().factory());
+    }
+}
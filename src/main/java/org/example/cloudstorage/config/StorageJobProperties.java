@@ -0,0 +1,26 @@
+package org.example.cloudstorage.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Setter
+@Getter
+@Component
+@ConfigurationProperties(prefix = "cloudstorage.storage.jobs")
+public class StorageJobProperties {
+    private boolean enabled = true;
+
+    private long objectThreshold = 1000;
+
+    private int threads = 2;
+
+    private Duration leaseTtl = Duration.ofSeconds(60);
+
+    private Duration heartbeatInterval = Duration.ofSeconds(10);
+
+    private Duration retention = Duration.ofHours(24);
+}
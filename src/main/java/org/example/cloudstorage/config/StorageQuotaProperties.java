@@ -0,0 +1,23 @@
+package org.example.cloudstorage.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Setter
+@Getter
+@Component
+@ConfigurationProperties(prefix = "cloudstorage.storage.quota")
+public class StorageQuotaProperties {
+    private boolean enabled = true;
+
+    private DataSize limit = DataSize.ofGigabytes(10);
+
+    private Duration reservationTtl = Duration.ofHours(24);
+
+    private Duration reconcileInterval = Duration.ofHours(6);
+}
@@ -0,0 +1,21 @@
+package org.example.cloudstorage.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Setter
+@Getter
+@Component
+@ConfigurationProperties(prefix = "cloudstorage.storage.upload")
+public class UploadProperties {
+    private DataSize maxPartSize = DataSize.ofMegabytes(64);
+
+    private Duration sessionTtl = Duration.ofHours(24);
+
+    private Duration expirySweepInterval = Duration.ofHours(1);
+}
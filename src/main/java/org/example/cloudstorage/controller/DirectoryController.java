@@ -1,5 +1,7 @@
 package org.example.cloudstorage.controller;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
@@ -8,6 +10,8 @@ import org.example.cloudstorage.docs.directoryDocs.PostDirectoryDocs;
 import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
 import org.example.cloudstorage.repository.FileStorageRepository;
 import org.example.cloudstorage.security.CustomUserDetails;
+import org.example.cloudstorage.service.DirectoryPage;
+import org.example.cloudstorage.service.StoragePath;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -26,13 +30,29 @@ import java.util.List;
 @RequiredArgsConstructor
 @Validated
 public class DirectoryController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final FileStorageRepository fileStorageRepository;
 
     @GetMapping
     @GetDirectoryDocs
-    public ResponseEntity<List<ResourceInfoResponseDto>> directory(@RequestParam("path") @NotNull @Size(max = 200) String path, @AuthenticationPrincipal CustomUserDetails userDetails) {
-        List<ResourceInfoResponseDto> response = fileStorageRepository.getDirectoryContentInfo(userDetails.getUserId(), path);
-        return ResponseEntity.ok().body(response);
+    public ResponseEntity<List<ResourceInfoResponseDto>> directory(@RequestParam("path") @NotNull @Size(max = 200) String path,
+                                                                   @RequestParam(value = "limit", required = false) @Min(1) @Max(MAX_PAGE_SIZE) Integer limit,
+                                                                   @RequestParam(value = "cursor", required = false) @Size(max = 2048) String cursor,
+                                                                   @AuthenticationPrincipal CustomUserDetails userDetails) {
+        if (limit == null && cursor == null) {
+            List<ResourceInfoResponseDto> response = fileStorageRepository.getDirectoryContentInfo(userDetails.getUserId(), StoragePath.of(path).path());
+            return ResponseEntity.ok().body(response);
+        }
+        DirectoryPage page = fileStorageRepository.getDirectoryContentPage(userDetails.getUserId(), StoragePath.of(path).path(),
+                cursor, limit != null ? limit : DEFAULT_PAGE_SIZE);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
     }
 
     @PostMapping
@@ -40,6 +60,6 @@ public class DirectoryController {
     @ResponseStatus(HttpStatus.CREATED)
     public ResourceInfoResponseDto createEmptyDirectory(@AuthenticationPrincipal CustomUserDetails userDetails,
                                                         @RequestParam("path") @NotNull @Size(max = 200) String path) {
-        return fileStorageRepository.createEmptyDirectory(userDetails.getUserId(), path);
+        return fileStorageRepository.createEmptyDirectory(userDetails.getUserId(), StoragePath.of(path).path());
     }
 }
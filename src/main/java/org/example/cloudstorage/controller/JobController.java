@@ -0,0 +1,25 @@
+package org.example.cloudstorage.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.cloudstorage.docs.jobDocs.GetJobDocs;
+import org.example.cloudstorage.dto.response.storage.StorageJobResponseDto;
+import org.example.cloudstorage.security.CustomUserDetails;
+import org.example.cloudstorage.service.StorageJobService;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/jobs")
+@RequiredArgsConstructor
+public class JobController {
+    private final StorageJobService storageJobService;
+
+    @GetMapping("/{jobId}")
+    @GetJobDocs
+    public StorageJobResponseDto getJob(@PathVariable("jobId") String jobId, @AuthenticationPrincipal CustomUserDetails userDetails) {
+        return storageJobService.getJob(userDetails.getUserId(), jobId);
+    }
+}
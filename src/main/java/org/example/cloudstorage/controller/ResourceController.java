@@ -1,5 +1,7 @@
 package org.example.cloudstorage.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
@@ -10,11 +12,18 @@ import org.example.cloudstorage.docs.resourceDocs.MoveResourceDocs;
 import org.example.cloudstorage.docs.resourceDocs.SearchResourceDocs;
 import org.example.cloudstorage.docs.resourceDocs.UploadResourceDocs;
 import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.dto.response.storage.StorageJobResponseDto;
+import org.example.cloudstorage.repository.FileRegionResource;
 import org.example.cloudstorage.repository.FileStorageRepository;
 import org.example.cloudstorage.security.CustomUserDetails;
+import org.example.cloudstorage.service.StorageJobService;
+import org.example.cloudstorage.service.StoragePath;
+import org.example.cloudstorage.service.StorageQuotaService;
+import org.example.cloudstorage.service.StoredObject;
 import org.springframework.core.io.Resource;
 import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -24,61 +33,231 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 @RequestMapping("/api/resource")
 @RequiredArgsConstructor
 @Validated
 @RestController
 public class ResourceController {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final FileStorageRepository fileStorageRepository;
+    private final StorageJobService storageJobService;
+    private final StorageQuotaService storageQuotaService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     @GetResourceDocs
     public ResourceInfoResponseDto resource(@RequestParam("path") @NotNull @Size(max = 200) String path, @AuthenticationPrincipal CustomUserDetails userDetails) {
-        return fileStorageRepository.getInfo(userDetails.getUserId(), path);
+        return fileStorageRepository.getInfo(userDetails.getUserId(), StoragePath.of(path).path());
     }
 
     @GetMapping("/download")
     @DownloadResourceDocs
-    public ResponseEntity<Resource> downloadResource(@AuthenticationPrincipal CustomUserDetails userDetailsImpl, @RequestParam @NotNull String path) {
+    public ResponseEntity<StreamingResponseBody> downloadResource(@AuthenticationPrincipal CustomUserDetails userDetailsImpl, @RequestParam @NotNull String path,
+                                                                  @RequestHeader HttpHeaders requestHeaders, WebRequest webRequest) {
         Long userId = userDetailsImpl.getUserId();
-        Resource resource = fileStorageRepository.get(userId, path);
-        ContentDisposition contentDisposition = ContentDisposition.attachment().filename(resource.getFilename(), StandardCharsets.UTF_8).build();
-        return ResponseEntity.ok().header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition.toString()).contentType(MediaType.APPLICATION_OCTET_STREAM).body(resource);
+        StoragePath storagePath = StoragePath.of(path);
+        if (storagePath.isDirectory()) {
+            return downloadDirectory(userId, storagePath);
+        }
+        StoredObject object = fileStorageRepository.stat(userId, path);
+        // checkNotModified also writes ETag and Last-Modified to the response
+        if (webRequest.checkNotModified(object.etag(), object.modifiedAt().toEpochMilli())) {
+            return null;
+        }
+        List<HttpRange> ranges = isRangeApplicable(requestHeaders, object) ? parseRanges(requestHeaders) : List.of();
+        // several ranges are answered with the whole file instead of a multipart/byteranges body
+        if (ranges.size() != 1 || object.size() == 0) {
+            return fileBody(fileResponse(HttpStatus.OK, storagePath).contentLength(object.size()),
+                    fileStorageRepository.get(userId, path), webRequest);
+        }
+        long start;
+        long end;
+        try {
+            start = ranges.get(0).getRangeStart(object.size());
+            end = ranges.get(0).getRangeEnd(object.size());
+        } catch (IllegalArgumentException e) {
+            return rangeNotSatisfiable(object);
+        }
+        // a range starting past the end is not rejected by HttpRange itself
+        if (start >= object.size()) {
+            return rangeNotSatisfiable(object);
+        }
+        long length = end - start + 1;
+        return fileBody(fileResponse(HttpStatus.PARTIAL_CONTENT, storagePath)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + object.size())
+                        .contentLength(length),
+                fileStorageRepository.get(userId, path, start, length), webRequest);
     }
 
     @DeleteMapping
     @DeleteResourceDocs
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void deleteResource(@RequestParam("path") @NotNull @Size(max = 200) String path, @AuthenticationPrincipal CustomUserDetails userDetails) {
-        fileStorageRepository.delete(userDetails.getUserId(), path);
+    public ResponseEntity<?> deleteResource(@RequestParam("path") @NotNull @Size(max = 200) String path, @AuthenticationPrincipal CustomUserDetails userDetails) {
+        Long userId = userDetails.getUserId();
+        String resourcePath = StoragePath.of(path).path();
+        Optional<StorageJobResponseDto> job = storageJobService.deleteInBackground(userId, resourcePath);
+        if (job.isPresent()) {
+            return accepted(job.get());
+        }
+        fileStorageRepository.delete(userId, resourcePath);
+        return ResponseEntity.noContent().build();
     }
 
     @GetMapping("/move")
     @MoveResourceDocs
-    public ResourceInfoResponseDto move(@RequestParam("from") @NotNull @Size(max = 200) String from, @RequestParam("to") @NotNull @Size(max = 200) String to, @AuthenticationPrincipal CustomUserDetails userDetails) {
-        return fileStorageRepository.rename(userDetails.getUserId(), from, to);
+    public ResponseEntity<?> move(@RequestParam("from") @NotNull @Size(max = 200) String from, @RequestParam("to") @NotNull @Size(max = 200) String to, @AuthenticationPrincipal CustomUserDetails userDetails) {
+        Long userId = userDetails.getUserId();
+        String oldPath = StoragePath.of(from).path();
+        String newPath = StoragePath.of(to).path();
+        Optional<StorageJobResponseDto> job = storageJobService.moveInBackground(userId, oldPath, newPath);
+        if (job.isPresent()) {
+            return accepted(job.get());
+        }
+        return ResponseEntity.ok(fileStorageRepository.rename(userId, oldPath, newPath));
     }
 
     @GetMapping("/search")
     @SearchResourceDocs
-    public List<ResourceInfoResponseDto> search(@RequestParam("query") @NotNull @Size(max = 200) String query, @AuthenticationPrincipal CustomUserDetails userDetails) {
-        return fileStorageRepository.search(userDetails.getUserId(), query);
+    public List<ResourceInfoResponseDto> search(@RequestParam("query") @NotNull @Size(max = 200) String query,
+                                                @RequestParam(value = "limit", required = false) @Min(1) Integer limit,
+                                                @AuthenticationPrincipal CustomUserDetails userDetails) {
+        if (limit == null) {
+            return fileStorageRepository.search(userDetails.getUserId(), query);
+        }
+        List<ResourceInfoResponseDto> matches = new ArrayList<>();
+        fileStorageRepository.search(userDetails.getUserId(), query, limit, matches::add);
+        return matches;
+    }
+
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @SearchResourceDocs
+    public ResponseEntity<StreamingResponseBody> streamSearch(@RequestParam("query") @NotNull @Size(max = 200) String query,
+                                                              @RequestParam(value = "limit", required = false) @Min(1) Integer limit,
+                                                              @AuthenticationPrincipal CustomUserDetails userDetails) {
+        Long userId = userDetails.getUserId();
+        StreamingResponseBody body = outputStream -> {
+            try {
+                fileStorageRepository.search(userId, query, limit != null ? limit : Long.MAX_VALUE, match -> {
+                    try {
+                        outputStream.write(objectMapper.writeValueAsBytes(match));
+                        outputStream.write('\n');
+                        outputStream.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @PostMapping
     @UploadResourceDocs
     @ResponseStatus(HttpStatus.CREATED)
     public List<ResourceInfoResponseDto> upload(@RequestPart("object") List<MultipartFile> files, @AuthenticationPrincipal CustomUserDetails userDetails, @RequestParam("path") @NotNull @Size(max = 200) String path) {
-        return fileStorageRepository.save(userDetails.getUserId(), path, files);
+        Long userId = userDetails.getUserId();
+        long size = files.stream().mapToLong(MultipartFile::getSize).sum();
+        return storageQuotaService.withReservation(userId, size,
+                () -> fileStorageRepository.save(userId, StoragePath.of(path).path(), files));
+    }
+
+    private ResponseEntity<StorageJobResponseDto> accepted(StorageJobResponseDto job) {
+        return ResponseEntity.accepted().location(URI.create("/api/jobs/" + job.jobId())).body(job);
+    }
+
+    private ResponseEntity<StreamingResponseBody> downloadDirectory(Long userId, StoragePath path) {
+        StreamingResponseBody archive = fileStorageRepository.getArchive(userId, path.path());
+        ContentDisposition contentDisposition = ContentDisposition.attachment().filename(path.name() + ".zip", StandardCharsets.UTF_8).build();
+        return ResponseEntity.ok().header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition.toString()).contentType(MediaType.APPLICATION_OCTET_STREAM).body(archive);
+    }
+
+    private ResponseEntity.BodyBuilder fileResponse(HttpStatus status, StoragePath path) {
+        ContentDisposition contentDisposition = ContentDisposition.attachment().filename(path.name(), StandardCharsets.UTF_8).build();
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition.toString())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    private ResponseEntity<StreamingResponseBody> rangeNotSatisfiable(StoredObject object) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + object.size())
+                .build();
+    }
+
+    // bodies are never handed over as a Resource, which Spring would range again when a Range header is present
+    private ResponseEntity<StreamingResponseBody> fileBody(ResponseEntity.BodyBuilder response, Resource resource, WebRequest webRequest) {
+        if (!(resource instanceof FileRegionResource region)) {
+            StreamingResponseBody body = outputStream -> {
+                try (InputStream inputStream = resource.getInputStream()) {
+                    inputStream.transferTo(outputStream);
+                }
+            };
+            return response.body(body);
+        }
+        // local files go out through the container's sendfile when available, otherwise through FileChannel.transferTo
+        if (Boolean.TRUE.equals(webRequest.getAttribute(SENDFILE_SUPPORT, RequestAttributes.SCOPE_REQUEST))) {
+            webRequest.setAttribute(SENDFILE_FILENAME, region.getFile().getAbsolutePath(), RequestAttributes.SCOPE_REQUEST);
+            webRequest.setAttribute(SENDFILE_START, region.getOffset(), RequestAttributes.SCOPE_REQUEST);
+            webRequest.setAttribute(SENDFILE_END, region.getOffset() + region.getLength(), RequestAttributes.SCOPE_REQUEST);
+            return response.build();
+        }
+        StreamingResponseBody body = region::writeTo;
+        return response.body(body);
+    }
+
+    private boolean isRangeApplicable(HttpHeaders requestHeaders, StoredObject object) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // weak entity tags never match
+            return ifRange.equals("\"" + object.etag() + "\"");
+        }
+        // an HTTP-date matches only the exact Last-Modified, which is sent with second precision
+        try {
+            return ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant()
+                    .equals(object.modifiedAt().truncatedTo(ChronoUnit.SECONDS));
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private List<HttpRange> parseRanges(HttpHeaders requestHeaders) {
+        try {
+            return requestHeaders.getRange();
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
     }
 
 }
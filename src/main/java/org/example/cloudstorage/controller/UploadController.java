@@ -0,0 +1,82 @@
+package org.example.cloudstorage.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.RequiredArgsConstructor;
+import org.example.cloudstorage.docs.uploadDocs.AbortUploadDocs;
+import org.example.cloudstorage.docs.uploadDocs.CompleteUploadDocs;
+import org.example.cloudstorage.docs.uploadDocs.GetUploadDocs;
+import org.example.cloudstorage.docs.uploadDocs.StartUploadDocs;
+import org.example.cloudstorage.docs.uploadDocs.UploadPartDocs;
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.dto.response.storage.UploadPartResponseDto;
+import org.example.cloudstorage.dto.response.storage.UploadSessionResponseDto;
+import org.example.cloudstorage.repository.FileStorageRepository;
+import org.example.cloudstorage.security.CustomUserDetails;
+import org.example.cloudstorage.service.StoragePath;
+import org.example.cloudstorage.service.StorageQuotaService;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/api/resource/uploads")
+@RequiredArgsConstructor
+@Validated
+public class UploadController {
+    private final FileStorageRepository fileStorageRepository;
+    private final StorageQuotaService storageQuotaService;
+
+    @PostMapping
+    @StartUploadDocs
+    @ResponseStatus(HttpStatus.CREATED)
+    public UploadSessionResponseDto startUpload(@RequestParam("path") @NotNull @Size(max = 200) String path, @AuthenticationPrincipal CustomUserDetails userDetails) {
+        return fileStorageRepository.startUpload(userDetails.getUserId(), StoragePath.of(path).path());
+    }
+
+    @PutMapping("/{uploadId}/parts/{partNumber}")
+    @UploadPartDocs
+    public UploadPartResponseDto uploadPart(@PathVariable("uploadId") String uploadId, @PathVariable("partNumber") int partNumber,
+                                            HttpServletRequest request, @AuthenticationPrincipal CustomUserDetails userDetails) throws IOException {
+        Long userId = userDetails.getUserId();
+        long size = request.getContentLengthLong();
+        InputStream inputStream = request.getInputStream();
+        return storageQuotaService.withUploadReservation(userId, uploadId, Math.max(size, 0),
+                () -> fileStorageRepository.uploadPart(userId, uploadId, partNumber, inputStream, size));
+    }
+
+    @GetMapping("/{uploadId}")
+    @GetUploadDocs
+    public UploadSessionResponseDto getUpload(@PathVariable("uploadId") String uploadId, @AuthenticationPrincipal CustomUserDetails userDetails) {
+        return fileStorageRepository.getUpload(userDetails.getUserId(), uploadId);
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    @CompleteUploadDocs
+    @ResponseStatus(HttpStatus.CREATED)
+    public ResourceInfoResponseDto completeUpload(@PathVariable("uploadId") String uploadId, @AuthenticationPrincipal CustomUserDetails userDetails) {
+        Long userId = userDetails.getUserId();
+        return storageQuotaService.commitUpload(userId, uploadId, () -> fileStorageRepository.completeUpload(userId, uploadId));
+    }
+
+    @DeleteMapping("/{uploadId}")
+    @AbortUploadDocs
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void abortUpload(@PathVariable("uploadId") String uploadId, @AuthenticationPrincipal CustomUserDetails userDetails) {
+        fileStorageRepository.abortUpload(userDetails.getUserId(), uploadId);
+        storageQuotaService.releaseUpload(userDetails.getUserId(), uploadId);
+    }
+}
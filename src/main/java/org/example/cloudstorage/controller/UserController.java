@@ -2,7 +2,11 @@ package org.example.cloudstorage.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.example.cloudstorage.docs.userDocs.UserMeDocs;
+import org.example.cloudstorage.docs.userDocs.UserUsageDocs;
 import org.example.cloudstorage.dto.response.auth.SignInResponseDto;
+import org.example.cloudstorage.dto.response.storage.StorageUsageResponseDto;
+import org.example.cloudstorage.security.CustomUserDetails;
+import org.example.cloudstorage.service.StorageQuotaService;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,10 +17,17 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/user/me")
 @RequiredArgsConstructor
 public class UserController {
+    private final StorageQuotaService storageQuotaService;
 
     @GetMapping()
     @UserMeDocs
     public SignInResponseDto getUsername(@AuthenticationPrincipal UserDetails userDetails) {
         return new SignInResponseDto(userDetails.getUsername());
     }
+
+    @GetMapping("/usage")
+    @UserUsageDocs
+    public StorageUsageResponseDto getUsage(@AuthenticationPrincipal CustomUserDetails userDetails) {
+        return storageQuotaService.getUsage(userDetails.getUserId());
+    }
 }
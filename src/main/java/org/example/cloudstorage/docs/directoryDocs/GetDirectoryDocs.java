@@ -16,12 +16,13 @@ import java.lang.annotation.Target;
 
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
-@Operation(summary = "Get resource", description = "Get all resources in directory", tags = {"Storage", "Directory"})
+@Operation(summary = "Get resource", description = "Get resources in directory, one page at a time when limit or cursor is given. "
+        + "The cursor of the next page is returned in the X-Next-Cursor header", tags = {"Storage", "Directory"})
 @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Success",
                 content = @Content(mediaType = "application/json",
                         array = @ArraySchema(schema = @Schema(implementation = ResourceInfoResponseDto.class)))),
-        @ApiResponse(responseCode = "400", description = "Invalid path format",
+        @ApiResponse(responseCode = "400", description = "Invalid path format, limit or cursor",
                 content = @Content(mediaType = "application/json",
                         schema = @Schema(implementation = ErrorResponseDto.class))),
         @ApiResponse(responseCode = "401", description = "User not authenticated",
@@ -0,0 +1,36 @@
+package org.example.cloudstorage.docs.jobDocs;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.example.cloudstorage.dto.response.ErrorResponseDto;
+import org.example.cloudstorage.dto.response.storage.StorageJobResponseDto;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Operation(summary = "Get job", description = "Get status and progress of a background storage job", tags = {"Storage", "Job"})
+@ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success",
+                content = @Content(mediaType = "application/json",
+                        schema = @Schema(implementation = StorageJobResponseDto.class))),
+        @ApiResponse(responseCode = "401", description = "User not authenticated",
+                content = @Content(mediaType = "application/json",
+                        schema = @Schema(implementation = ErrorResponseDto.class,
+                                description = "User not authenticated"))),
+        @ApiResponse(responseCode = "404", description = "Job not found",
+                content = @Content(mediaType = "application/json",
+                        schema = @Schema(implementation = ErrorResponseDto.class, description = "Job not found")
+                )),
+        @ApiResponse(responseCode = "500", description = "Internal server error",
+                content = @Content(mediaType = "application/json",
+                        schema = @Schema(implementation = ErrorResponseDto.class,
+                                description = "Internal server error")))})
+public @interface GetJobDocs {
+}
\ No newline at end of file
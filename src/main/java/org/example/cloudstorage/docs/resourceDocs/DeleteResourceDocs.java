@@ -6,6 +6,7 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.example.cloudstorage.dto.response.ErrorResponseDto;
+import org.example.cloudstorage.dto.response.storage.StorageJobResponseDto;
 
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -17,6 +18,9 @@ import java.lang.annotation.Target;
 @Operation(summary = "Delete resource", description = "Delete resource", tags = {"Storage", "Resource"})
 @ApiResponses(value = {
         @ApiResponse(responseCode = "204", description = "Success"),
+        @ApiResponse(responseCode = "202", description = "Large directory, the operation continues as a background job",
+                content = @Content(mediaType = "application/json",
+                        schema = @Schema(implementation = StorageJobResponseDto.class))),
         @ApiResponse(responseCode = "400", description = "Invalid path format",
                 content = @Content(mediaType = "application/json",
                         schema = @Schema(implementation = ErrorResponseDto.class))),
@@ -14,10 +14,13 @@ import java.lang.annotation.Target;
 
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
-@Operation(summary = "Download resource", description = "Download resource", tags = {"Storage", "Resource"})
+@Operation(summary = "Download resource", description = "Download resource. Files support Range, If-Range, If-None-Match and If-Modified-Since", tags = {"Storage", "Resource"})
 @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Success",
                 content = @Content(mediaType = "application/octet-stream")),
+        @ApiResponse(responseCode = "206", description = "Requested range of the file. Requests for several ranges get the whole file",
+                content = @Content(mediaType = "application/octet-stream")),
+        @ApiResponse(responseCode = "304", description = "File not modified", content = @Content),
         @ApiResponse(responseCode = "400", description = "Invalid path format",
                 content = @Content(mediaType = "application/json",
                         schema = @Schema(implementation = ErrorResponseDto.class))),
@@ -29,6 +32,7 @@ import java.lang.annotation.Target;
                 content = @Content(mediaType = "application/json",
                         schema = @Schema(implementation = ErrorResponseDto.class, description = "Resource not found")
                 )),
+        @ApiResponse(responseCode = "416", description = "Requested range not satisfiable", content = @Content),
         @ApiResponse(responseCode = "500", description = "Internal server error",
                 content = @Content(mediaType = "application/json",
                         schema = @Schema(implementation = ErrorResponseDto.class,
@@ -16,11 +16,15 @@ import java.lang.annotation.Target;
 
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
-@Operation(summary = "Search resource", description = "Search resource", tags = {"Storage", "Resource"})
+@Operation(summary = "Search resource", description = "Search resource, up to limit matches. "
+        + "With Accept: application/x-ndjson matches are streamed one JSON object per line as they are found",
+        tags = {"Storage", "Resource"})
 @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Success",
-                content = @Content(mediaType = "application/json",
-                        array = @ArraySchema(schema = @Schema(implementation = ResourceInfoResponseDto.class)))),
+                content = {@Content(mediaType = "application/json",
+                        array = @ArraySchema(schema = @Schema(implementation = ResourceInfoResponseDto.class))),
+                @Content(mediaType = "application/x-ndjson",
+                        schema = @Schema(implementation = ResourceInfoResponseDto.class))}),
         @ApiResponse(responseCode = "400", description = "Invalid path format",
                 content = @Content(mediaType = "application/json",
                         schema = @Schema(implementation = ErrorResponseDto.class))),
@@ -0,0 +1,36 @@
+package org.example.cloudstorage.docs.uploadDocs;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.example.cloudstorage.dto.response.ErrorResponseDto;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Operation(summary = "Abort upload", description = "Abort resumable upload and drop its parts", tags = {"Storage", "Upload"})
+@ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Success"),
+        @ApiResponse(responseCode = "400", description = "Invalid upload id",
+                content = @Content(mediaType = "application/json",
+                        schema = @Schema(implementation = ErrorResponseDto.class))),
+        @ApiResponse(responseCode = "401", description = "User not authenticated",
+                content = @Content(mediaType = "application/json",
+                        schema = @Schema(implementation = ErrorResponseDto.class,
+                                description = "User not authenticated"))),
+        @ApiResponse(responseCode = "404", description = "Upload not found",
+                content = @Content(mediaType = "application/json",
+                        schema = @Schema(implementation = ErrorResponseDto.class, description = "Upload not found")
+                )),
+        @ApiResponse(responseCode = "500", description = "Internal server error",
+                content = @Content(mediaType = "application/json",
+                        schema = @Schema(implementation = ErrorResponseDto.class,
+                                description = "Internal server error")))})
+public @interface AbortUploadDocs {
+}
\ No newline at end of file
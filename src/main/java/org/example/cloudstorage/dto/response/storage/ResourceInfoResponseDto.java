@@ -3,8 +3,10 @@ package org.example.cloudstorage.dto.response.storage;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class ResourceInfoResponseDto {
@@ -12,10 +14,15 @@ public class ResourceInfoResponseDto {
     private String name;
     private Long size;
     private String type;
+    private Long fileCount;
 
     public ResourceInfoResponseDto(String path, String name, String type) {
         this.type = type;
         this.name = name;
         this.path = path;
     }
+
+    public ResourceInfoResponseDto(String path, String name, Long size, String type) {
+        this(path, name, size, type, null);
+    }
 }
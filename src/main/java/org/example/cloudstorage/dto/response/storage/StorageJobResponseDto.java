@@ -0,0 +1,13 @@
+package org.example.cloudstorage.dto.response.storage;
+
+public record StorageJobResponseDto(
+        String jobId,
+        String type,
+        String status,
+        String path,
+        String targetPath,
+        long processed,
+        long total,
+        String error
+) {
+}
@@ -0,0 +1,8 @@
+package org.example.cloudstorage.dto.response.storage;
+
+public record StorageUsageResponseDto(
+        long used,
+        long reserved,
+        long limit
+) {
+}
@@ -0,0 +1,8 @@
+package org.example.cloudstorage.dto.response.storage;
+
+public record UploadPartResponseDto(
+        int partNumber,
+        String etag,
+        long size
+) {
+}
@@ -0,0 +1,11 @@
+package org.example.cloudstorage.dto.response.storage;
+
+import java.util.List;
+
+public record UploadSessionResponseDto(
+        String uploadId,
+        String path,
+        long maxPartSize,
+        List<UploadPartResponseDto> parts
+) {
+}
@@ -0,0 +1,37 @@
+package org.example.cloudstorage.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "blob")
+public class Blob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", unique = true, nullable = false)
+    private Long id;
+    @Column(name = "hash", unique = true)
+    private String hash;
+    @Column(name = "object_key", nullable = false)
+    private String objectKey;
+    @Column(name = "etag", nullable = false)
+    private String etag;
+    @Column(name = "size", nullable = false)
+    private long size;
+    @Column(name = "ref_count", nullable = false)
+    private long refCount;
+    @Column(name = "released_at")
+    private Instant releasedAt;
+}
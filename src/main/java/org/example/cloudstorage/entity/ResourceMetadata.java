@@ -0,0 +1,55 @@
+package org.example.cloudstorage.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "resource_metadata")
+public class ResourceMetadata {
+    public static final String TYPE_DIRECTORY = "DIRECTORY";
+    public static final String TYPE_FILE = "FILE";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", unique = true, nullable = false)
+    private Long id;
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    @Column(name = "path", nullable = false)
+    private String path;
+    @Column(name = "parent")
+    private String parent;
+    @Column(name = "name", nullable = false)
+    private String name;
+    @Column(name = "size")
+    private Long size;
+    @Column(name = "file_count")
+    private Long fileCount;
+    @Column(name = "etag")
+    private String etag;
+    @Column(name = "type", nullable = false)
+    private String type;
+    @Column(name = "modified_at", nullable = false)
+    private Instant modifiedAt;
+
+    public ResourceMetadata(Long userId, String path) {
+        this.userId = userId;
+        this.path = path;
+    }
+
+    public boolean isDirectory() {
+        return TYPE_DIRECTORY.equals(type);
+    }
+}
@@ -0,0 +1,7 @@
+package org.example.cloudstorage.exception;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package org.example.cloudstorage.exception;
+
+public class InvalidResourcePathException extends RuntimeException {
+    public InvalidResourcePathException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package org.example.cloudstorage.exception;
+
+public class InvalidUploadException extends RuntimeException {
+    public InvalidUploadException(String message) {
+        super(message);
+    }
+}
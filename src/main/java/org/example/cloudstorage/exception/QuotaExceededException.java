@@ -0,0 +1,7 @@
+package org.example.cloudstorage.exception;
+
+public class QuotaExceededException extends RuntimeException {
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.cloudstorage.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.example.cloudstorage.entity.Blob;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface BlobRepository extends JpaRepository<Blob, Long> {
+
+    Optional<Blob> findByHash(String hash);
+
+    @Modifying
+    @Query("update Blob b set b.refCount = b.refCount + 1, b.releasedAt = null where b.hash = :hash")
+    int reference(@Param("hash") String hash);
+
+    @Modifying
+    @Query(value = """
+            insert into blob (hash, etag, object_key, size, ref_count)
+            values (:hash, :hash, :objectKey, :size, 1)
+            on conflict (hash) do nothing""", nativeQuery = true)
+    int insertIfAbsent(@Param("hash") String hash, @Param("objectKey") String objectKey, @Param("size") long size);
+
+    // must run before the references are deleted
+    @Modifying
+    @Query(value = """
+            update blob b
+            set ref_count = b.ref_count - r.refs,
+                released_at = case when b.ref_count - r.refs <= 0 then now() else b.released_at end
+            from (select blob_id, count(*) as refs from resource_blob
+                  where user_id = :userId and (path = :path or path like :prefixPattern escape '\\')
+                  group by blob_id) r
+            where b.id = r.blob_id""", nativeQuery = true)
+    int releaseSubtree(@Param("userId") Long userId, @Param("path") String path, @Param("prefixPattern") String prefixPattern);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select b from Blob b where b.refCount <= 0 and b.releasedAt < :cutoff order by b.releasedAt")
+    List<Blob> findReleasedBefore(@Param("cutoff") Instant cutoff, Limit limit);
+}
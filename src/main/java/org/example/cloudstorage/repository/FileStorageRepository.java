@@ -1,10 +1,18 @@
 package org.example.cloudstorage.repository;
 
 import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.dto.response.storage.UploadPartResponseDto;
+import org.example.cloudstorage.dto.response.storage.UploadSessionResponseDto;
+import org.example.cloudstorage.service.DirectoryPage;
+import org.example.cloudstorage.service.StoredObject;
 import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 public interface FileStorageRepository {
 
@@ -12,11 +20,31 @@ public interface FileStorageRepository {
 
     List<ResourceInfoResponseDto> save(Long userId, String path,  List<MultipartFile>  files);
 
-    void delete(Long userId, String path);
+    default void delete(Long userId, String path) {
+        delete(userId, path, processed -> {
+        });
+    }
+
+    void delete(Long userId, String path, LongConsumer progress);
 
     Resource get(Long userId, String path);
 
-    ResourceInfoResponseDto rename(Long userId, String oldPath, String newPath);
+    Resource get(Long userId, String path, long offset, long length);
+
+    StoredObject stat(Long userId, String path);
+
+    StreamingResponseBody getArchive(Long userId, String path);
+
+    default ResourceInfoResponseDto rename(Long userId, String oldPath, String newPath) {
+        return rename(userId, oldPath, newPath, processed -> {
+        });
+    }
+
+    ResourceInfoResponseDto rename(Long userId, String oldPath, String newPath, LongConsumer progress);
+
+    long countObjects(Long userId, String path);
+
+    long usedBytes(Long userId);
 
     ResourceInfoResponseDto getInfo(Long userId, String path);
 
@@ -24,6 +52,20 @@ public interface FileStorageRepository {
 
     List<ResourceInfoResponseDto> search(Long userId, String path);
 
+    void search(Long userId, String query, long limit, Consumer<ResourceInfoResponseDto> consumer);
+
     List<ResourceInfoResponseDto> getDirectoryContentInfo(Long userId, String path);
 
+    DirectoryPage getDirectoryContentPage(Long userId, String path, String cursor, int limit);
+
+    UploadSessionResponseDto startUpload(Long userId, String path);
+
+    UploadPartResponseDto uploadPart(Long userId, String uploadId, int partNumber, InputStream inputStream, long size);
+
+    UploadSessionResponseDto getUpload(Long userId, String uploadId);
+
+    ResourceInfoResponseDto completeUpload(Long userId, String uploadId);
+
+    void abortUpload(Long userId, String uploadId);
+
 }
@@ -0,0 +1,565 @@
+package org.example.cloudstorage.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.cloudstorage.config.InMemoryStorageProperties;
+import org.example.cloudstorage.config.UploadProperties;
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.dto.response.storage.UploadPartResponseDto;
+import org.example.cloudstorage.dto.response.storage.UploadSessionResponseDto;
+import org.example.cloudstorage.exception.InvalidUploadException;
+import org.example.cloudstorage.exception.ResourceAlreadyExistsException;
+import org.example.cloudstorage.exception.ResourceNotFoundException;
+import org.example.cloudstorage.exception.StorageException;
+import org.example.cloudstorage.service.DirectoryCursor;
+import org.example.cloudstorage.service.DirectoryPage;
+import org.example.cloudstorage.service.ExpiredUpload;
+import org.example.cloudstorage.service.ResourceDeletedEvent;
+import org.example.cloudstorage.service.ResourceMetadataService;
+import org.example.cloudstorage.service.ResourceMovedEvent;
+import org.example.cloudstorage.service.ResourcesCreatedEvent;
+import org.example.cloudstorage.service.StoragePath;
+import org.example.cloudstorage.service.StoredObject;
+import org.example.cloudstorage.service.UploadSession;
+import org.example.cloudstorage.service.UploadSessionStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.example.cloudstorage.repository.ResourceInfoResponses.LISTING_ORDER;
+import static org.example.cloudstorage.repository.ResourceInfoResponses.RESPONSE_TYPE_DIRECTORY;
+import static org.example.cloudstorage.repository.ResourceInfoResponses.RESPONSE_TYPE_FILE;
+import static org.example.cloudstorage.repository.ResourceInfoResponses.createResourceInfoResponseDto;
+
+/**
+ * Keeps objects in a sorted in-memory map keyed like MinIO object keys, with directory marker objects
+ * and prefix listings. Every simulated round trip sleeps for the configured latency of its operation,
+ * and reads and writes additionally for the time the configured bandwidth needs for their payload.
+ * Meant for load tests of the controllers without an object store; all data is lost on restart, so the
+ * persistent index of a user whose objects are gone is dropped on the first access after a restart.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(prefix = "cloudstorage.storage", name = "backend", havingValue = "memory")
+public class InMemoryFileStorageRepository implements FileStorageRepository {
+
+    private static final String LIST = "list";
+    private static final String STAT = "stat";
+    private static final String READ = "read";
+    private static final String WRITE = "write";
+    private static final String COPY = "copy";
+    private static final String DELETE = "delete";
+    private static final int MAX_UPLOAD_PARTS = 10000;
+    private static final int EXPIRED_UPLOAD_BATCH = 100;
+
+    private final InMemoryStorageProperties inMemoryStorageProperties;
+    private final ResourceMetadataService resourceMetadataService;
+    private final UploadSessionStore uploadSessionStore;
+    private final UploadProperties uploadProperties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Sleeper sleeper;
+    private final ConcurrentSkipListMap<String, StoredEntry> objects = new ConcurrentSkipListMap<>();
+    private final Map<String, ConcurrentSkipListMap<Integer, StoredEntry>> uploads = new ConcurrentHashMap<>();
+    private final Set<Long> checkedUsers = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public InMemoryFileStorageRepository(InMemoryStorageProperties inMemoryStorageProperties,
+                                         ResourceMetadataService resourceMetadataService,
+                                         UploadSessionStore uploadSessionStore, UploadProperties uploadProperties,
+                                         ApplicationEventPublisher eventPublisher) {
+        this(inMemoryStorageProperties, resourceMetadataService, uploadSessionStore, uploadProperties, eventPublisher,
+                Thread::sleep);
+    }
+
+    InMemoryFileStorageRepository(InMemoryStorageProperties inMemoryStorageProperties,
+                                  ResourceMetadataService resourceMetadataService,
+                                  UploadSessionStore uploadSessionStore, UploadProperties uploadProperties,
+                                  ApplicationEventPublisher eventPublisher, Sleeper sleeper) {
+        this.inMemoryStorageProperties = inMemoryStorageProperties;
+        this.resourceMetadataService = resourceMetadataService;
+        this.uploadSessionStore = uploadSessionStore;
+        this.uploadProperties = uploadProperties;
+        this.eventPublisher = eventPublisher;
+        this.sleeper = sleeper;
+    }
+
+    @Override
+    public void createDefaultUserDirectory(Long userId) {
+        createEmptyFolder(userId, "");
+    }
+
+    @Override
+    public List<ResourceInfoResponseDto> save(Long userId, String path, List<MultipartFile> files) {
+        ensureIndexed(userId);
+        for (MultipartFile file : files) {
+            String filePath = path + file.getOriginalFilename();
+            StoragePath.validate(filePath);
+            if (exists(userId, filePath)) {
+                throw new ResourceAlreadyExistsException("Object already exists");
+            }
+        }
+        List<StoredObject> storedObjects = new ArrayList<>();
+        for (MultipartFile file : files) {
+            String filePath = path + file.getOriginalFilename();
+            try {
+                storedObjects.add(put(userId, filePath, file.getBytes()));
+            } catch (IOException e) {
+                throw new StorageException(e.getMessage());
+            }
+        }
+        eventPublisher.publishEvent(new ResourcesCreatedEvent(userId, storedObjects));
+        return storedObjects.stream()
+                .map(object -> createResourceInfoResponseDto(object.path(), object.size()))
+                .toList();
+    }
+
+    @Override
+    public void delete(Long userId, String path, LongConsumer progress) {
+        String key = formatPath(userId, path);
+        if (StoragePath.ofStored(path).isDirectory()) {
+            for (String objectKey : listKeys(key)) {
+                simulate(DELETE, 0);
+                objects.remove(objectKey);
+                progress.accept(1);
+            }
+        } else {
+            simulate(DELETE, 0);
+            if (objects.remove(key) == null) {
+                throw new ResourceNotFoundException("Object does not exists");
+            }
+            progress.accept(1);
+        }
+        eventPublisher.publishEvent(new ResourceDeletedEvent(userId, path));
+    }
+
+    @Override
+    public Resource get(Long userId, String path) {
+        StoredEntry entry = getEntry(userId, path);
+        simulate(READ, entry.content().length);
+        return new ByteArrayResource(entry.content());
+    }
+
+    @Override
+    public Resource get(Long userId, String path, long offset, long length) {
+        StoredEntry entry = getEntry(userId, path);
+        simulate(READ, length);
+        return new ByteArrayResource(Arrays.copyOfRange(entry.content(), (int) offset, (int) (offset + length)));
+    }
+
+    @Override
+    public StoredObject stat(Long userId, String path) {
+        StoredEntry entry = getEntry(userId, path);
+        return new StoredObject(path, entry.content().length, entry.etag(), entry.modifiedAt());
+    }
+
+    @Override
+    public StreamingResponseBody getArchive(Long userId, String path) {
+        ensureIndexed(userId);
+        if (!exists(userId, path)) {
+            throw new ResourceNotFoundException("Object does not exists");
+        }
+        String prefix = formatPath(userId, path);
+        return outputStream -> writeArchive(prefix, outputStream);
+    }
+
+    @Override
+    public ResourceInfoResponseDto rename(Long userId, String oldPath, String newPath, LongConsumer progress) {
+        ensureIndexed(userId);
+        if (!exists(userId, oldPath)) {
+            throw new ResourceNotFoundException("Object does not exists");
+        }
+        if (exists(userId, newPath)) {
+            throw new ResourceAlreadyExistsException("Object already exists");
+        }
+        String oldKey = formatPath(userId, oldPath);
+        String newKey = formatPath(userId, newPath);
+        List<String> keys = StoragePath.ofStored(oldPath).isDirectory() ? listKeys(oldKey) : List.of(oldKey);
+        for (String key : keys) {
+            simulate(COPY, 0);
+            objects.put(newKey + key.substring(oldKey.length()), objects.get(key));
+            progress.accept(1);
+        }
+        for (String key : keys) {
+            simulate(DELETE, 0);
+            objects.remove(key);
+            progress.accept(1);
+        }
+        eventPublisher.publishEvent(new ResourceMovedEvent(userId, oldPath, newPath));
+        return getInfo(userId, newPath);
+    }
+
+    @Override
+    public long countObjects(Long userId, String path) {
+        String key = formatPath(userId, path);
+        if (StoragePath.ofStored(path).isDirectory()) {
+            return listKeys(key).size();
+        }
+        return objects.containsKey(key) ? 1 : 0;
+    }
+
+    @Override
+    public long usedBytes(Long userId) {
+        return listEntries(StoragePath.userPrefix(userId)).stream()
+                .mapToLong(entry -> entry.getValue().content().length)
+                .sum();
+    }
+
+    @Override
+    public ResourceInfoResponseDto getInfo(Long userId, String path) {
+        if (StoragePath.ofStored(path).isDirectory()) {
+            if (!exists(userId, path)) {
+                throw new ResourceNotFoundException("Object does not exists");
+            }
+            return createResourceInfoResponseDto(path, 0);
+        }
+        return createResourceInfoResponseDto(path, getEntry(userId, path).content().length);
+    }
+
+    @Override
+    public ResourceInfoResponseDto createEmptyDirectory(Long userId, String path) {
+        ensureIndexed(userId);
+        createEmptyFolder(userId, path);
+        return getInfo(userId, path);
+    }
+
+    @Override
+    public List<ResourceInfoResponseDto> search(Long userId, String query) {
+        ensureIndexed(userId);
+        return resourceMetadataService.search(userId, query);
+    }
+
+    @Override
+    public void search(Long userId, String query, long limit, Consumer<ResourceInfoResponseDto> consumer) {
+        ensureIndexed(userId);
+        resourceMetadataService.search(userId, query, limit, consumer);
+    }
+
+    @Override
+    public List<ResourceInfoResponseDto> getDirectoryContentInfo(Long userId, String path) {
+        ensureIndexed(userId);
+        if (!exists(userId, path)) {
+            throw new ResourceNotFoundException("Object does not exists");
+        }
+        String prefix = formatPath(userId, path);
+        List<ResourceInfoResponseDto> content = new ArrayList<>();
+        String previousDirectory = null;
+        for (Map.Entry<String, StoredEntry> entry : listEntries(prefix)) {
+            String rest = entry.getKey().substring(prefix.length());
+            int separator = rest.indexOf('/');
+            if (rest.isEmpty()) {
+                continue;
+            }
+            if (separator >= 0) {
+                String directory = path + rest.substring(0, separator + 1);
+                if (!directory.equals(previousDirectory)) {
+                    content.add(createResourceInfoResponseDto(directory, 0));
+                    previousDirectory = directory;
+                }
+            } else {
+                content.add(createResourceInfoResponseDto(path + rest, entry.getValue().content().length));
+            }
+        }
+        content.sort(LISTING_ORDER);
+        return content;
+    }
+
+    // keys are walked in order once per type from the cursor on, skipping the subtree of every directory
+    @Override
+    public DirectoryPage getDirectoryContentPage(Long userId, String path, String cursor, int limit) {
+        DirectoryCursor after = cursor != null ? DirectoryCursor.decode(cursor) : null;
+        ensureIndexed(userId);
+        if (!exists(userId, path)) {
+            throw new ResourceNotFoundException("Object does not exists");
+        }
+        String prefix = formatPath(userId, path);
+        List<ResourceInfoResponseDto> items = new ArrayList<>();
+        simulate(LIST, 0);
+        for (String type : List.of(RESPONSE_TYPE_DIRECTORY, RESPONSE_TYPE_FILE)) {
+            int position = after != null ? type.compareTo(after.type()) : 1;
+            if (position < 0) {
+                continue;
+            }
+            String key;
+            if (position > 0) {
+                key = objects.ceilingKey(prefix);
+            } else if (type.equals(RESPONSE_TYPE_DIRECTORY)) {
+                key = objects.ceilingKey(prefix + after.name() + Character.MAX_VALUE);
+            } else {
+                key = objects.higherKey(prefix + after.name());
+            }
+            while (key != null && key.startsWith(prefix) && items.size() <= limit) {
+                int separator = key.indexOf('/', prefix.length());
+                if (separator >= 0) {
+                    String directory = key.substring(0, separator + 1);
+                    if (type.equals(RESPONSE_TYPE_DIRECTORY)) {
+                        items.add(createResourceInfoResponseDto(path + directory.substring(prefix.length()), 0));
+                    }
+                    key = objects.ceilingKey(directory + Character.MAX_VALUE);
+                    continue;
+                }
+                if (type.equals(RESPONSE_TYPE_FILE) && key.length() > prefix.length()) {
+                    StoredEntry entry = objects.get(key);
+                    if (entry != null) {
+                        items.add(createResourceInfoResponseDto(path + key.substring(prefix.length()), entry.content().length));
+                    }
+                }
+                key = objects.higherKey(key);
+            }
+        }
+        return DirectoryPage.of(items, limit, Function.identity(), DirectoryCursor::of);
+    }
+
+    @Override
+    public UploadSessionResponseDto startUpload(Long userId, String path) {
+        ensureIndexed(userId);
+        if (StoragePath.ofStored(path).isDirectory()) {
+            throw new InvalidUploadException("Upload path must point to a file");
+        }
+        if (exists(userId, path)) {
+            throw new ResourceAlreadyExistsException("Object already exists");
+        }
+        simulate(WRITE, 0);
+        String storageUploadId = UUID.randomUUID().toString();
+        uploads.put(storageUploadId, new ConcurrentSkipListMap<>());
+        UploadSession session = uploadSessionStore.create(userId, path, storageUploadId);
+        return new UploadSessionResponseDto(session.id(), path, uploadProperties.getMaxPartSize().toBytes(), List.of());
+    }
+
+    @Override
+    public UploadPartResponseDto uploadPart(Long userId, String uploadId, int partNumber, InputStream inputStream, long size) {
+        NavigableMap<Integer, StoredEntry> parts = getUploadParts(getUploadSession(userId, uploadId));
+        if (partNumber < 1 || partNumber > MAX_UPLOAD_PARTS) {
+            throw new InvalidUploadException("Part number must be between 1 and " + MAX_UPLOAD_PARTS);
+        }
+        if (size <= 0 || size > uploadProperties.getMaxPartSize().toBytes()) {
+            throw new InvalidUploadException("Part size must be between 1 and " + uploadProperties.getMaxPartSize().toBytes());
+        }
+        byte[] data;
+        try {
+            data = inputStream.readNBytes((int) size);
+        } catch (IOException e) {
+            throw new InvalidUploadException("Can not read part " + partNumber + ": " + e.getMessage());
+        }
+        if (data.length != size) {
+            throw new InvalidUploadException("Part " + partNumber + " is incomplete");
+        }
+        simulate(WRITE, data.length);
+        StoredEntry part = StoredEntry.of(data);
+        parts.put(partNumber, part);
+        return new UploadPartResponseDto(partNumber, part.etag(), data.length);
+    }
+
+    @Override
+    public UploadSessionResponseDto getUpload(Long userId, String uploadId) {
+        UploadSession session = getUploadSession(userId, uploadId);
+        simulate(LIST, 0);
+        List<UploadPartResponseDto> parts = getUploadParts(session).entrySet().stream()
+                .map(part -> new UploadPartResponseDto(part.getKey(), part.getValue().etag(), part.getValue().content().length))
+                .toList();
+        return new UploadSessionResponseDto(session.id(), session.path(), uploadProperties.getMaxPartSize().toBytes(), parts);
+    }
+
+    @Override
+    public ResourceInfoResponseDto completeUpload(Long userId, String uploadId) {
+        UploadSession session = getUploadSession(userId, uploadId);
+        NavigableMap<Integer, StoredEntry> parts = getUploadParts(session);
+        if (parts.isEmpty()) {
+            throw new InvalidUploadException("Upload has no parts");
+        }
+        if (exists(userId, session.path())) {
+            throw new ResourceAlreadyExistsException("Object already exists");
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        parts.values().forEach(part -> content.writeBytes(part.content()));
+        StoredObject object = put(userId, session.path(), content.toByteArray());
+        uploads.remove(session.storageUploadId());
+        uploadSessionStore.delete(session.id());
+        eventPublisher.publishEvent(new ResourcesCreatedEvent(userId, List.of(object)));
+        return createResourceInfoResponseDto(object.path(), object.size());
+    }
+
+    @Override
+    public void abortUpload(Long userId, String uploadId) {
+        UploadSession session = getUploadSession(userId, uploadId);
+        simulate(DELETE, 0);
+        uploads.remove(session.storageUploadId());
+        uploadSessionStore.delete(session.id());
+    }
+
+    @Scheduled(fixedDelayString = "${cloudstorage.storage.upload.expiry-sweep-interval:1h}")
+    public void deleteExpiredUploads() {
+        try {
+            List<ExpiredUpload> expired;
+            do {
+                expired = uploadSessionStore.claimExpired(EXPIRED_UPLOAD_BATCH);
+                expired.forEach(upload -> uploads.remove(upload.storageUploadId()));
+            } while (expired.size() >= EXPIRED_UPLOAD_BATCH);
+        } catch (DataAccessException e) {
+            log.warn("Can not delete expired uploads: {}", e.getMessage());
+        }
+    }
+
+    private void ensureIndexed(Long userId) {
+        if (!checkedUsers.contains(userId)) {
+            dropIndexOfPreviousRun(userId);
+        }
+        if (resourceMetadataService.isIndexed(userId)) {
+            return;
+        }
+        String prefix = StoragePath.userPrefix(userId);
+        resourceMetadataService.reindex(userId, listEntries(prefix).stream()
+                .map(entry -> toStoredObject(StoragePath.ofObjectKey(entry.getKey()).path(), entry.getValue()))
+                .iterator());
+    }
+
+    // the metadata rows, search index and existence filter outlive the objects, which are gone after a restart
+    private synchronized void dropIndexOfPreviousRun(Long userId) {
+        if (checkedUsers.contains(userId)) {
+            return;
+        }
+        String prefix = StoragePath.userPrefix(userId);
+        String first = objects.ceilingKey(prefix);
+        if ((first == null || !first.startsWith(prefix)) && resourceMetadataService.isIndexed(userId)) {
+            eventPublisher.publishEvent(new ResourceDeletedEvent(userId, StoragePath.ROOT.path()));
+            createEmptyFolder(userId, StoragePath.ROOT.path());
+        }
+        checkedUsers.add(userId);
+    }
+
+    private boolean exists(Long userId, String path) {
+        String key = formatPath(userId, path);
+        simulate(STAT, 0);
+        if (objects.containsKey(key)) {
+            return true;
+        }
+        if (!StoragePath.ofStored(path).isDirectory()) {
+            return false;
+        }
+        String next = objects.ceilingKey(key);
+        return next != null && next.startsWith(key);
+    }
+
+    private void createEmptyFolder(Long userId, String path) {
+        if (exists(userId, path)) {
+            throw new ResourceAlreadyExistsException("Object already exists");
+        }
+        StoredObject folder = put(userId, path, new byte[0]);
+        eventPublisher.publishEvent(new ResourcesCreatedEvent(userId, List.of(folder)));
+    }
+
+    private StoredObject put(Long userId, String path, byte[] content) {
+        simulate(WRITE, content.length);
+        StoredEntry entry = StoredEntry.of(content);
+        objects.put(formatPath(userId, path), entry);
+        return toStoredObject(path, entry);
+    }
+
+    private void writeArchive(String prefix, OutputStream outputStream) throws IOException {
+        ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+        for (Map.Entry<String, StoredEntry> entry : listEntries(prefix)) {
+            if (entry.getKey().endsWith("/")) {
+                continue;
+            }
+            simulate(READ, entry.getValue().content().length);
+            zipOutputStream.putNextEntry(new ZipEntry(entry.getKey().substring(prefix.length())));
+            zipOutputStream.write(entry.getValue().content());
+            zipOutputStream.closeEntry();
+        }
+        zipOutputStream.finish();
+    }
+
+    private List<Map.Entry<String, StoredEntry>> listEntries(String prefix) {
+        simulate(LIST, 0);
+        return List.copyOf(objects.subMap(prefix, true, prefix + Character.MAX_VALUE, false).entrySet());
+    }
+
+    private List<String> listKeys(String prefix) {
+        return listEntries(prefix).stream().map(Map.Entry::getKey).toList();
+    }
+
+    private StoredEntry getEntry(Long userId, String path) {
+        simulate(STAT, 0);
+        StoredEntry entry = objects.get(formatPath(userId, path));
+        if (entry == null) {
+            throw new ResourceNotFoundException("Object does not exists");
+        }
+        return entry;
+    }
+
+    private UploadSession getUploadSession(Long userId, String uploadId) {
+        return uploadSessionStore.find(userId, uploadId)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload does not exists"));
+    }
+
+    private NavigableMap<Integer, StoredEntry> getUploadParts(UploadSession session) {
+        NavigableMap<Integer, StoredEntry> parts = uploads.get(session.storageUploadId());
+        if (parts == null) {
+            throw new ResourceNotFoundException("Upload does not exists");
+        }
+        return parts;
+    }
+
+    private void simulate(String operation, long bytes) {
+        Duration delay = inMemoryStorageProperties.getLatency(operation);
+        long bandwidth = inMemoryStorageProperties.getBandwidth().toBytes();
+        if (bandwidth > 0 && bytes > 0) {
+            delay = delay.plusNanos(bytes * 1_000_000_000L / bandwidth);
+        }
+        if (delay.isZero()) {
+            return;
+        }
+        try {
+            sleeper.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted while simulating " + operation);
+        }
+    }
+
+    private StoredObject toStoredObject(String path, StoredEntry entry) {
+        return new StoredObject(path, entry.content().length, entry.etag(), entry.modifiedAt());
+    }
+
+    private String formatPath(Long userId, String path) {
+        return StoragePath.userPrefix(userId) + path;
+    }
+
+    @FunctionalInterface
+    interface Sleeper {
+        void sleep(Duration delay) throws InterruptedException;
+    }
+
+    private record StoredEntry(byte[] content, String etag, Instant modifiedAt) {
+        static StoredEntry of(byte[] content) {
+            return new StoredEntry(content, DigestUtils.md5DigestAsHex(content), Instant.now());
+        }
+    }
+}
@@ -0,0 +1,585 @@
+package org.example.cloudstorage.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.cloudstorage.config.LocalStorageProperties;
+import org.example.cloudstorage.config.UploadProperties;
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.dto.response.storage.UploadPartResponseDto;
+import org.example.cloudstorage.dto.response.storage.UploadSessionResponseDto;
+import org.example.cloudstorage.exception.InvalidResourcePathException;
+import org.example.cloudstorage.exception.InvalidUploadException;
+import org.example.cloudstorage.exception.ResourceAlreadyExistsException;
+import org.example.cloudstorage.exception.ResourceNotFoundException;
+import org.example.cloudstorage.exception.StorageException;
+import org.example.cloudstorage.service.DirectoryCursor;
+import org.example.cloudstorage.service.DirectoryPage;
+import org.example.cloudstorage.service.ExpiredUpload;
+import org.example.cloudstorage.service.ResourceDeletedEvent;
+import org.example.cloudstorage.service.ResourceMetadataService;
+import org.example.cloudstorage.service.ResourceMovedEvent;
+import org.example.cloudstorage.service.ResourcesCreatedEvent;
+import org.example.cloudstorage.service.StoragePath;
+import org.example.cloudstorage.service.StoredObject;
+import org.example.cloudstorage.service.UploadSession;
+import org.example.cloudstorage.service.UploadSessionStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.example.cloudstorage.repository.ResourceInfoResponses.LISTING_ORDER;
+import static org.example.cloudstorage.repository.ResourceInfoResponses.createResourceInfoResponseDto;
+
+/**
+ * Stores resources as plain files below {@code cloudstorage.storage.local.root}, one directory per
+ * user named like the MinIO user prefix. Listings, info and downloads read the file system directly;
+ * storage events are still published so that the metadata index and search stay in sync.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "cloudstorage.storage", name = "backend", havingValue = "local")
+public class LocalFileStorageRepository implements FileStorageRepository {
+
+    private static final String UPLOADS_DIRECTORY = ".uploads";
+    private static final String PART_SUFFIX = ".part";
+    private static final int MAX_UPLOAD_PARTS = 10000;
+    private static final int EXPIRED_UPLOAD_BATCH = 100;
+
+    private final LocalStorageProperties localStorageProperties;
+    private final ResourceMetadataService resourceMetadataService;
+    private final UploadSessionStore uploadSessionStore;
+    private final UploadProperties uploadProperties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void createDefaultUserDirectory(Long userId) {
+        createEmptyFolder(userId, "");
+    }
+
+    @Override
+    public List<ResourceInfoResponseDto> save(Long userId, String path, List<MultipartFile> files) {
+        ensureIndexed(userId);
+        for (MultipartFile file : files) {
+            String filePath = path + file.getOriginalFilename();
+            StoragePath.validate(filePath);
+            if (Files.exists(resolve(userId, filePath))) {
+                throw new ResourceAlreadyExistsException("Object already exists");
+            }
+        }
+
+        List<StoredObject> storedObjects = new ArrayList<>();
+        for (MultipartFile file : files) {
+            String filePath = path + file.getOriginalFilename();
+            Path target = resolve(userId, filePath);
+            try {
+                Files.createDirectories(target.getParent());
+                file.transferTo(target);
+                storedObjects.add(toStoredObject(filePath, Files.readAttributes(target, BasicFileAttributes.class)));
+            } catch (IOException e) {
+                throw new StorageException("Can not save file " + filePath + ": " + e.getMessage());
+            }
+        }
+        eventPublisher.publishEvent(new ResourcesCreatedEvent(userId, storedObjects));
+        return storedObjects.stream()
+                .map(object -> createResourceInfoResponseDto(object.path(), object.size()))
+                .toList();
+    }
+
+    @Override
+    public void delete(Long userId, String path, LongConsumer progress) {
+        Path target = resolve(userId, path);
+        try {
+            if (StoragePath.ofStored(path).isDirectory()) {
+                deleteDirectory(target, progress);
+            } else {
+                Files.delete(target);
+                progress.accept(1);
+            }
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("Object does not exists");
+        } catch (IOException e) {
+            throw new StorageException("Can not delete " + path + ": " + e.getMessage());
+        }
+        eventPublisher.publishEvent(new ResourceDeletedEvent(userId, path));
+    }
+
+    @Override
+    public Resource get(Long userId, String path) {
+        Path file = getRegularFile(userId, path);
+        try {
+            return new FileRegionResource(file, 0, Files.size(file));
+        } catch (IOException e) {
+            throw new StorageException(e.getMessage());
+        }
+    }
+
+    @Override
+    public Resource get(Long userId, String path, long offset, long length) {
+        return new FileRegionResource(getRegularFile(userId, path), offset, length);
+    }
+
+    @Override
+    public StoredObject stat(Long userId, String path) {
+        return toStoredObject(path, readAttributes(resolve(userId, path)));
+    }
+
+    @Override
+    public StreamingResponseBody getArchive(Long userId, String path) {
+        Path directory = resolve(userId, path);
+        if (!Files.isDirectory(directory)) {
+            throw new ResourceNotFoundException("Object does not exists");
+        }
+        return outputStream -> writeArchive(directory, outputStream);
+    }
+
+    @Override
+    public ResourceInfoResponseDto rename(Long userId, String oldPath, String newPath, LongConsumer progress) {
+        Path source = resolve(userId, oldPath);
+        Path target = resolve(userId, newPath);
+        if (!Files.exists(source)) {
+            throw new ResourceNotFoundException("Object does not exists");
+        }
+        if (Files.exists(target)) {
+            throw new ResourceAlreadyExistsException("Object already exists");
+        }
+        try {
+            Files.createDirectories(target.getParent());
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new StorageException("Can not move " + oldPath + " to " + newPath + ": " + e.getMessage());
+        }
+        progress.accept(1);
+        eventPublisher.publishEvent(new ResourceMovedEvent(userId, oldPath, newPath));
+        return getInfo(userId, newPath);
+    }
+
+    @Override
+    public long countObjects(Long userId, String path) {
+        Path target = resolve(userId, path);
+        if (!Files.exists(target)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(target)) {
+            return files.count();
+        } catch (IOException e) {
+            throw new StorageException("Can not count objects in " + path + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public long usedBytes(Long userId) {
+        Path userRoot = userRoot(userId);
+        if (!Files.exists(userRoot)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(userRoot)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> {
+                try {
+                    return Files.size(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).sum();
+        } catch (IOException | UncheckedIOException e) {
+            throw new StorageException("Can not measure the storage of user " + userId + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public ResourceInfoResponseDto getInfo(Long userId, String path) {
+        BasicFileAttributes attributes = readAttributes(resolve(userId, path));
+        if (attributes.isDirectory() != StoragePath.ofStored(path).isDirectory()) {
+            throw new ResourceNotFoundException("Object does not exists");
+        }
+        return createResourceInfoResponseDto(path, attributes.size());
+    }
+
+    @Override
+    public ResourceInfoResponseDto createEmptyDirectory(Long userId, String path) {
+        ensureIndexed(userId);
+        createEmptyFolder(userId, path);
+        return getInfo(userId, path);
+    }
+
+    @Override
+    public List<ResourceInfoResponseDto> search(Long userId, String query) {
+        ensureIndexed(userId);
+        return resourceMetadataService.search(userId, query);
+    }
+
+    @Override
+    public void search(Long userId, String query, long limit, Consumer<ResourceInfoResponseDto> consumer) {
+        ensureIndexed(userId);
+        resourceMetadataService.search(userId, query, limit, consumer);
+    }
+
+    @Override
+    public List<ResourceInfoResponseDto> getDirectoryContentInfo(Long userId, String path) {
+        Path directory = resolve(userId, path);
+        if (!Files.isDirectory(directory)) {
+            throw new ResourceNotFoundException("Object does not exists");
+        }
+        List<ResourceInfoResponseDto> content = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                String entryPath = path + entry.getFileName() + (attributes.isDirectory() ? "/" : "");
+                content.add(createResourceInfoResponseDto(entryPath, attributes.size()));
+            }
+        } catch (IOException e) {
+            throw new StorageException("Can not list " + path + ": " + e.getMessage());
+        }
+        content.sort(LISTING_ORDER);
+        return content;
+    }
+
+    // the directory is read once per page, but only the limit + 1 smallest entries after the cursor are kept
+    @Override
+    public DirectoryPage getDirectoryContentPage(Long userId, String path, String cursor, int limit) {
+        DirectoryCursor after = cursor != null ? DirectoryCursor.decode(cursor) : null;
+        Path directory = resolve(userId, path);
+        if (!Files.isDirectory(directory)) {
+            throw new ResourceNotFoundException("Object does not exists");
+        }
+        PriorityQueue<ResourceInfoResponseDto> smallest = new PriorityQueue<>(LISTING_ORDER.reversed());
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                String entryPath = path + entry.getFileName() + (attributes.isDirectory() ? "/" : "");
+                ResourceInfoResponseDto item = createResourceInfoResponseDto(entryPath, attributes.size());
+                if (after != null && DirectoryCursor.ORDER.compare(DirectoryCursor.of(item), after) <= 0) {
+                    continue;
+                }
+                smallest.add(item);
+                if (smallest.size() > limit + 1) {
+                    smallest.poll();
+                }
+            }
+        } catch (IOException e) {
+            throw new StorageException("Can not list " + path + ": " + e.getMessage());
+        }
+        List<ResourceInfoResponseDto> items = new ArrayList<>(smallest);
+        items.sort(LISTING_ORDER);
+        return DirectoryPage.of(items, limit, Function.identity(), DirectoryCursor::of);
+    }
+
+    @Override
+    public UploadSessionResponseDto startUpload(Long userId, String path) {
+        if (StoragePath.ofStored(path).isDirectory()) {
+            throw new InvalidUploadException("Upload path must point to a file");
+        }
+        if (Files.exists(resolve(userId, path))) {
+            throw new ResourceAlreadyExistsException("Object already exists");
+        }
+        String storageUploadId = UUID.randomUUID().toString();
+        try {
+            Files.createDirectories(uploadDirectory(storageUploadId));
+        } catch (IOException e) {
+            throw new StorageException("Can not start upload: " + e.getMessage());
+        }
+        UploadSession session = uploadSessionStore.create(userId, path, storageUploadId);
+        return new UploadSessionResponseDto(session.id(), path, uploadProperties.getMaxPartSize().toBytes(), List.of());
+    }
+
+    @Override
+    public UploadPartResponseDto uploadPart(Long userId, String uploadId, int partNumber, InputStream inputStream, long size) {
+        UploadSession session = getUploadSession(userId, uploadId);
+        if (partNumber < 1 || partNumber > MAX_UPLOAD_PARTS) {
+            throw new InvalidUploadException("Part number must be between 1 and " + MAX_UPLOAD_PARTS);
+        }
+        if (size <= 0 || size > uploadProperties.getMaxPartSize().toBytes()) {
+            throw new InvalidUploadException("Part size must be between 1 and " + uploadProperties.getMaxPartSize().toBytes());
+        }
+        Path directory = uploadDirectory(session.storageUploadId());
+        Path part = directory.resolve(partNumber + PART_SUFFIX);
+        Path temporary = directory.resolve(partNumber + PART_SUFFIX + "." + UUID.randomUUID());
+        try {
+            long written;
+            try (OutputStream outputStream = Files.newOutputStream(temporary)) {
+                written = copy(inputStream, outputStream, size);
+            }
+            if (written != size) {
+                Files.deleteIfExists(temporary);
+                throw new InvalidUploadException("Part " + partNumber + " is incomplete");
+            }
+            Files.move(temporary, part, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new UploadPartResponseDto(partNumber, etag(Files.readAttributes(part, BasicFileAttributes.class)), size);
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("Upload does not exists");
+        } catch (IOException e) {
+            throw new InvalidUploadException("Can not read part " + partNumber + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public UploadSessionResponseDto getUpload(Long userId, String uploadId) {
+        UploadSession session = getUploadSession(userId, uploadId);
+        return new UploadSessionResponseDto(session.id(), session.path(), uploadProperties.getMaxPartSize().toBytes(),
+                listUploadedParts(session));
+    }
+
+    @Override
+    public ResourceInfoResponseDto completeUpload(Long userId, String uploadId) {
+        UploadSession session = getUploadSession(userId, uploadId);
+        List<UploadPartResponseDto> parts = listUploadedParts(session);
+        if (parts.isEmpty()) {
+            throw new InvalidUploadException("Upload has no parts");
+        }
+        Path target = resolve(userId, session.path());
+        if (Files.exists(target)) {
+            throw new ResourceAlreadyExistsException("Object already exists");
+        }
+        Path directory = uploadDirectory(session.storageUploadId());
+        Path assembled = directory.resolve(UUID.randomUUID().toString());
+        try {
+            try (FileChannel output = FileChannel.open(assembled, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                for (UploadPartResponseDto part : parts) {
+                    try (FileChannel input = FileChannel.open(directory.resolve(part.partNumber() + PART_SUFFIX))) {
+                        long position = 0;
+                        while (position < part.size()) {
+                            position += input.transferTo(position, part.size() - position, output);
+                        }
+                    }
+                }
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(assembled, target, StandardCopyOption.ATOMIC_MOVE);
+            deleteDirectory(directory);
+        } catch (IOException e) {
+            throw new StorageException("Can not complete upload of " + session.path() + ": " + e.getMessage());
+        }
+        uploadSessionStore.delete(session.id());
+
+        StoredObject object = toStoredObject(session.path(), readAttributes(target));
+        eventPublisher.publishEvent(new ResourcesCreatedEvent(userId, List.of(object)));
+        return createResourceInfoResponseDto(object.path(), object.size());
+    }
+
+    @Override
+    public void abortUpload(Long userId, String uploadId) {
+        UploadSession session = getUploadSession(userId, uploadId);
+        try {
+            deleteDirectory(uploadDirectory(session.storageUploadId()));
+        } catch (NoSuchFileException ignored) {
+        } catch (IOException e) {
+            throw new StorageException("Can not abort upload: " + e.getMessage());
+        }
+        uploadSessionStore.delete(session.id());
+    }
+
+    @Scheduled(fixedDelayString = "${cloudstorage.storage.upload.expiry-sweep-interval:1h}")
+    public void deleteExpiredUploads() {
+        try {
+            List<ExpiredUpload> uploads;
+            do {
+                uploads = uploadSessionStore.claimExpired(EXPIRED_UPLOAD_BATCH);
+                uploads.forEach(upload -> deleteUploadDirectoryQuietly(upload.storageUploadId()));
+            } while (uploads.size() >= EXPIRED_UPLOAD_BATCH);
+        } catch (DataAccessException e) {
+            log.warn("Can not delete expired uploads: {}", e.getMessage());
+        }
+    }
+
+    private void deleteUploadDirectoryQuietly(String storageUploadId) {
+        try {
+            deleteDirectory(uploadDirectory(storageUploadId));
+        } catch (NoSuchFileException ignored) {
+        } catch (IOException e) {
+            log.warn("Can not delete expired upload {}: {}", storageUploadId, e.getMessage());
+        }
+    }
+
+    private void ensureIndexed(Long userId) {
+        if (resourceMetadataService.isIndexed(userId)) {
+            return;
+        }
+        Path userRoot = userRoot(userId);
+        if (!Files.isDirectory(userRoot)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(userRoot)) {
+            Iterator<StoredObject> objects = files
+                    .map(file -> {
+                        BasicFileAttributes attributes = readAttributes(file);
+                        String relativePath = userRoot.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                        if (attributes.isDirectory() && !relativePath.isEmpty()) {
+                            relativePath += "/";
+                        }
+                        return toStoredObject(relativePath, attributes);
+                    })
+                    .iterator();
+            resourceMetadataService.reindex(userId, objects);
+        } catch (IOException e) {
+            throw new StorageException("Can not index files of user " + userId + ": " + e.getMessage());
+        }
+    }
+
+    private void createEmptyFolder(Long userId, String path) {
+        Path directory = resolve(userId, path);
+        if (!path.isEmpty() && Files.exists(directory)) {
+            throw new ResourceAlreadyExistsException("Object already exists");
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new StorageException("Can not create folder: " + path);
+        }
+        StoredObject folder = toStoredObject(path, readAttributes(directory));
+        eventPublisher.publishEvent(new ResourcesCreatedEvent(userId, List.of(folder)));
+    }
+
+    private void writeArchive(Path directory, OutputStream outputStream) throws IOException {
+        ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.filter(Files::isRegularFile).sorted().toList();
+        }
+        for (Path file : files) {
+            String relativePath = directory.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+            zipOutputStream.putNextEntry(new ZipEntry(relativePath));
+            Files.copy(file, zipOutputStream);
+            zipOutputStream.closeEntry();
+        }
+        zipOutputStream.finish();
+    }
+
+    private void deleteDirectory(Path directory) throws IOException {
+        deleteDirectory(directory, processed -> {
+        });
+    }
+
+    private void deleteDirectory(Path directory, LongConsumer progress) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                progress.accept(1);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                Files.delete(dir);
+                progress.accept(1);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private List<UploadPartResponseDto> listUploadedParts(UploadSession session) {
+        List<UploadPartResponseDto> parts = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(uploadDirectory(session.storageUploadId()), "*" + PART_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int partNumber = Integer.parseInt(name.substring(0, name.length() - PART_SUFFIX.length()));
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                parts.add(new UploadPartResponseDto(partNumber, etag(attributes), attributes.size()));
+            }
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("Upload does not exists");
+        } catch (IOException e) {
+            throw new StorageException(e.getMessage());
+        }
+        parts.sort(Comparator.comparingInt(UploadPartResponseDto::partNumber));
+        return parts;
+    }
+
+    private UploadSession getUploadSession(Long userId, String uploadId) {
+        return uploadSessionStore.find(userId, uploadId)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload does not exists"));
+    }
+
+    private Path getRegularFile(Long userId, String path) {
+        Path file = resolve(userId, path);
+        if (!Files.isRegularFile(file)) {
+            throw new ResourceNotFoundException("Object does not exists");
+        }
+        return file;
+    }
+
+    private BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("Object does not exists");
+        } catch (IOException e) {
+            throw new StorageException(e.getMessage());
+        }
+    }
+
+    private long copy(InputStream inputStream, OutputStream outputStream, long size) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long copied = 0;
+        while (copied < size) {
+            int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, size - copied));
+            if (read < 0) {
+                break;
+            }
+            outputStream.write(buffer, 0, read);
+            copied += read;
+        }
+        return copied;
+    }
+
+    private StoredObject toStoredObject(String path, BasicFileAttributes attributes) {
+        long size = attributes.isDirectory() ? 0 : attributes.size();
+        return new StoredObject(path, size, etag(attributes), attributes.lastModifiedTime().toInstant());
+    }
+
+    private String etag(BasicFileAttributes attributes) {
+        return Long.toHexString(attributes.lastModifiedTime().toMillis()) + "-" + Long.toHexString(attributes.size());
+    }
+
+    private Path userRoot(Long userId) {
+        return localStorageProperties.getRoot().toAbsolutePath().normalize().resolve(StoragePath.userPrefix(userId));
+    }
+
+    private Path uploadDirectory(String storageUploadId) {
+        return localStorageProperties.getRoot().toAbsolutePath().normalize().resolve(UPLOADS_DIRECTORY).resolve(storageUploadId);
+    }
+
+    private Path resolve(Long userId, String path) {
+        Path userRoot = userRoot(userId);
+        Path resolved = userRoot.resolve(path).normalize();
+        if (!resolved.startsWith(userRoot)) {
+            throw new InvalidResourcePathException("Path leaves the user directory: " + path);
+        }
+        return resolved;
+    }
+}
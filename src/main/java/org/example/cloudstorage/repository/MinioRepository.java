@@ -2,232 +2,704 @@ package org.example.cloudstorage.repository;
 
 import io.minio.CopyObjectArgs;
 import io.minio.CopySource;
+import io.minio.CreateMultipartUploadResponse;
 import io.minio.GetObjectArgs;
 import io.minio.ListObjectsArgs;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
+import io.minio.ObjectWriteResponse;
 import io.minio.PutObjectArgs;
 import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
 import io.minio.Result;
 import io.minio.SnowballObject;
 import io.minio.StatObjectArgs;
 import io.minio.StatObjectResponse;
+import io.minio.UploadPartResponse;
 import io.minio.UploadSnowballObjectsArgs;
 import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
+import io.minio.messages.ListPartsResult;
+import io.minio.messages.Part;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.cloudstorage.config.DedupProperties;
 import org.example.cloudstorage.config.MinioProperties;
+import org.example.cloudstorage.config.UploadProperties;
 import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.dto.response.storage.UploadPartResponseDto;
+import org.example.cloudstorage.dto.response.storage.UploadSessionResponseDto;
+import org.example.cloudstorage.exception.InvalidUploadException;
 import org.example.cloudstorage.exception.ResourceAlreadyExistsException;
 import org.example.cloudstorage.exception.ResourceNotFoundException;
 import org.example.cloudstorage.exception.StorageException;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
-import org.springframework.core.io.ByteArrayResource;
+import org.example.cloudstorage.service.BlobObject;
+import org.example.cloudstorage.service.BlobService;
+import org.example.cloudstorage.service.DirectoryCursor;
+import org.example.cloudstorage.service.DirectoryListingCache;
+import org.example.cloudstorage.service.DirectoryPage;
+import org.example.cloudstorage.service.ExistenceFilter;
+import org.example.cloudstorage.service.ExpiredUpload;
+import org.example.cloudstorage.service.ResourceDeletedEvent;
+import org.example.cloudstorage.service.ResourceMetadataService;
+import org.example.cloudstorage.service.ResourceMovedEvent;
+import org.example.cloudstorage.service.ResourcesCreatedEvent;
+import org.example.cloudstorage.service.StoragePath;
+import org.example.cloudstorage.service.StoredObject;
+import org.example.cloudstorage.service.UploadSession;
+import org.example.cloudstorage.service.UploadSessionStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
+import static org.example.cloudstorage.repository.ResourceInfoResponses.createResourceInfoResponseDto;
+
+@Slf4j
 @Repository
 @RequiredArgsConstructor
-@ConditionalOnBean(MinioClient.class)
+@ConditionalOnProperty(prefix = "cloudstorage.storage", name = "backend", havingValue = "minio", matchIfMissing = true)
 public class MinioRepository implements FileStorageRepository {
 
-    private static final String USER_PREFIX_FORMAT = "user-${%d}-files/";
-    private static final String RESPONSE_TYPE_DIRECTORY = "DIRECTORY";
-    private static final String RESPONSE_TYPE_FILE = "FILE";
     private static final boolean RECURSIVE = true;
-    private static final boolean NON_RECURSIVE = false;
+    private static final int MAX_UPLOAD_PARTS = 10000;
+    private static final int MAX_LIST_PARTS = 1000;
+    private static final int EXPIRED_UPLOAD_BATCH = 100;
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final String NO_SUCH_UPLOAD = "NoSuchUpload";
+    private static final String BLOB_PREFIX = "blobs/";
+    private static final String OBJECT_PREFIX = "objects/";
 
     private final MinioClient minioClient;
+    private final MinioAsyncClient minioAsyncClient;
     private final MinioProperties minioProperties;
+    private final ExecutorService minioTaskExecutor;
+    private final ResourceMetadataService resourceMetadataService;
+    private final DirectoryListingCache directoryListingCache;
+    private final ExistenceFilter existenceFilter;
+    private final UploadSessionStore uploadSessionStore;
+    private final UploadProperties uploadProperties;
+    private final StorageMetrics storageMetrics;
+    private final BlobService blobService;
+    private final DedupProperties dedupProperties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<Long> migratedUsers = ConcurrentHashMap.newKeySet();
 
     @Override
     public void createDefaultUserDirectory(Long userId) {
-        String path = formatUserPrefix(userId);
-        createEmptyFolder(path);
+        createEmptyFolder(userId, "");
     }
 
     @Override
     public List<ResourceInfoResponseDto> save(Long userId, String filename, List<MultipartFile> files) {
-        String fullPath = formatPath(userId, filename);
-        List<SnowballObject> objects = new ArrayList<>();
-
+        ensureIndexed(userId);
         for (MultipartFile file : files) {
-            if (checkIfObjectExists(fullPath + file.getOriginalFilename())) {
+            StoragePath.validate(filename + file.getOriginalFilename());
+            if (checkIfObjectExists(userId, filename + file.getOriginalFilename())) {
                 throw new ResourceAlreadyExistsException("Object already exists");
             }
-            try {
-                objects.add(new SnowballObject(
-                        fullPath + file.getOriginalFilename(),
-                        file.getInputStream(),
-                        file.getSize(),
-                        ZonedDateTime.now()));
-            } catch (Exception e) {
-                throw new StorageException(e.getMessage());
+        }
+
+        List<StoredObject> storedObjects = dedupProperties.isEnabled()
+                ? saveBlobs(userId, filename, files)
+                : saveObjects(userId, filename, files);
+        publishCreated(userId, storedObjects);
+        return storedObjects.stream()
+                .map(object -> createResourceInfoResponseDto(object.path(), object.size()))
+                .toList();
+    }
+
+    // every file is uploaded under a key of its own that never changes, the user path only points to it
+    private List<StoredObject> saveObjects(Long userId, String directory, List<MultipartFile> files) {
+        long snowballThreshold = minioProperties.getSnowballThreshold().toBytes();
+        List<SnowballObject> objects = new ArrayList<>();
+        List<PendingObject> pending = new ArrayList<>();
+        List<StoredObject> storedObjects = new ArrayList<>();
+        long snowballSize = 0;
+        try {
+            for (MultipartFile file : files) {
+                // the key is unique and the object immutable, so its id is a strong etag
+                String etag = UUID.randomUUID().toString();
+                String objectKey = OBJECT_PREFIX + etag;
+                pending.add(new PendingObject(directory + file.getOriginalFilename(), objectKey, etag, file.getSize()));
+                if (file.getSize() > snowballThreshold) {
+                    try (InputStream inputStream = file.getInputStream()) {
+                        uploadMultipart(objectKey, inputStream, file.getSize());
+                    }
+                } else {
+                    objects.add(new SnowballObject(objectKey, file.getInputStream(), file.getSize(), ZonedDateTime.now()));
+                    snowballSize += file.getSize();
+                }
+            }
+            if (!objects.isEmpty()) {
+                uploadSnowballObjects(objects, snowballSize);
+            }
+            for (PendingObject object : pending) {
+                blobService.linkObject(userId, object.path(), object.objectKey(), object.size(), object.etag());
+                storedObjects.add(new StoredObject(object.path(), object.size(), object.etag(), Instant.now()));
+            }
+        } catch (IOException | RuntimeException e) {
+            storedObjects.forEach(object -> blobService.unlink(userId, object.path()));
+            pending.forEach(object -> removeObjectQuietly(object.objectKey()));
+            throw e instanceof RuntimeException runtimeException ? runtimeException : new StorageException(e.getMessage());
+        }
+        return storedObjects;
+    }
+
+    // content that is already stored is only linked, new content is uploaded once under its hash
+    private List<StoredObject> saveBlobs(Long userId, String directory, List<MultipartFile> files) {
+        long snowballThreshold = minioProperties.getSnowballThreshold().toBytes();
+        List<SnowballObject> objects = new ArrayList<>();
+        List<PendingBlob> pending = new ArrayList<>();
+        Map<String, String> uploadedKeys = new HashMap<>();
+        Set<String> linkedKeys = new HashSet<>();
+        List<StoredObject> storedObjects = new ArrayList<>();
+        long snowballSize = 0;
+        try {
+            for (MultipartFile file : files) {
+                String path = directory + file.getOriginalFilename();
+                String hash = sha256(file);
+                if (!uploadedKeys.containsKey(hash) && blobService.link(userId, path, hash).isPresent()) {
+                    storedObjects.add(new StoredObject(path, file.getSize(), hash, Instant.now()));
+                    continue;
+                }
+                if (!uploadedKeys.containsKey(hash)) {
+                    String objectKey = BLOB_PREFIX + hash + "/" + UUID.randomUUID();
+                    if (file.getSize() > snowballThreshold) {
+                        try (InputStream inputStream = file.getInputStream()) {
+                            uploadMultipart(objectKey, inputStream, file.getSize());
+                        }
+                    } else {
+                        objects.add(new SnowballObject(objectKey, file.getInputStream(), file.getSize(), ZonedDateTime.now()));
+                        snowballSize += file.getSize();
+                    }
+                    uploadedKeys.put(hash, objectKey);
+                }
+                pending.add(new PendingBlob(path, hash, uploadedKeys.get(hash), file.getSize()));
+            }
+            if (!objects.isEmpty()) {
+                uploadSnowballObjects(objects, snowballSize);
+            }
+            for (PendingBlob blob : pending) {
+                String objectKey = blobService.link(userId, blob.path(), blob.hash(), blob.objectKey(), blob.size());
+                linkedKeys.add(objectKey);
+                if (!objectKey.equals(blob.objectKey()) && uploadedKeys.remove(blob.hash(), blob.objectKey())) {
+                    // the same content was stored concurrently by another save
+                    removeObject(blob.objectKey());
+                }
+                storedObjects.add(new StoredObject(blob.path(), blob.size(), blob.hash(), Instant.now()));
             }
+        } catch (IOException | RuntimeException e) {
+            storedObjects.forEach(object -> blobService.unlink(userId, object.path()));
+            uploadedKeys.values().stream()
+                    .filter(objectKey -> !linkedKeys.contains(objectKey))
+                    .forEach(this::removeObjectQuietly);
+            throw e instanceof RuntimeException runtimeException ? runtimeException : new StorageException(e.getMessage());
         }
-        uploadSnowballObjects(objects);
-        return getInfoForSnowballObjects(objects);
+        return storedObjects;
     }
 
     @Override
-    public void delete(Long userId, String filename) {
+    public void delete(Long userId, String filename, LongConsumer progress) {
+        ensureIndexed(userId);
         String fullPath = formatPath(userId, filename);
         if (isDirectory(fullPath)) {
-            deleteDirectory(fullPath);
+            progress.accept(blobService.unlink(userId, filename));
+        } else {
+            if (blobService.unlink(userId, filename) == 0) {
+                removeObject(fullPath);
+            }
+            progress.accept(1);
         }
-        removeObject(fullPath);
+        eventPublisher.publishEvent(new ResourceDeletedEvent(userId, filename));
     }
 
     @Override
     public Resource get(Long userId, String path) {
-        String fullPath = formatPath(userId, path);
-        if (isDirectory(fullPath)) {
-            try {
-                return getDirectory(fullPath);
-            } catch (ResourceNotFoundException e) {
-                throw new ResourceNotFoundException(e.getMessage());
-            } catch (Exception e) {
-                throw new StorageException(e.getMessage());
-            }
+        return new InputStreamResource(getFile(objectKey(userId, path)));
+    }
+
+    @Override
+    public Resource get(Long userId, String path, long offset, long length) {
+        return new InputStreamResource(getFile(objectKey(userId, path), offset, length));
+    }
+
+    @Override
+    public StoredObject stat(Long userId, String path) {
+        Optional<BlobObject> blob = blobService.find(userId, path);
+        if (blob.isPresent()) {
+            return new StoredObject(path, blob.get().size(), blob.get().etag(), blob.get().createdAt());
+        }
+        StatObjectResponse stat = getStat(formatPath(userId, path));
+        return new StoredObject(path, stat.size(), normalizeEtag(stat.etag()), stat.lastModified().toInstant());
+    }
+
+    @Override
+    public StreamingResponseBody getArchive(Long userId, String path) {
+        ensureIndexed(userId);
+        if (!checkIfObjectExists(userId, path)) {
+            throw new ResourceNotFoundException("Object does not exists");
         }
-        return new InputStreamResource(getFile(fullPath));
+        return outputStream -> writeArchive(userId, path, outputStream);
     }
 
     @Override
     public ResourceInfoResponseDto getInfo(Long userId, String path) {
-        String fullPath = formatPath(userId, path);
-        StatObjectResponse stat = getStat(fullPath);
-        return createResourceInfoResponseDto(path, stat.size());
+        ensureIndexed(userId);
+        return resourceMetadataService.getInfo(userId, path)
+                .orElseThrow(() -> new ResourceNotFoundException("Object does not exists"));
     }
 
     @Override
-    public ResourceInfoResponseDto rename(Long userId, String oldPath, String newPath) {
-        ResourceInfoResponseDto responseDto;
-        String oldFullPath = formatPath(userId, oldPath);
-        if (!checkIfObjectExists(oldFullPath)) {
+    public ResourceInfoResponseDto rename(Long userId, String oldPath, String newPath, LongConsumer progress) {
+        ensureIndexed(userId);
+        if (!checkIfObjectExists(userId, oldPath)) {
             throw new ResourceNotFoundException("Object does not exists");
         }
-        String newFullPath = formatPath(userId, newPath);
-        if (isDirectory(oldFullPath)) {
-            copyDirectory(oldFullPath, newFullPath);
-            deleteDirectory(oldFullPath);
-            responseDto = createResourceInfoResponseDto(newPath);
-        } else {
-            if (checkIfObjectExists(newFullPath)) {
-                throw new ResourceAlreadyExistsException("Object already exists");
-            }
-            copyObject(oldFullPath, newFullPath);
-            responseDto = getInfo(userId, newPath);
+        if (checkIfObjectExists(userId, newPath)) {
+            throw new ResourceAlreadyExistsException("Object already exists");
         }
-        removeObject(oldFullPath);
-        return responseDto;
+        // files point to immutable object keys and directories are rows of the metadata index, so nothing in the
+        // bucket moves: the mappings and the index move in one transaction, however many files the subtree holds;
+        // the caches and the search index listen for the move after commit, so they never see a rolled back one
+        Long movedFiles = transactionTemplate.execute(status -> {
+            long files = blobService.move(userId, oldPath, newPath);
+            eventPublisher.publishEvent(new ResourceMovedEvent(userId, oldPath, newPath));
+            return files;
+        });
+        progress.accept(2 * movedFiles);
+        return getInfo(userId, newPath);
     }
 
     @Override
-    public List<ResourceInfoResponseDto> search(Long userId, String path) {
-        String responsePath;
-        Set<ResourceInfoResponseDto> resultSet = new HashSet<>();
-        String userDirectory = formatUserPrefix(userId);
-        Iterable<Result<Item>> resources = getListFiles(userDirectory, RECURSIVE);
-        for (Result<Item> resultItem : resources) {
-            try {
-                Item item = resultItem.get();
-                String itemName = removeUserPrefix(item.objectName());
-                String objectName = extractName(itemName);
-                String objectPath = extractPath(itemName);
-                if (objectName.toLowerCase().contains(path.toLowerCase()) && !isDirectory(objectName)) {
-                    responsePath = removeUserPrefix(item.objectName());
-                    long responseSize = item.size();
-                    ResourceInfoResponseDto responseDto = createResourceInfoResponseDto(responsePath, responseSize);
-                    resultSet.add(responseDto);
-                }
-                if (objectPath.toLowerCase().contains(path.toLowerCase()) && isDirectory(objectPath)) {
-                    ResourceInfoResponseDto responseDto = createResourceInfoResponseDto(objectPath);
-                    resultSet.add(responseDto);
-                }
-            } catch (Exception e) {
-                throw new StorageException(e.getMessage());
-            }
+    public long countObjects(Long userId, String path) {
+        ensureIndexed(userId);
+        return resourceMetadataService.count(userId, path);
+    }
+
+    // lists the bucket instead of the metadata index, the result is used to reconcile the quota counters
+    @Override
+    public long usedBytes(Long userId) {
+        long bytes = blobService.usedBytes(userId);
+        for (Result<Item> result : getListFiles(StoragePath.userPrefix(userId), RECURSIVE)) {
+            bytes += getItem(result).size();
         }
-        return new ArrayList<>(resultSet);
+        return bytes;
+    }
+
+    @Override
+    public List<ResourceInfoResponseDto> search(Long userId, String path) {
+        ensureIndexed(userId);
+        return resourceMetadataService.search(userId, path);
+    }
+
+    @Override
+    public void search(Long userId, String query, long limit, Consumer<ResourceInfoResponseDto> consumer) {
+        ensureIndexed(userId);
+        resourceMetadataService.search(userId, query, limit, consumer);
     }
 
     @Override
     public ResourceInfoResponseDto createEmptyDirectory(Long userId, String path) {
-        String fullPath = formatPath(userId, path);
-        createEmptyFolder(fullPath);
+        ensureIndexed(userId);
+        createEmptyFolder(userId, path);
         return getInfo(userId, path);
     }
 
     @Override
     public List<ResourceInfoResponseDto> getDirectoryContentInfo(Long userId, String path) {
-        List<ResourceInfoResponseDto> resultList = new ArrayList<>();
-        String fullPath = formatPath(userId, path);
-        if (!checkIfObjectExists(fullPath)) {
+        ensureIndexed(userId);
+        return directoryListingCache.get(userId, path, () -> {
+            if (!checkIfObjectExists(userId, path)) {
+                throw new ResourceNotFoundException("Object does not exists");
+            }
+            return resourceMetadataService.getDirectoryContent(userId, path);
+        });
+    }
+
+    @Override
+    public DirectoryPage getDirectoryContentPage(Long userId, String path, String cursor, int limit) {
+        DirectoryCursor after = cursor != null ? DirectoryCursor.decode(cursor) : null;
+        ensureIndexed(userId);
+        if (!checkIfObjectExists(userId, path)) {
             throw new ResourceNotFoundException("Object does not exists");
         }
-        Iterable<Result<Item>> contentList = getListFiles(fullPath, NON_RECURSIVE);
+        return resourceMetadataService.getDirectoryContent(userId, path, after, limit);
+    }
+
+    @Override
+    public UploadSessionResponseDto startUpload(Long userId, String path) {
+        ensureIndexed(userId);
+        if (path.isEmpty() || isDirectory(path)) {
+            throw new InvalidUploadException("Upload path must point to a file");
+        }
+        if (checkIfObjectExists(userId, path)) {
+            throw new ResourceAlreadyExistsException("Object already exists");
+        }
+        String objectKey = OBJECT_PREFIX + UUID.randomUUID();
+        CreateMultipartUploadResponse response = await("createMultipartUpload", () -> minioAsyncClient.createMultipartUploadAsync(
+                minioProperties.getBucket(), null, objectKey, null, null));
+        UploadSession session = uploadSessionStore.create(userId, path, response.result().uploadId(), objectKey);
+        return new UploadSessionResponseDto(session.id(), path, uploadProperties.getMaxPartSize().toBytes(), List.of());
+    }
 
-        for (Result<Item> item : contentList) {
+    @Override
+    public UploadPartResponseDto uploadPart(Long userId, String uploadId, int partNumber, InputStream inputStream, long size) {
+        UploadSession session = getUploadSession(userId, uploadId);
+        if (partNumber < 1 || partNumber > MAX_UPLOAD_PARTS) {
+            throw new InvalidUploadException("Part number must be between 1 and " + MAX_UPLOAD_PARTS);
+        }
+        if (size <= 0 || size > uploadProperties.getMaxPartSize().toBytes()) {
+            throw new InvalidUploadException("Part size must be between 1 and " + uploadProperties.getMaxPartSize().toBytes());
+        }
+        // the request body goes to the client as is, it reads exactly size bytes
+        UploadPartResponse response = await("uploadPart", () -> {
             try {
-                Item resource = item.get();
-                String objectName = resource.objectName();
-                if (objectName.equals(fullPath)) {
-                    continue;
-                }
-                String responsePath = removeUserPrefix(objectName);
-                long responseSize = resource.size();
-                resultList.add(
-                        createResourceInfoResponseDto(responsePath, responseSize)
-                );
-            } catch (Exception e) {
-                throw new StorageException(e.getMessage());
+                return minioAsyncClient.uploadPartAsync(minioProperties.getBucket(), null, uploadObjectKey(userId, session),
+                        inputStream, size, session.storageUploadId(), partNumber, null, null);
+            } catch (InsufficientDataException e) {
+                throw new InvalidUploadException("Part " + partNumber + " is incomplete");
+            } catch (IOException e) {
+                throw new InvalidUploadException("Can not read part " + partNumber + ": " + e.getMessage());
+            }
+        });
+        storageMetrics.recordUpload(size);
+        return new UploadPartResponseDto(partNumber, normalizeEtag(response.etag()), size);
+    }
+
+    @Override
+    public UploadSessionResponseDto getUpload(Long userId, String uploadId) {
+        UploadSession session = getUploadSession(userId, uploadId);
+        List<UploadPartResponseDto> parts = listUploadedParts(userId, session).stream()
+                .map(part -> new UploadPartResponseDto(part.partNumber(), normalizeEtag(part.etag()), part.partSize()))
+                .toList();
+        return new UploadSessionResponseDto(session.id(), session.path(), uploadProperties.getMaxPartSize().toBytes(), parts);
+    }
+
+    @Override
+    public ResourceInfoResponseDto completeUpload(Long userId, String uploadId) {
+        UploadSession session = getUploadSession(userId, uploadId);
+        List<Part> parts = listUploadedParts(userId, session);
+        if (parts.isEmpty()) {
+            throw new InvalidUploadException("Upload has no parts");
+        }
+        for (Part part : parts.subList(0, parts.size() - 1)) {
+            if (part.partSize() < MIN_PART_SIZE) {
+                throw new InvalidUploadException("Part " + part.partNumber() + " is smaller than " + MIN_PART_SIZE
+                        + " bytes, only the last part may be");
             }
         }
-        return resultList;
+        if (checkIfObjectExists(userId, session.path())) {
+            throw new ResourceAlreadyExistsException("Object already exists");
+        }
+        Part[] completedParts = parts.stream()
+                .map(part -> new Part(part.partNumber(), part.etag()))
+                .toArray(Part[]::new);
+        ObjectWriteResponse response = await("completeMultipartUpload", () -> minioAsyncClient.completeMultipartUploadAsync(minioProperties.getBucket(),
+                null, uploadObjectKey(userId, session), session.storageUploadId(), completedParts, null, null));
+        uploadSessionStore.delete(session.id());
+
+        long size = parts.stream().mapToLong(Part::partSize).sum();
+        StoredObject object = new StoredObject(session.path(), size, normalizeEtag(response.etag()), Instant.now());
+        if (session.objectKey() != null) {
+            try {
+                blobService.linkObject(userId, object.path(), session.objectKey(), object.size(), object.etag());
+            } catch (RuntimeException e) {
+                removeObjectQuietly(session.objectKey());
+                throw e;
+            }
+        }
+        publishCreated(userId, List.of(object));
+        return createResourceInfoResponseDto(object.path(), object.size());
     }
 
-    private boolean checkIfObjectExists(String path) {
-        Iterable<Result<Item>> results = minioClient.listObjects(ListObjectsArgs.builder()
-                .bucket(minioProperties.getBucket())
-                .prefix(path)
-                .build());
-        return results.iterator().hasNext();
+    @Override
+    public void abortUpload(Long userId, String uploadId) {
+        UploadSession session = getUploadSession(userId, uploadId);
+        await("abortMultipartUpload", () -> minioAsyncClient.abortMultipartUploadAsync(minioProperties.getBucket(), null,
+                uploadObjectKey(userId, session), session.storageUploadId(), null, null));
+        uploadSessionStore.delete(session.id());
+    }
+
+    // stored objects that can not be indexed are removed again, a later save would overwrite them unseen
+    private void publishCreated(Long userId, List<StoredObject> objects) {
+        try {
+            eventPublisher.publishEvent(new ResourcesCreatedEvent(userId, objects));
+        } catch (RuntimeException e) {
+            objects.forEach(object -> discard(userId, object.path()));
+            throw e;
+        }
+    }
+
+    private void discard(Long userId, String path) {
+        try {
+            if (!path.isEmpty() && !isDirectory(path) && blobService.unlink(userId, path) == 0) {
+                removeObject(formatPath(userId, path));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Can not remove unindexed object {} of user {}: {}", path, userId, e.getMessage());
+        }
+    }
+
+    private boolean checkIfObjectExists(Long userId, String path) {
+        return existenceFilter.exists(userId, path, () -> resourceMetadataService.exists(userId, path));
+    }
+
+    private void ensureIndexed(Long userId) {
+        if (!resourceMetadataService.isIndexed(userId)) {
+            reindex(userId);
+        }
+        if (!migratedUsers.contains(userId)) {
+            migrateLegacyObjects(userId);
+        }
+    }
+
+    private void reindex(Long userId) {
+        Stream<StoredObject> objects = StreamSupport.stream(getListFiles(StoragePath.userPrefix(userId), RECURSIVE).spliterator(), false)
+                .map(this::getItem)
+                .map(item -> new StoredObject(removeUserPrefix(item.objectName()), item.size(),
+                        normalizeEtag(item.etag()), item.lastModified().toInstant()));
+        Stream<StoredObject> blobs = blobService.findSubtree(userId, "")
+                .map(blob -> new StoredObject(blob.path(), blob.size(), blob.etag(), blob.createdAt()));
+        resourceMetadataService.reindex(userId, Stream.concat(objects, blobs).iterator());
+        existenceFilter.reset(userId);
+    }
+
+    // files stored under the user prefix before every file was mapped to an object key of its own, and the marker
+    // objects that used to stand for directories, leave the prefix once the index knows them; a run that fails
+    // half way is repeated on the next access and skips the files it already mapped
+    private void migrateLegacyObjects(Long userId) {
+        String prefix = StoragePath.userPrefix(userId);
+        Iterator<Item> files = StreamSupport.stream(getListFiles(prefix, RECURSIVE).spliterator(), false)
+                .map(this::getItem)
+                .filter(item -> !isDirectory(item.objectName()))
+                .iterator();
+        ParallelTasks.forEach(files, item -> migrateLegacyFile(userId, item), minioTaskExecutor,
+                minioProperties.getCopyConcurrency());
+        deleteDirectory(prefix);
+        migratedUsers.add(userId);
+    }
+
+    private void migrateLegacyFile(Long userId, Item item) {
+        String path = removeUserPrefix(item.objectName());
+        if (blobService.find(userId, path).isPresent()) {
+            return;
+        }
+        String objectKey = OBJECT_PREFIX + UUID.randomUUID();
+        copyObject(item.objectName(), objectKey);
+        try {
+            blobService.linkObject(userId, path, objectKey, item.size(), normalizeEtag(item.etag()));
+        } catch (DataIntegrityViolationException e) {
+            // another node mapped the file first
+            removeObjectQuietly(objectKey);
+        }
+    }
+
+    private String objectKey(Long userId, String path) {
+        return blobService.find(userId, path)
+                .map(BlobObject::objectKey)
+                .orElseGet(() -> formatPath(userId, path));
+    }
+
+    private String sha256(MultipartFile file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    @Scheduled(fixedDelayString = "${cloudstorage.storage.dedup.gc-interval:1h}")
+    public void collectBlobGarbage() {
+        try {
+            List<String> objectKeys;
+            do {
+                objectKeys = blobService.collectGarbage();
+                objectKeys.forEach(this::removeObjectQuietly);
+            } while (objectKeys.size() >= dedupProperties.getGcBatchSize());
+        } catch (DataAccessException e) {
+            log.warn("Can not collect unreferenced blobs: {}", e.getMessage());
+        }
+    }
+
+    // sessions started before uploads were mapped write to the user path
+    private String uploadObjectKey(Long userId, UploadSession session) {
+        return session.objectKey() != null ? session.objectKey() : formatPath(userId, session.path());
+    }
+
+    @Scheduled(fixedDelayString = "${cloudstorage.storage.upload.expiry-sweep-interval:1h}")
+    public void abortExpiredUploads() {
+        try {
+            List<ExpiredUpload> uploads;
+            do {
+                uploads = uploadSessionStore.claimExpired(EXPIRED_UPLOAD_BATCH);
+                uploads.forEach(upload -> abortMultipartQuietly(upload.objectKey(), upload.storageUploadId()));
+            } while (uploads.size() >= EXPIRED_UPLOAD_BATCH);
+        } catch (DataAccessException e) {
+            log.warn("Can not abort expired uploads: {}", e.getMessage());
+        }
+    }
+
+    private UploadSession getUploadSession(Long userId, String uploadId) {
+        return uploadSessionStore.find(userId, uploadId)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload does not exists"));
+    }
+
+    private List<Part> listUploadedParts(Long userId, UploadSession session) {
+        List<Part> parts = new ArrayList<>();
+        int partNumberMarker = 0;
+        ListPartsResult result;
+        do {
+            int marker = partNumberMarker;
+            result = await("listParts", () -> minioAsyncClient.listPartsAsync(minioProperties.getBucket(), null,
+                    uploadObjectKey(userId, session), MAX_LIST_PARTS, marker, session.storageUploadId(), null, null)).result();
+            parts.addAll(result.partList());
+            partNumberMarker = result.nextPartNumberMarker();
+        } while (result.isTruncated());
+        return parts;
+    }
+
+    private <T> T await(String operation, AsyncCall<T> call) {
+        return await(() -> storageMetrics.recordAsync(operation, call.execute()));
+    }
+
+    private <T> T await(AsyncCall<T> call) {
+        try {
+            return call.execute().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ErrorResponseException errorResponse
+                    && NO_SUCH_UPLOAD.equals(errorResponse.errorResponse().code())) {
+                throw new ResourceNotFoundException(errorResponse.getMessage());
+            }
+            throw new StorageException(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        } catch (InvalidUploadException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new StorageException(e.getMessage());
+        }
     }
 
-    private void uploadSnowballObjects(List<SnowballObject> objects) {
+    private void uploadSnowballObjects(List<SnowballObject> objects, long size) {
         try {
-            minioClient.uploadSnowballObjects(UploadSnowballObjectsArgs.builder()
+            storageMetrics.record("uploadSnowballObjects", () -> minioClient.uploadSnowballObjects(UploadSnowballObjectsArgs.builder()
                     .bucket(minioProperties.getBucket())
                     .objects(objects)
-                    .build());
+                    .compression(minioProperties.isSnowballCompression())
+                    .build()));
         } catch (Exception e) {
             throw new StorageException(e.getMessage());
         }
+        storageMetrics.recordUpload(size);
+    }
+
+    private void uploadMultipart(String objectName, InputStream inputStream, long size) {
+        String bucket = minioProperties.getBucket();
+        long partSize = Math.max(minioProperties.getMultipartPartSize().toBytes(), MIN_PART_SIZE);
+        partSize = Math.max(partSize, (size + MAX_UPLOAD_PARTS - 1) / MAX_UPLOAD_PARTS);
+        int concurrency = Math.max(minioProperties.getMultipartConcurrency(), 1);
+        String uploadId = await("createMultipartUpload", () -> minioAsyncClient.createMultipartUploadAsync(bucket, null, objectName, null, null))
+                .result().uploadId();
+
+        Deque<CompletableFuture<UploadPartResponse>> inFlight = new ArrayDeque<>();
+        List<Part> parts = new ArrayList<>();
+        try {
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize, partNumber++) {
+                byte[] data = inputStream.readNBytes((int) Math.min(partSize, size - offset));
+                if (data.length == 0) {
+                    throw new StorageException("Unexpected end of " + objectName);
+                }
+                if (inFlight.size() >= concurrency) {
+                    parts.add(toPart(await(inFlight::poll)));
+                }
+                inFlight.add(storageMetrics.recordAsync("uploadPart", minioAsyncClient.uploadPartAsync(bucket, null,
+                        objectName, data, data.length, uploadId, partNumber, null, null)));
+            }
+            while (!inFlight.isEmpty()) {
+                parts.add(toPart(await(inFlight::poll)));
+            }
+            Part[] completedParts = parts.toArray(Part[]::new);
+            await("completeMultipartUpload", () -> minioAsyncClient.completeMultipartUploadAsync(bucket, null,
+                    objectName, uploadId, completedParts, null, null));
+        } catch (Exception e) {
+            inFlight.forEach(future -> future.cancel(true));
+            abortMultipartQuietly(objectName, uploadId);
+            if (e instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new StorageException(e.getMessage());
+        }
+        storageMetrics.recordUpload(size);
+    }
+
+    private Part toPart(UploadPartResponse response) {
+        return new Part(response.partNumber(), response.etag());
+    }
+
+    private void abortMultipartQuietly(String objectName, String uploadId) {
+        try {
+            storageMetrics.recordAsync("abortMultipartUpload", minioAsyncClient.abortMultipartUploadAsync(
+                    minioProperties.getBucket(), null, objectName, uploadId, null, null)).join();
+        } catch (Exception e) {
+            log.warn("Can not abort multipart upload {} of {}: {}", uploadId, objectName, e.getMessage());
+        }
     }
 
     private InputStream getFile(String objectName) {
         try {
-            return minioClient.getObject(
+            return storageMetrics.recordDownload(storageMetrics.record("getObject", () -> minioClient.getObject(
                     GetObjectArgs.builder()
                             .bucket(minioProperties.getBucket())
                             .object(objectName)
-                            .build());
+                            .build())));
         } catch (ErrorResponseException e) {
             throw new ResourceNotFoundException(e.getMessage());
         } catch (Exception e) {
@@ -235,84 +707,83 @@ public class MinioRepository implements FileStorageRepository {
         }
     }
 
-    private Resource getDirectory(String directoryPath) throws Exception {
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        ZipOutputStream zipOutputStream = new ZipOutputStream(byteArrayOutputStream);
-        Iterable<Result<Item>> objects = getListFiles(directoryPath, RECURSIVE);
-        if (!objects.iterator().hasNext()) {
-            throw new ResourceNotFoundException("Object does not exists");
+    private InputStream getFile(String objectName, long offset, long length) {
+        try {
+            return storageMetrics.recordDownload(storageMetrics.record("getObject", () -> minioClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(minioProperties.getBucket())
+                            .object(objectName)
+                            .offset(offset)
+                            .length(length)
+                            .build())));
+        } catch (ErrorResponseException e) {
+            throw new ResourceNotFoundException(e.getMessage());
+        } catch (Exception e) {
+            throw new StorageException(e.getMessage());
         }
-        for (Result<Item> item : objects) {
-            String objectName = item.get().objectName();
-
-            if (objectName.equals(directoryPath) || isDirectory(objectName))
-                continue;
-
-            try (InputStream inputStream = getFile(objectName)) {
-                String relativePath = objectName.substring(directoryPath.length());
-                ZipEntry zipEntry = new ZipEntry(relativePath);
-                zipOutputStream.putNextEntry(zipEntry);
+    }
 
-                byte[] buffer = new byte[1024];
-                int length;
-                while ((length = inputStream.read(buffer)) > 0) {
-                    zipOutputStream.write(buffer, 0, length);
+    private void writeArchive(Long userId, String path, OutputStream outputStream) throws IOException {
+        String directoryPath = formatPath(userId, path);
+        StorageMetrics.ArchiveOutputStream archiveOutputStream = storageMetrics.recordArchive(outputStream);
+        ZipOutputStream zipOutputStream = new ZipOutputStream(archiveOutputStream);
+        Iterator<ObjectPrefetcher.Source> files = blobService.findSubtree(userId, path)
+                .map(blob -> new ObjectPrefetcher.Source(formatPath(userId, blob.path()), blob.objectKey(), blob.size()))
+                .iterator();
+        try (ObjectPrefetcher prefetcher = new ObjectPrefetcher(files, this::getFile, minioTaskExecutor,
+                minioProperties.getArchivePrefetchDepth(), minioProperties.getArchivePrefetchMemoryCap().toBytes())) {
+            while (prefetcher.hasNext()) {
+                try (ObjectPrefetcher.PrefetchedObject object = prefetcher.next()) {
+                    String relativePath = object.name().substring(directoryPath.length());
+                    zipOutputStream.putNextEntry(new ZipEntry(relativePath));
+                    object.inputStream().transferTo(zipOutputStream);
+                    zipOutputStream.closeEntry();
                 }
-                zipOutputStream.closeEntry();
             }
         }
         zipOutputStream.finish();
-        return new ByteArrayResource(byteArrayOutputStream.toByteArray());
+        archiveOutputStream.complete();
     }
 
     private void copyObject(String objectName, String newObjectName) throws RuntimeException {
         try {
-            minioClient.copyObject(CopyObjectArgs.builder()
+            storageMetrics.record("copyObject", () -> minioClient.copyObject(CopyObjectArgs.builder()
                     .bucket(minioProperties.getBucket())
                     .object(newObjectName)
                     .source(CopySource.builder()
                             .bucket(minioProperties.getBucket())
                             .object(objectName)
                             .build())
-                    .build());
+                    .build()));
         } catch (Exception e) {
             throw new StorageException("Can not copy file " + objectName + " to " + newObjectName);
         }
     }
 
     private Iterable<Result<Item>> getListFiles(String path, Boolean recursive) {
-        return minioClient.listObjects(
+        return storageMetrics.recordListing(minioClient.listObjects(
                 ListObjectsArgs.builder()
                         .bucket(minioProperties.getBucket())
                         .recursive(recursive)
                         .prefix(path)
-                        .build());
+                        .build()));
     }
 
-    private void createEmptyFolder(String folderName) {
-        if (checkIfObjectExists(folderName)) {
+    // a directory is only a row of the metadata index, no object is stored for it
+    private void createEmptyFolder(Long userId, String path) {
+        if (checkIfObjectExists(userId, path)) {
             throw new ResourceAlreadyExistsException("Object already exists");
         }
-        try {
-            minioClient.putObject(
-                    PutObjectArgs.builder()
-                            .bucket(minioProperties.getBucket())
-                            .object(folderName)
-                            .stream(new ByteArrayInputStream(new byte[0]), 0, -1)
-                            .build()
-            );
-        } catch (Exception e) {
-            throw new StorageException("Can not create folder: " + folderName);
-        }
+        publishCreated(userId, List.of(new StoredObject(path, 0, null, Instant.now())));
     }
 
     private StatObjectResponse getStat(String objectName) {
         try {
-            return minioClient.statObject(
+            return storageMetrics.record("statObject", () -> minioClient.statObject(
                     StatObjectArgs.builder()
                             .bucket(minioProperties.getBucket())
                             .object(objectName)
-                            .build());
+                            .build()));
         } catch (ErrorResponseException e) {
             throw new ResourceNotFoundException(e.getMessage());
         } catch (Exception e) {
@@ -320,24 +791,16 @@ public class MinioRepository implements FileStorageRepository {
         }
     }
 
-    private List<ResourceInfoResponseDto> getInfoForSnowballObjects(List<SnowballObject> objects) {
-        List<ResourceInfoResponseDto> response = new ArrayList<>();
-        for (SnowballObject object : objects) {
-            String objectName = object.name();
-            StatObjectResponse stat = getStat(objectName);
-            ResourceInfoResponseDto dto = createResourceInfoResponseDto(removeUserPrefix(objectName), stat.size());
-            response.add(dto);
-        }
-        return response;
-    }
-
     private void removeObject(String objectName) {
         try {
-            minioClient.removeObject(
-                    RemoveObjectArgs.builder()
-                            .bucket(minioProperties.getBucket())
-                            .object(objectName)
-                            .build());
+            storageMetrics.record("removeObject", () -> {
+                minioClient.removeObject(
+                        RemoveObjectArgs.builder()
+                                .bucket(minioProperties.getBucket())
+                                .object(objectName)
+                                .build());
+                return null;
+            });
         } catch (ErrorResponseException e) {
             throw new ResourceNotFoundException(e.getMessage());
         } catch (Exception e) {
@@ -345,81 +808,75 @@ public class MinioRepository implements FileStorageRepository {
         }
     }
 
-    private void copyDirectory(String oldPath, String newPath) {
-        Iterable<Result<Item>> objects = getListFiles(oldPath, RECURSIVE);
-        Item resource;
-        for (Result<Item> item : objects) {
-            try {
-                resource = item.get();
-            } catch (Exception e) {
-                throw new StorageException(e.getMessage());
-            }
-            String oldObjectPath = resource.objectName();
-            String newObjectPath = newPath + oldObjectPath.substring(oldPath.length());
-            if (checkIfObjectExists(newObjectPath)) {
-                throw new ResourceAlreadyExistsException("Resource already exists");
-            }
-            copyObject(oldObjectPath, newObjectPath);
-
+    private void removeObjectQuietly(String objectName) {
+        try {
+            removeObject(objectName);
+        } catch (RuntimeException e) {
+            log.warn("Can not remove object {}: {}", objectName, e.getMessage());
         }
     }
 
     private void deleteDirectory(String path) {
-        Iterable<Result<Item>> objects = getListFiles(path, RECURSIVE);
-
-        for (Result<Item> item : objects) {
-            try {
-                Item resource = item.get();
-                String objectName = resource.objectName();
-                removeObject(objectName);
-            } catch (Exception e) {
-                throw new StorageException(e.getMessage());
-            }
+        Iterable<DeleteObject> objects = () -> StreamSupport.stream(getListFiles(path, RECURSIVE).spliterator(), false)
+                .map(this::getItem)
+                .map(item -> new DeleteObject(item.objectName()))
+                .iterator();
+        Iterable<Result<DeleteError>> results = minioClient.removeObjects(RemoveObjectsArgs.builder()
+                .bucket(minioProperties.getBucket())
+                .objects(objects)
+                .build());
 
+        int failedObjects;
+        try {
+            failedObjects = storageMetrics.record("removeObjects", () -> {
+                int failed = 0;
+                for (Result<DeleteError> result : results) {
+                    DeleteError error = result.get();
+                    log.error("Can not delete object {}: {}", error.objectName(), error.message());
+                    failed++;
+                }
+                return failed;
+            });
+        } catch (Exception e) {
+            throw new StorageException(e.getMessage());
+        }
+        if (failedObjects > 0) {
+            throw new StorageException("Can not delete " + failedObjects + " objects in " + path);
         }
     }
 
-    private ResourceInfoResponseDto createResourceInfoResponseDto(String path, long responseSize) {
-        String responsePath = extractPath(path);
-        String responseName = extractName(path);
-        return isDirectory(path)
-                ? new ResourceInfoResponseDto(responsePath, responseName + "/", RESPONSE_TYPE_DIRECTORY)
-                : new ResourceInfoResponseDto(responsePath, responseName, responseSize, RESPONSE_TYPE_FILE);
+    private Item getItem(Result<Item> result) {
+        try {
+            return result.get();
+        } catch (Exception e) {
+            throw new StorageException(e.getMessage());
+        }
     }
 
-    private ResourceInfoResponseDto createResourceInfoResponseDto(String path) {
-        String responsePath = extractPath(path);
-        String responseName = extractName(path);
-        return new ResourceInfoResponseDto(responsePath, responseName + "/", RESPONSE_TYPE_DIRECTORY);
+    private String normalizeEtag(String etag) {
+        return etag != null ? etag.replace("\"", "") : null;
     }
 
-    private boolean isDirectory(String path) {
+    static boolean isDirectory(String path) {
         return path.endsWith("/");
     }
 
-    private String extractName(String path) {
-        Path pathObj = Paths.get(path);
-        return pathObj.getFileName().toString();
+    static String formatPath(Long userId, String fileName) {
+        return StoragePath.userPrefix(userId) + fileName;
     }
 
-    private String extractPath(String path) {
-        Path pathObj = Paths.get(path);
-        return pathObj.getParent() != null
-                ? pathObj.getParent().toString().replace(File.separatorChar, '/') + "/"
-                : "";
+    static String removeUserPrefix(String path) {
+        return StoragePath.ofObjectKey(path).path();
     }
 
-    private String formatUserPrefix(Long userId) {
-        return String.format(USER_PREFIX_FORMAT, userId);
+    private record PendingBlob(String path, String hash, String objectKey, long size) {
     }
 
-    private String formatPath(Long userId, String fileName) {
-        String userPrefix = formatUserPrefix(userId);
-        return userPrefix + fileName;
+    private record PendingObject(String path, String objectKey, String etag, long size) {
     }
 
-    private String removeUserPrefix(String path) {
-        int prefixEndIndex = path.indexOf("/");
-        return path.substring(prefixEndIndex + 1);
+    @FunctionalInterface
+    private interface AsyncCall<T> {
+        CompletableFuture<T> execute() throws Exception;
     }
-}
\ No newline at end of file
+}
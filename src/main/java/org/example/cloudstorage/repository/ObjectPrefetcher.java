@@ -0,0 +1,160 @@
+package org.example.cloudstorage.repository;
+
+import org.example.cloudstorage.exception.StorageException;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+/**
+ * Opens up to {@code depth} objects ahead of the consumer while handing them out in listing order.
+ * Objects that fit into the memory cap are read fully in the background, larger ones are only opened
+ * and streamed by the consumer. The consumer must close each object before asking for the next one.
+ * Closing the prefetcher skips the loads that have not started and closes the streams of the others
+ * once they finish.
+ */
+class ObjectPrefetcher implements Iterator<ObjectPrefetcher.PrefetchedObject>, AutoCloseable {
+    // a buffered object is read into one array
+    private static final long MAX_BUFFERED_SIZE = Integer.MAX_VALUE - 8;
+
+    private final Iterator<Source> items;
+    private final Function<String, InputStream> objectLoader;
+    private final Executor executor;
+    private final int depth;
+    private final long memoryCap;
+    private final Deque<Pending> pending = new ArrayDeque<>();
+    private Source waiting;
+    private long bufferedBytes;
+    private volatile boolean closed;
+
+    ObjectPrefetcher(Iterator<Source> items, Function<String, InputStream> objectLoader,
+                     ExecutorService executor, int depth, long memoryCap) {
+        this.items = items;
+        this.objectLoader = objectLoader;
+        // loads are accounted to the request that asks for them
+        this.executor = StorageCallAccounting.propagating(executor);
+        this.depth = Math.max(depth, 1);
+        this.memoryCap = Math.min(memoryCap, MAX_BUFFERED_SIZE);
+    }
+
+    @Override
+    public boolean hasNext() {
+        fill();
+        return !pending.isEmpty();
+    }
+
+    @Override
+    public PrefetchedObject next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Pending head = pending.poll();
+        try {
+            return new PrefetchedObject(head.name(), head.future().get(), head.bufferedBytes());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted while fetching " + head.name());
+        } catch (ExecutionException e) {
+            bufferedBytes -= head.bufferedBytes();
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new StorageException(e.getCause().getMessage());
+        } finally {
+            fill();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Pending entry : pending) {
+            entry.future().thenAccept(this::closeQuietly);
+        }
+        pending.clear();
+    }
+
+    private void fill() {
+        while (pending.size() < depth && (waiting != null || items.hasNext())) {
+            Source item = waiting != null ? waiting : items.next();
+            long cost = item.size() <= memoryCap ? item.size() : 0;
+            if (!pending.isEmpty() && bufferedBytes + cost > memoryCap) {
+                waiting = item;
+                return;
+            }
+            waiting = null;
+            bufferedBytes += cost;
+            pending.add(new Pending(item.name(), CompletableFuture.supplyAsync(() -> load(item, cost > 0), executor), cost));
+        }
+    }
+
+    private InputStream load(Source item, boolean buffered) {
+        if (closed) {
+            return null;
+        }
+        InputStream inputStream = objectLoader.apply(item.objectKey());
+        if (!buffered) {
+            return inputStream;
+        }
+        try (inputStream) {
+            return new ByteArrayInputStream(inputStream.readNBytes((int) item.size()));
+        } catch (IOException e) {
+            throw new StorageException("Can not read " + item.name() + ": " + e.getMessage());
+        }
+    }
+
+    private void closeQuietly(InputStream inputStream) {
+        if (inputStream == null) {
+            return;
+        }
+        try {
+            inputStream.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * An object to fetch, the name is handed out with it and the key is passed to the loader.
+     */
+    record Source(String name, String objectKey, long size) {
+    }
+
+    private record Pending(String name, CompletableFuture<InputStream> future, long bufferedBytes) {
+    }
+
+    class PrefetchedObject implements Closeable {
+        private final String name;
+        private final InputStream inputStream;
+        private final long bufferedBytes;
+
+        private PrefetchedObject(String name, InputStream inputStream, long bufferedBytes) {
+            this.name = name;
+            this.inputStream = inputStream;
+            this.bufferedBytes = bufferedBytes;
+        }
+
+        String name() {
+            return name;
+        }
+
+        InputStream inputStream() {
+            return inputStream;
+        }
+
+        @Override
+        public void close() throws IOException {
+            ObjectPrefetcher.this.bufferedBytes -= bufferedBytes;
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.cloudstorage.repository;
+
+import org.example.cloudstorage.exception.StorageException;
+
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Runs an action for every item on a shared executor with at most {@code concurrency} tasks in flight.
+ * Items are pulled lazily, submission stops at the first failure and the failure is rethrown
+ * once all started tasks have finished.
+ */
+final class ParallelTasks {
+
+    private ParallelTasks() {
+    }
+
+    static <T> void forEach(Iterator<T> items, Consumer<T> action, ExecutorService executor, int concurrency) {
+        int permits = Math.max(concurrency, 1);
+        Semaphore inFlight = new Semaphore(permits);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        try {
+            while (failure.get() == null && items.hasNext()) {
+                T item = items.next();
+                inFlight.acquire();
+                try {
+                    executor.execute(StorageCallAccounting.wrap(() -> {
+                        try {
+                            action.accept(item);
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }));
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+            }
+            inFlight.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted while waiting for storage tasks");
+        }
+
+        Throwable cause = failure.get();
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (cause != null) {
+            throw new StorageException(cause.getMessage());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.cloudstorage.repository;
+
+import org.example.cloudstorage.entity.ResourceBlob;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ResourceBlobRepository extends JpaRepository<ResourceBlob, Long> {
+
+    @Query("select r from ResourceBlob r join fetch r.blob where r.userId = :userId and r.path = :path")
+    Optional<ResourceBlob> findByUserIdAndPath(@Param("userId") Long userId, @Param("path") String path);
+
+    @Query("""
+            select r from ResourceBlob r join fetch r.blob
+            where r.userId = :userId and (r.path = :path or r.path like :prefixPattern escape '\\')
+              and r.path > :after
+            order by r.path""")
+    List<ResourceBlob> findSubtreePage(@Param("userId") Long userId, @Param("path") String path,
+                                       @Param("prefixPattern") String prefixPattern, @Param("after") String after, Limit limit);
+
+    @Query("select coalesce(sum(b.size), 0) from ResourceBlob r join r.blob b where r.userId = :userId")
+    long sumSizeByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("delete from ResourceBlob r where r.userId = :userId and (r.path = :path or r.path like :prefixPattern escape '\\')")
+    int deleteSubtree(@Param("userId") Long userId, @Param("path") String path, @Param("prefixPattern") String prefixPattern);
+
+    @Modifying
+    @Query("""
+            update ResourceBlob r
+            set r.path = concat(:newPath, substring(r.path, :oldLength + 1))
+            where r.userId = :userId and (r.path = :oldPath or r.path like :prefixPattern escape '\\')""")
+    int moveSubtree(@Param("userId") Long userId, @Param("oldPath") String oldPath, @Param("prefixPattern") String prefixPattern,
+                    @Param("newPath") String newPath, @Param("oldLength") int oldLength);
+}
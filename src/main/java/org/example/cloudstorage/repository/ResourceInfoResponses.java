@@ -0,0 +1,28 @@
+package org.example.cloudstorage.repository;
+
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.service.StoragePath;
+
+import java.util.Comparator;
+
+/**
+ * Builds the resource info returned by every storage backend from a path relative to the user's root.
+ */
+final class ResourceInfoResponses {
+    static final String RESPONSE_TYPE_DIRECTORY = "DIRECTORY";
+    static final String RESPONSE_TYPE_FILE = "FILE";
+
+    // directories first, then by name, the order of DirectoryCursor
+    static final Comparator<ResourceInfoResponseDto> LISTING_ORDER =
+            Comparator.comparing(ResourceInfoResponseDto::getType).thenComparing(ResourceInfoResponseDto::getName);
+
+    private ResourceInfoResponses() {
+    }
+
+    static ResourceInfoResponseDto createResourceInfoResponseDto(String path, long size) {
+        StoragePath storagePath = StoragePath.ofStored(path);
+        return storagePath.isDirectory()
+                ? new ResourceInfoResponseDto(storagePath.parent(), storagePath.name() + "/", RESPONSE_TYPE_DIRECTORY)
+                : new ResourceInfoResponseDto(storagePath.parent(), storagePath.name(), size, RESPONSE_TYPE_FILE);
+    }
+}
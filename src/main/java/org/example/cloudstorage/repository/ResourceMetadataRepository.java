@@ -0,0 +1,106 @@
+package org.example.cloudstorage.repository;
+
+import org.example.cloudstorage.entity.ResourceMetadata;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ResourceMetadataRepository extends JpaRepository<ResourceMetadata, Long> {
+
+    Optional<ResourceMetadata> findByUserIdAndPath(Long userId, String path);
+
+    boolean existsByUserIdAndPath(Long userId, String path);
+
+    @Query("select new org.example.cloudstorage.repository.ResourcePathSize(r.path, r.size) from ResourceMetadata r where r.userId = :userId")
+    List<ResourcePathSize> findPathSizesByUserId(@Param("userId") Long userId);
+
+    @Query("select r.path from ResourceMetadata r where r.userId = :userId")
+    List<String> findPathsByUserId(@Param("userId") Long userId);
+
+    List<ResourceMetadata> findAllByUserIdAndPathIn(Long userId, Collection<String> paths);
+
+    List<ResourceMetadata> findAllByUserIdAndParentOrderByTypeAscNameAsc(Long userId, String parent);
+
+    List<ResourceMetadata> findAllByUserIdAndParentOrderByTypeAscNameAsc(Long userId, String parent, Limit limit);
+
+    @Query("""
+            select r from ResourceMetadata r
+            where r.userId = :userId and r.parent = :parent
+              and (r.type > :type or (r.type = :type and r.name > :name))
+            order by r.type asc, r.name asc""")
+    List<ResourceMetadata> findDirectoryPageAfter(@Param("userId") Long userId, @Param("parent") String parent,
+                                                  @Param("type") String type, @Param("name") String name, Limit limit);
+
+    @Query("""
+            select r from ResourceMetadata r
+            where r.userId = :userId and r.parent is not null
+              and lower(r.name) like :pattern escape '\\'
+            order by r.path""")
+    List<ResourceMetadata> searchByName(@Param("userId") Long userId, @Param("pattern") String pattern);
+
+    @Query("""
+            select r from ResourceMetadata r
+            where r.userId = :userId and r.parent is not null
+              and lower(r.name) like :pattern escape '\\'
+            order by r.path""")
+    List<ResourceMetadata> searchByName(@Param("userId") Long userId, @Param("pattern") String pattern, Limit limit);
+
+    @Query("""
+            select r from ResourceMetadata r
+            where r.userId = :userId and r.parent is not null and r.path > :path
+              and lower(r.name) like :pattern escape '\\'
+            order by r.path""")
+    List<ResourceMetadata> searchByNameAfter(@Param("userId") Long userId, @Param("pattern") String pattern,
+                                             @Param("path") String path, Limit limit);
+
+    @Query("select count(r) from ResourceMetadata r where r.userId = :userId and (r.path = :path or r.path like :prefixPattern escape '\\')")
+    long countSubtree(@Param("userId") Long userId, @Param("path") String path, @Param("prefixPattern") String prefixPattern);
+
+    // rows are locked in path order, so concurrent updates of overlapping directories can not deadlock
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+            with changes as (
+                select * from unnest(cast(:paths as text[]), cast(:bytes as bigint[]), cast(:files as bigint[]))
+                    as c(path, bytes, files)
+            ), locked as (
+                select r.id, c.bytes, c.files
+                from resource_metadata r
+                join changes c on c.path = r.path
+                where r.user_id = :userId
+                order by r.path
+                for update of r
+            )
+            update resource_metadata r
+            set size = coalesce(r.size, 0) + locked.bytes, file_count = coalesce(r.file_count, 0) + locked.files
+            from locked
+            where r.id = locked.id""", nativeQuery = true)
+    int addToDirectories(@Param("userId") Long userId, @Param("paths") String[] paths,
+                         @Param("bytes") Long[] bytes, @Param("files") Long[] files);
+
+    @Modifying
+    @Query("delete from ResourceMetadata r where r.userId = :userId and (r.path = :path or r.path like :prefixPattern escape '\\')")
+    int deleteSubtree(@Param("userId") Long userId, @Param("path") String path, @Param("prefixPattern") String prefixPattern);
+
+    // held until the end of the transaction
+    @Query(value = "select count(*) from (select pg_advisory_xact_lock(:userId)) l", nativeQuery = true)
+    long lockUser(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("delete from ResourceMetadata r where r.userId = :userId")
+    int deleteAllByUser(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("""
+            update ResourceMetadata r
+            set r.path = concat(:newPath, substring(r.path, :oldLength + 1)),
+                r.parent = concat(:newPath, substring(r.parent, :oldLength + 1))
+            where r.userId = :userId and r.path like :prefixPattern escape '\\'""")
+    int moveDescendants(@Param("userId") Long userId, @Param("prefixPattern") String prefixPattern,
+                        @Param("newPath") String newPath, @Param("oldLength") int oldLength);
+}
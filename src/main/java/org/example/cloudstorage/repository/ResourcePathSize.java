@@ -0,0 +1,4 @@
+package org.example.cloudstorage.repository;
+
+public record ResourcePathSize(String path, Long size) {
+}
@@ -0,0 +1,84 @@
+package org.example.cloudstorage.repository;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the object storage calls made on behalf of one request together with the time spent in them.
+ * The accounting is bound to the thread handling the request. Tasks handed to other threads, such as
+ * storage workers or the MVC async executor, take along the accounting that was current when they
+ * were submitted (see {@link #wrap(Runnable)}), and asynchronous client calls are attributed to the
+ * accounting that was current when they were started.
+ */
+public final class StorageCallAccounting {
+    private static final ThreadLocal<StorageCallAccounting> CURRENT = new ThreadLocal<>();
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicLong nanos = new AtomicLong();
+    private final Map<String, AtomicInteger> callsByOperation = new ConcurrentHashMap<>();
+
+    public static StorageCallAccounting start() {
+        StorageCallAccounting accounting = new StorageCallAccounting();
+        CURRENT.set(accounting);
+        return accounting;
+    }
+
+    public static void finish() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Binds the current accounting, if any, to the thread that runs the task.
+     */
+    public static Runnable wrap(Runnable task) {
+        StorageCallAccounting accounting = CURRENT.get();
+        if (accounting == null) {
+            return task;
+        }
+        return () -> {
+            StorageCallAccounting previous = CURRENT.get();
+            CURRENT.set(accounting);
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        };
+    }
+
+    static Executor propagating(Executor executor) {
+        return task -> executor.execute(wrap(task));
+    }
+
+    static StorageCallAccounting current() {
+        return CURRENT.get();
+    }
+
+    void record(String operation, long elapsedNanos) {
+        calls.incrementAndGet();
+        nanos.addAndGet(elapsedNanos);
+        callsByOperation.computeIfAbsent(operation, key -> new AtomicInteger()).incrementAndGet();
+    }
+
+    public int calls() {
+        return calls.get();
+    }
+
+    public long nanos() {
+        return nanos.get();
+    }
+
+    public Map<String, Integer> callsByOperation() {
+        Map<String, Integer> result = new TreeMap<>();
+        callsByOperation.forEach((operation, count) -> result.put(operation, count.get()));
+        return result;
+    }
+}
@@ -0,0 +1,240 @@
+package org.example.cloudstorage.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.minio.Result;
+import io.minio.errors.ErrorResponseException;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.Cleaner;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records one timer per object storage operation, tagged by operation and outcome, together with the
+ * bytes moved to and from the storage, the number of objects per listing and the size of archives.
+ * Every call is also added to the {@link StorageCallAccounting} of the current request, if any.
+ */
+@Component
+public class StorageMetrics {
+    private static final String REQUESTS = "cloudstorage.storage.requests";
+    private static final String OUTCOME_SUCCESS = "success";
+    private static final String OUTCOME_NOT_FOUND = "not_found";
+    private static final String OUTCOME_ERROR = "error";
+    private static final String OUTCOME_ABANDONED = "abandoned";
+    private static final Cleaner LISTING_CLEANER = Cleaner.create();
+    private static final Set<String> NOT_FOUND_CODES = Set.of("NoSuchKey", "NoSuchUpload", "NoSuchBucket");
+
+    private final MeterRegistry meterRegistry;
+    private final Counter uploadedBytes;
+    private final Counter downloadedBytes;
+    private final DistributionSummary listingObjects;
+    private final DistributionSummary archiveSize;
+
+    public StorageMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.uploadedBytes = Counter.builder("cloudstorage.storage.transferred")
+                .baseUnit(BaseUnits.BYTES)
+                .tag("direction", "upload")
+                .register(meterRegistry);
+        this.downloadedBytes = Counter.builder("cloudstorage.storage.transferred")
+                .baseUnit(BaseUnits.BYTES)
+                .tag("direction", "download")
+                .register(meterRegistry);
+        this.listingObjects = DistributionSummary.builder("cloudstorage.storage.listing.objects")
+                .baseUnit(BaseUnits.OBJECTS)
+                .register(meterRegistry);
+        this.archiveSize = DistributionSummary.builder("cloudstorage.storage.archive.size")
+                .baseUnit(BaseUnits.BYTES)
+                .register(meterRegistry);
+    }
+
+    public <T> T record(String operation, StorageCall<T> call) throws Exception {
+        StorageCallAccounting accounting = StorageCallAccounting.current();
+        long start = System.nanoTime();
+        try {
+            T result = call.execute();
+            stop(operation, accounting, System.nanoTime() - start, OUTCOME_SUCCESS);
+            return result;
+        } catch (Exception e) {
+            stop(operation, accounting, System.nanoTime() - start, outcome(e));
+            throw e;
+        }
+    }
+
+    public <T> CompletableFuture<T> recordAsync(String operation, CompletableFuture<T> future) {
+        StorageCallAccounting accounting = StorageCallAccounting.current();
+        long start = System.nanoTime();
+        return future.whenComplete((result, error) -> stop(operation, accounting, System.nanoTime() - start,
+                error == null ? OUTCOME_SUCCESS : outcome(error)));
+    }
+
+    public <T> Iterable<Result<T>> recordListing(Iterable<Result<T>> results) {
+        return () -> new ListingIterator<>(results.iterator());
+    }
+
+    public InputStream recordDownload(InputStream inputStream) {
+        return new FilterInputStream(inputStream) {
+            @Override
+            public int read() throws IOException {
+                int value = super.read();
+                if (value >= 0) {
+                    downloadedBytes.increment();
+                }
+                return value;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    downloadedBytes.increment(read);
+                }
+                return read;
+            }
+        };
+    }
+
+    public void recordUpload(long bytes) {
+        uploadedBytes.increment(bytes);
+    }
+
+    public ArchiveOutputStream recordArchive(OutputStream outputStream) {
+        return new ArchiveOutputStream(outputStream);
+    }
+
+    private void stop(String operation, StorageCallAccounting accounting, long elapsed, String outcome) {
+        Timer.builder(REQUESTS)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        if (accounting != null) {
+            accounting.record(operation, elapsed);
+        }
+    }
+
+    private String outcome(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof ErrorResponseException errorResponse
+                && NOT_FOUND_CODES.contains(errorResponse.errorResponse().code())) {
+            return OUTCOME_NOT_FOUND;
+        }
+        return OUTCOME_ERROR;
+    }
+
+    @FunctionalInterface
+    public interface StorageCall<T> {
+        T execute() throws Exception;
+    }
+
+    public class ArchiveOutputStream extends FilterOutputStream {
+        private long written;
+
+        private ArchiveOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+            out.write(value);
+            written++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            written += length;
+        }
+
+        public void complete() {
+            archiveSize.record(written);
+        }
+    }
+
+    private class ListingIterator<T> implements Iterator<Result<T>> {
+        private final Iterator<Result<T>> results;
+        private final Listing listing = new Listing(StorageCallAccounting.current());
+
+        private ListingIterator(Iterator<Result<T>> results) {
+            this.results = results;
+            // callers stop iterating early without closing anything, so abandoned listings are recorded once collected
+            LISTING_CLEANER.register(this, listing::abandon);
+        }
+
+        @Override
+        public boolean hasNext() {
+            long start = System.nanoTime();
+            boolean hasNext;
+            try {
+                hasNext = results.hasNext();
+            } catch (RuntimeException e) {
+                listing.elapsed += System.nanoTime() - start;
+                listing.failed = true;
+                listing.complete();
+                throw e;
+            }
+            listing.elapsed += System.nanoTime() - start;
+            if (!hasNext) {
+                listing.complete();
+            }
+            return hasNext;
+        }
+
+        @Override
+        public Result<T> next() {
+            long start = System.nanoTime();
+            Result<T> result = results.next();
+            listing.elapsed += System.nanoTime() - start;
+            try {
+                result.get();
+                listing.objects++;
+            } catch (Exception e) {
+                listing.failed = true;
+            }
+            return result;
+        }
+    }
+
+    // kept apart from the iterator, so that the cleaner does not keep the iterator reachable
+    private class Listing {
+        private final StorageCallAccounting accounting;
+        private long elapsed;
+        private long objects;
+        private boolean failed;
+        private boolean recorded;
+
+        private Listing(StorageCallAccounting accounting) {
+            this.accounting = accounting;
+        }
+
+        private synchronized void complete() {
+            record(failed ? OUTCOME_ERROR : OUTCOME_SUCCESS, accounting);
+        }
+
+        // the request that listed is usually finished by now, so its accounting is left alone
+        private synchronized void abandon() {
+            record(failed ? OUTCOME_ERROR : OUTCOME_ABANDONED, null);
+        }
+
+        private void record(String outcome, StorageCallAccounting accounting) {
+            if (recorded) {
+                return;
+            }
+            recorded = true;
+            stop("listObjects", accounting, elapsed, outcome);
+            listingObjects.record(objects);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package org.example.cloudstorage.service;
+
+import java.time.Instant;
+
+public record BlobObject(String path, String objectKey, String etag, long size, Instant createdAt) {
+}
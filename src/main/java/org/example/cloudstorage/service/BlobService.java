@@ -0,0 +1,27 @@
+package org.example.cloudstorage.service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface BlobService {
+
+    Optional<BlobObject> find(Long userId, String path);
+
+    Stream<BlobObject> findSubtree(Long userId, String path);
+
+    long usedBytes(Long userId);
+
+    Optional<String> link(Long userId, String path, String hash);
+
+    String link(Long userId, String path, String hash, String objectKey, long size);
+
+    void linkObject(Long userId, String path, String objectKey, long size, String etag);
+
+    long unlink(Long userId, String path);
+
+    long move(Long userId, String oldPath, String newPath);
+
+    List<String> collectGarbage();
+
+}
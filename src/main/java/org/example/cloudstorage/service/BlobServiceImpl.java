@@ -0,0 +1,130 @@
+package org.example.cloudstorage.service;
+
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.example.cloudstorage.config.DedupProperties;
+import org.example.cloudstorage.entity.Blob;
+import org.example.cloudstorage.entity.ResourceBlob;
+import org.example.cloudstorage.repository.BlobRepository;
+import org.example.cloudstorage.repository.ResourceBlobRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.example.cloudstorage.service.StoragePath.escapeLike;
+
+/**
+ * Maps user paths to immutable objects, so moving a subtree only rewrites its path rows. A deduplicated
+ * blob is stored once per SHA-256 and counts the paths referencing it, any other object belongs to one
+ * path. A blob nobody references is kept for a grace period before it is collected, so a save that
+ * found it just before the last reference went away can still link it.
+ */
+@Service
+@RequiredArgsConstructor
+public class BlobServiceImpl implements BlobService {
+    private static final int SUBTREE_PAGE_SIZE = 1000;
+
+    private final BlobRepository blobRepository;
+    private final ResourceBlobRepository resourceBlobRepository;
+    private final DedupProperties dedupProperties;
+
+    @Override
+    public Optional<BlobObject> find(Long userId, String path) {
+        return resourceBlobRepository.findByUserIdAndPath(userId, path).map(this::toBlobObject);
+    }
+
+    // pages are read in path order as the stream reaches them, so a large subtree is never held in memory
+    @Override
+    public Stream<BlobObject> findSubtree(Long userId, String path) {
+        String pattern = subtreePattern(path);
+        return Stream.iterate(findSubtreePage(userId, path, pattern, ""),
+                        page -> !page.isEmpty(),
+                        page -> page.size() < SUBTREE_PAGE_SIZE
+                                ? List.of()
+                                : findSubtreePage(userId, path, pattern, page.getLast().path()))
+                .flatMap(List::stream);
+    }
+
+    @Override
+    public long usedBytes(Long userId) {
+        return resourceBlobRepository.sumSizeByUserId(userId);
+    }
+
+    @Override
+    @Transactional
+    public Optional<String> link(Long userId, String path, String hash) {
+        // the update locks the blob, so it can not be collected before the reference is stored
+        if (blobRepository.reference(hash) == 0) {
+            return Optional.empty();
+        }
+        Blob blob = blobRepository.findByHash(hash).orElseThrow();
+        resourceBlobRepository.save(new ResourceBlob(userId, path, blob));
+        return Optional.of(blob.getObjectKey());
+    }
+
+    @Override
+    @Transactional
+    public String link(Long userId, String path, String hash, String objectKey, long size) {
+        if (blobRepository.insertIfAbsent(hash, objectKey, size) == 0) {
+            // another save stored the same content first
+            return link(userId, path, hash).orElseGet(() -> link(userId, path, hash, objectKey, size));
+        }
+        resourceBlobRepository.save(new ResourceBlob(userId, path, blobRepository.findByHash(hash).orElseThrow()));
+        return objectKey;
+    }
+
+    @Override
+    @Transactional
+    public void linkObject(Long userId, String path, String objectKey, long size, String etag) {
+        Blob blob = new Blob();
+        blob.setObjectKey(objectKey);
+        blob.setSize(size);
+        blob.setEtag(etag);
+        blob.setRefCount(1);
+        resourceBlobRepository.save(new ResourceBlob(userId, path, blobRepository.save(blob)));
+    }
+
+    @Override
+    @Transactional
+    public long unlink(Long userId, String path) {
+        String pattern = subtreePattern(path);
+        blobRepository.releaseSubtree(userId, path, pattern);
+        return resourceBlobRepository.deleteSubtree(userId, path, pattern);
+    }
+
+    @Override
+    @Transactional
+    public long move(Long userId, String oldPath, String newPath) {
+        return resourceBlobRepository.moveSubtree(userId, oldPath, subtreePattern(oldPath), newPath, oldPath.length());
+    }
+
+    @Override
+    @Transactional
+    public List<String> collectGarbage() {
+        Instant cutoff = Instant.now().minus(dedupProperties.getGcGracePeriod());
+        List<Blob> blobs = blobRepository.findReleasedBefore(cutoff, Limit.of(dedupProperties.getGcBatchSize()));
+        blobRepository.deleteAllInBatch(blobs);
+        return blobs.stream().map(Blob::getObjectKey).toList();
+    }
+
+    private List<BlobObject> findSubtreePage(Long userId, String path, String pattern, String after) {
+        return resourceBlobRepository.findSubtreePage(userId, path, pattern, after, Limit.of(SUBTREE_PAGE_SIZE)).stream()
+                .map(this::toBlobObject)
+                .toList();
+    }
+
+    // a file path only matches itself
+    private String subtreePattern(String path) {
+        return StoragePath.ofStored(path).isDirectory() ? escapeLike(path) + "%" : escapeLike(path);
+    }
+
+    private BlobObject toBlobObject(ResourceBlob resourceBlob) {
+        Blob blob = resourceBlob.getBlob();
+        return new BlobObject(resourceBlob.getPath(), blob.getObjectKey(), blob.getEtag(), blob.getSize(),
+                resourceBlob.getCreatedAt());
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.cloudstorage.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bit layout of a Bloom filter stored as a Redis bitmap, where bit 0 is the most significant bit of
+ * the first byte. Positions come from double hashing of a 64-bit FNV-1a hash of the value.
+ */
+final class BloomFilter {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long bits;
+    private final int hashFunctions;
+    private final long capacity;
+
+    BloomFilter(long bits, double falsePositiveRate) {
+        double ln2 = Math.log(2);
+        this.bits = Math.max(bits - bits % Byte.SIZE, Byte.SIZE);
+        this.hashFunctions = Math.max((int) Math.round(-Math.log(falsePositiveRate) / ln2), 1);
+        this.capacity = Math.max((long) (this.bits * ln2 * ln2 / -Math.log(falsePositiveRate)), 1);
+    }
+
+    // the number of bits that keeps the false positive rate with the given number of values
+    static long bitsFor(long capacity, double falsePositiveRate) {
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(capacity * -Math.log(falsePositiveRate) / (ln2 * ln2));
+        return Math.max((bits + Byte.SIZE - 1) / Byte.SIZE * Byte.SIZE, Byte.SIZE);
+    }
+
+    long[] positions(String value) {
+        long h1 = mix(fnv1a(value));
+        long h2 = mix(h1) | 1;
+        long[] positions = new long[hashFunctions];
+        for (int i = 0; i < hashFunctions; i++) {
+            positions[i] = Math.floorMod(h1 + i * h2, bits);
+        }
+        return positions;
+    }
+
+    byte[] toBitmap(Iterable<String> values) {
+        byte[] bitmap = new byte[(int) (bits / Byte.SIZE)];
+        for (String value : values) {
+            for (long position : positions(value)) {
+                bitmap[(int) (position >>> 3)] |= (byte) (0x80 >>> (position & 7));
+            }
+        }
+        return bitmap;
+    }
+
+    boolean mightContain(byte[] bitmap, String value) {
+        for (long position : positions(value)) {
+            if ((bitmap[(int) (position >>> 3)] & (0x80 >>> (position & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long sizeInBytes() {
+        return bits / Byte.SIZE;
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    private static long fnv1a(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
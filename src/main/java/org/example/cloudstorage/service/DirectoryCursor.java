@@ -0,0 +1,41 @@
+package org.example.cloudstorage.service;
+
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * Position after the last entry of a directory page. Entries are ordered by type and then by name,
+ * the cursor is handed to clients as an opaque url-safe string.
+ */
+public record DirectoryCursor(String type, String name) {
+    public static final Comparator<DirectoryCursor> ORDER =
+            Comparator.comparing(DirectoryCursor::type).thenComparing(DirectoryCursor::name);
+    private static final char SEPARATOR = '\n';
+
+    public static DirectoryCursor of(ResourceInfoResponseDto item) {
+        return new DirectoryCursor(item.getType(), item.getName());
+    }
+
+    public static DirectoryCursor decode(String cursor) {
+        String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+        int separator = value.indexOf(SEPARATOR);
+        if (separator <= 0) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+        return new DirectoryCursor(value.substring(0, separator), value.substring(separator + 1));
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((type + SEPARATOR + name).getBytes(StandardCharsets.UTF_8));
+    }
+}
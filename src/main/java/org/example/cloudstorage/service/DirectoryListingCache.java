@@ -0,0 +1,156 @@
+package org.example.cloudstorage.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.cloudstorage.config.ListingCacheProperties;
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Caches directory listings in Redis, one key per directory with its own expiry, so that every
+ * application node shares the same entries. Storage events evict the listings of all ancestors of
+ * a changed path and, for directories, every cached listing inside the changed subtree. Each eviction
+ * bumps a per-user generation, a listing loaded before the eviction is not stored afterwards.
+ */
+@Slf4j
+@Component
+public class DirectoryListingCache {
+    private static final String KEY_FORMAT = "cloudstorage:listing:{%d}:%s";
+    private static final String PATHS_KEY_FORMAT = "cloudstorage:listing:{%d}:paths";
+    private static final String GENERATION_KEY_FORMAT = "cloudstorage:listing:{%d}:generation";
+    private static final String INITIAL_GENERATION = "0";
+
+    private static final RedisScript<Long> PUT = RedisScript.of("""
+            if (redis.call('GET', KEYS[1]) or '0') ~= ARGV[1] then
+                return 0
+            end
+            redis.call('SET', KEYS[2], ARGV[2], 'PX', ARGV[3])
+            redis.call('SADD', KEYS[3], ARGV[4])
+            redis.call('PEXPIRE', KEYS[3], ARGV[3])
+            return 1
+            """, Long.class);
+    private static final TypeReference<List<ResourceInfoResponseDto>> LISTING_TYPE = new TypeReference<>() {
+    };
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final ListingCacheProperties listingCacheProperties;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter errors;
+
+    public DirectoryListingCache(StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                                 ListingCacheProperties listingCacheProperties, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.listingCacheProperties = listingCacheProperties;
+        this.hits = meterRegistry.counter("cloudstorage.listing.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("cloudstorage.listing.cache.requests", "result", "miss");
+        this.errors = meterRegistry.counter("cloudstorage.listing.cache.requests", "result", "error");
+    }
+
+    public List<ResourceInfoResponseDto> get(Long userId, String path, Supplier<List<ResourceInfoResponseDto>> loader) {
+        if (!listingCacheProperties.isEnabled()) {
+            return loader.get();
+        }
+        String key = formatKey(userId, path);
+        String generation;
+        try {
+            generation = redisTemplate.opsForValue().get(formatGenerationKey(userId));
+            String cached = redisTemplate.opsForValue().get(key);
+            if (cached != null) {
+                hits.increment();
+                return objectMapper.readValue(cached, LISTING_TYPE);
+            }
+        } catch (DataAccessException | JsonProcessingException e) {
+            errors.increment();
+            log.warn("Can not read cached listing of {} for user {}: {}", path, userId, e.getMessage());
+            return loader.get();
+        }
+
+        misses.increment();
+        List<ResourceInfoResponseDto> listing = loader.get();
+        try {
+            redisTemplate.execute(PUT, List.of(formatGenerationKey(userId), key, formatPathsKey(userId)),
+                    generation != null ? generation : INITIAL_GENERATION, objectMapper.writeValueAsString(listing),
+                    String.valueOf(listingCacheProperties.getTtl().toMillis()), path);
+        } catch (DataAccessException | JsonProcessingException e) {
+            errors.increment();
+            log.warn("Can not cache listing of {} for user {}: {}", path, userId, e.getMessage());
+        }
+        return listing;
+    }
+
+    @EventListener
+    public void handleResourcesCreatedEvent(ResourcesCreatedEvent event) {
+        Set<String> directories = new HashSet<>();
+        event.objects().forEach(object -> directories.addAll(StoragePath.ancestors(object.path())));
+        evict(event.userId(), directories, List.of());
+    }
+
+    @EventListener
+    public void handleResourceDeletedEvent(ResourceDeletedEvent event) {
+        evict(event.userId(), StoragePath.ancestors(event.path()), List.of(event.path()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleResourceMovedEvent(ResourceMovedEvent event) {
+        Set<String> directories = new HashSet<>(StoragePath.ancestors(event.oldPath()));
+        directories.addAll(StoragePath.ancestors(event.newPath()));
+        evict(event.userId(), directories, List.of(event.oldPath(), event.newPath()));
+    }
+
+    private void evict(Long userId, Collection<String> directories, Collection<String> subtrees) {
+        if (!listingCacheProperties.isEnabled()) {
+            return;
+        }
+        String pathsKey = formatPathsKey(userId);
+        try {
+            redisTemplate.opsForValue().increment(formatGenerationKey(userId));
+            Set<String> paths = new HashSet<>(directories);
+            List<String> directorySubtrees = subtrees.stream().filter(subtree -> StoragePath.ofStored(subtree).isDirectory()).toList();
+            if (!directorySubtrees.isEmpty()) {
+                for (String cachedPath : redisTemplate.opsForSet().members(pathsKey)) {
+                    if (directorySubtrees.stream().anyMatch(cachedPath::startsWith)) {
+                        paths.add(cachedPath);
+                    }
+                }
+            }
+            if (!paths.isEmpty()) {
+                redisTemplate.delete(paths.stream().map(path -> formatKey(userId, path)).toList());
+                redisTemplate.opsForSet().remove(pathsKey, paths.toArray());
+            }
+        } catch (DataAccessException e) {
+            errors.increment();
+            log.warn("Can not evict cached listings for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private String formatKey(Long userId, String path) {
+        return String.format(KEY_FORMAT, userId, path);
+    }
+
+    private String formatPathsKey(Long userId) {
+        return String.format(PATHS_KEY_FORMAT, userId);
+    }
+
+    private String formatGenerationKey(Long userId) {
+        return String.format(GENERATION_KEY_FORMAT, userId);
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.cloudstorage.service;
+
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+
+import java.util.List;
+import java.util.function.Function;
+
+public record DirectoryPage(List<ResourceInfoResponseDto> items, String nextCursor) {
+
+    /**
+     * Builds a page from up to {@code limit + 1} entries, the extra entry only signals that another page exists.
+     */
+    public static <T> DirectoryPage of(List<T> entries, int limit, Function<T, ResourceInfoResponseDto> mapper,
+                                       Function<T, DirectoryCursor> cursor) {
+        List<T> page = entries.size() > limit ? entries.subList(0, limit) : entries;
+        String nextCursor = entries.size() > limit ? cursor.apply(page.get(page.size() - 1)).encode() : null;
+        return new DirectoryPage(page.stream().map(mapper).toList(), nextCursor);
+    }
+}
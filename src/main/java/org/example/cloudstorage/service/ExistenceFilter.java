@@ -0,0 +1,327 @@
+package org.example.cloudstorage.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.cloudstorage.config.ExistenceFilterProperties;
+import org.example.cloudstorage.repository.ResourceMetadataRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Answers "does not exist" for a user's path without querying the metadata table. Each user has a
+ * Bloom filter stored as a Redis bitmap, so that all application nodes see the same bits. The filter
+ * is built from the metadata table on first use, sized for twice the user's paths up to
+ * memory-per-user, and updated from storage events; deletions leave stale bits behind, and the
+ * filter is dropped and rebuilt once more entries were added than it was sized for. Users with more
+ * paths than the largest filter holds are not filtered. Every reset, and every write made while no
+ * filter is built, bumps a generation, and a build only becomes visible if the generation did not
+ * change while it read the metadata table.
+ */
+@Slf4j
+@Component
+public class ExistenceFilter {
+    private static final String KEY_FORMAT = "cloudstorage:exists:{%d}";
+    private static final String META_KEY_FORMAT = "cloudstorage:exists:{%d}:meta";
+    private static final String GENERATION_KEY_FORMAT = "cloudstorage:exists:{%d}:generation";
+    private static final String BITS_FIELD = "bits";
+    private static final long MIN_CAPACITY = 1024;
+    private static final long BITMAP_TTL_MARGIN_SECONDS = 60;
+    // KEYS: bitmap, meta, generation; ARGV: generation read before the listing, bitmap, bits, entries, ttl, bitmap ttl
+    private static final byte[] PUBLISH_SCRIPT = bytes("""
+            if (redis.call('GET', KEYS[3]) or '0') ~= ARGV[1] then
+              return 0
+            end
+            if ARGV[3] == '0' then
+              redis.call('DEL', KEYS[1])
+            else
+              redis.call('SET', KEYS[1], ARGV[2], 'EX', ARGV[6])
+            end
+            redis.call('HSET', KEYS[2], 'bits', ARGV[3], 'entries', ARGV[4])
+            redis.call('EXPIRE', KEYS[2], ARGV[5])
+            return 1
+            """);
+    // KEYS: bitmap, meta; ARGV: bits, positions...
+    private static final byte[] CHECK_SCRIPT = bytes("""
+            if redis.call('HGET', KEYS[2], 'bits') ~= ARGV[1] then
+              return -1
+            end
+            for i = 2, #ARGV do
+              if redis.call('GETBIT', KEYS[1], ARGV[i]) == 0 then
+                return 0
+              end
+            end
+            return 1
+            """);
+    // KEYS: bitmap, meta, generation; ARGV: bits, added entries, ttl, bitmap ttl, positions...
+    private static final byte[] ADD_SCRIPT = bytes("""
+            if redis.call('HGET', KEYS[2], 'bits') ~= ARGV[1] then
+              redis.call('INCR', KEYS[3])
+              redis.call('EXPIRE', KEYS[3], ARGV[3])
+              return -1
+            end
+            for i = 5, #ARGV do
+              redis.call('SETBIT', KEYS[1], ARGV[i], 1)
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[4])
+            local entries = redis.call('HINCRBY', KEYS[2], 'entries', ARGV[2])
+            redis.call('EXPIRE', KEYS[2], ARGV[3])
+            return entries
+            """);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ResourceMetadataRepository resourceMetadataRepository;
+    private final ResourceMetadataService resourceMetadataService;
+    private final ExistenceFilterProperties existenceFilterProperties;
+    private final Counter negatives;
+    private final Counter truePositives;
+    private final Counter falsePositives;
+    private final Counter errors;
+    private final DistributionSummary memoryPerUser;
+
+    public ExistenceFilter(StringRedisTemplate redisTemplate, ResourceMetadataRepository resourceMetadataRepository,
+                           ResourceMetadataService resourceMetadataService,
+                           ExistenceFilterProperties existenceFilterProperties, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.resourceMetadataRepository = resourceMetadataRepository;
+        this.resourceMetadataService = resourceMetadataService;
+        this.existenceFilterProperties = existenceFilterProperties;
+        this.negatives = meterRegistry.counter("cloudstorage.existence.filter.checks", "result", "negative");
+        this.truePositives = meterRegistry.counter("cloudstorage.existence.filter.checks", "result", "true-positive");
+        this.falsePositives = meterRegistry.counter("cloudstorage.existence.filter.checks", "result", "false-positive");
+        this.errors = meterRegistry.counter("cloudstorage.existence.filter.checks", "result", "error");
+        Gauge.builder("cloudstorage.existence.filter.false.positive.rate", this, ExistenceFilter::observedFalsePositiveRate)
+                .register(meterRegistry);
+        this.memoryPerUser = DistributionSummary.builder("cloudstorage.existence.filter.memory.per.user")
+                .description("Size of the filters built for users")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean exists(Long userId, String path, Supplier<Boolean> loader) {
+        if (!existenceFilterProperties.isEnabled()) {
+            return loader.get();
+        }
+        Boolean mightContain;
+        try {
+            mightContain = mightContain(userId, path);
+        } catch (DataAccessException e) {
+            errors.increment();
+            log.warn("Can not check existence filter of user {}: {}", userId, e.getMessage());
+            return loader.get();
+        }
+        if (mightContain == null) {
+            return loader.get();
+        }
+        if (!mightContain) {
+            negatives.increment();
+            return false;
+        }
+        boolean exists = loader.get();
+        (exists ? truePositives : falsePositives).increment();
+        return exists;
+    }
+
+    public void reset(Long userId) {
+        if (!existenceFilterProperties.isEnabled()) {
+            return;
+        }
+        byte[] generationKey = bytes(formatGenerationKey(userId));
+        long ttlSeconds = existenceFilterProperties.getTtl().toSeconds();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.keyCommands().del(bytes(formatKey(userId)), bytes(formatMetaKey(userId)));
+                connection.stringCommands().incr(generationKey);
+                connection.keyCommands().expire(generationKey, ttlSeconds);
+                return null;
+            });
+        } catch (DataAccessException e) {
+            errors.increment();
+            log.error("Can not reset existence filter of user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void handleResourcesCreatedEvent(ResourcesCreatedEvent event) {
+        Set<String> paths = new LinkedHashSet<>();
+        for (StoredObject object : event.objects()) {
+            paths.add(object.path());
+            paths.addAll(StoragePath.ancestors(object.path()));
+        }
+        add(event.userId(), paths);
+    }
+
+    @EventListener
+    public void handleResourceDeletedEvent(ResourceDeletedEvent event) {
+        if (StoragePath.ofStored(event.path()).isRoot()) {
+            reset(event.userId());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleResourceMovedEvent(ResourceMovedEvent event) {
+        if (StoragePath.ofStored(event.newPath()).isDirectory()) {
+            reset(event.userId());
+            return;
+        }
+        Set<String> paths = new LinkedHashSet<>(StoragePath.ancestors(event.newPath()));
+        paths.add(event.newPath());
+        add(event.userId(), paths);
+    }
+
+    private Boolean mightContain(Long userId, String path) {
+        Long bits = filterBits(userId);
+        if (bits == null) {
+            return rebuild(userId, path);
+        }
+        if (bits == 0) {
+            return null;
+        }
+        List<byte[]> args = new ArrayList<>();
+        args.add(bytes(formatKey(userId)));
+        args.add(bytes(formatMetaKey(userId)));
+        args.add(bytes(bits.toString()));
+        for (long position : filter(bits).positions(path)) {
+            args.add(bytes(String.valueOf(position)));
+        }
+        Long result = eval(CHECK_SCRIPT, 2, args);
+        // the filter was replaced since its size was read
+        if (result == null || result < 0) {
+            return null;
+        }
+        return result == 1;
+    }
+
+    private Boolean rebuild(Long userId, String path) {
+        if (!resourceMetadataService.isIndexed(userId)) {
+            return null;
+        }
+        String generation = redisTemplate.opsForValue().get(formatGenerationKey(userId));
+        List<String> paths = resourceMetadataRepository.findPathsByUserId(userId);
+        long bits = bitsFor(paths.size());
+        BloomFilter filter = bits > 0 ? filter(bits) : null;
+        byte[] bitmap = filter != null ? filter.toBitmap(paths) : new byte[0];
+        long ttlSeconds = existenceFilterProperties.getTtl().toSeconds();
+        Long published = eval(PUBLISH_SCRIPT, 3, List.of(
+                bytes(formatKey(userId)),
+                bytes(formatMetaKey(userId)),
+                bytes(formatGenerationKey(userId)),
+                bytes(generation != null ? generation : "0"),
+                bitmap,
+                bytes(String.valueOf(bits)),
+                bytes(String.valueOf(paths.size())),
+                bytes(String.valueOf(ttlSeconds)),
+                bytes(String.valueOf(ttlSeconds + BITMAP_TTL_MARGIN_SECONDS))));
+        if (Long.valueOf(1).equals(published) && filter != null) {
+            memoryPerUser.record(bitmap.length);
+        }
+        return filter != null ? filter.mightContain(bitmap, path) : null;
+    }
+
+    private void add(Long userId, Collection<String> paths) {
+        if (!existenceFilterProperties.isEnabled() || paths.isEmpty()) {
+            return;
+        }
+        byte[] generationKey = bytes(formatGenerationKey(userId));
+        long ttlSeconds = existenceFilterProperties.getTtl().toSeconds();
+        try {
+            Long bits = filterBits(userId);
+            if (bits == null) {
+                // a build that is reading the metadata table right now may have missed these paths
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    connection.stringCommands().incr(generationKey);
+                    connection.keyCommands().expire(generationKey, ttlSeconds);
+                    return null;
+                });
+                return;
+            }
+            if (bits == 0) {
+                return;
+            }
+            BloomFilter filter = filter(bits);
+            List<byte[]> args = new ArrayList<>(List.of(
+                    bytes(formatKey(userId)),
+                    bytes(formatMetaKey(userId)),
+                    generationKey,
+                    bytes(bits.toString()),
+                    bytes(String.valueOf(paths.size())),
+                    bytes(String.valueOf(ttlSeconds)),
+                    bytes(String.valueOf(ttlSeconds + BITMAP_TTL_MARGIN_SECONDS))));
+            for (String path : paths) {
+                for (long position : filter.positions(path)) {
+                    args.add(bytes(String.valueOf(position)));
+                }
+            }
+            Long entries = eval(ADD_SCRIPT, 3, args);
+            if (entries != null && entries > filter.capacity()) {
+                reset(userId);
+            }
+        } catch (DataAccessException e) {
+            errors.increment();
+            log.warn("Can not update existence filter of user {}: {}", userId, e.getMessage());
+            reset(userId);
+        }
+    }
+
+    // 0 when the user has more paths than the largest filter holds
+    private long bitsFor(long entries) {
+        double falsePositiveRate = existenceFilterProperties.getFalsePositiveRate();
+        long maxBits = existenceFilterProperties.getMemoryPerUser().toBytes() * Byte.SIZE;
+        if (entries > filter(maxBits).capacity()) {
+            return 0;
+        }
+        return Math.min(BloomFilter.bitsFor(Math.max(entries * 2, MIN_CAPACITY), falsePositiveRate), maxBits);
+    }
+
+    private Long filterBits(Long userId) {
+        Object bits = redisTemplate.opsForHash().get(formatMetaKey(userId), BITS_FIELD);
+        return bits != null ? Long.valueOf((String) bits) : null;
+    }
+
+    private BloomFilter filter(long bits) {
+        return new BloomFilter(bits, existenceFilterProperties.getFalsePositiveRate());
+    }
+
+    private Long eval(byte[] script, int numKeys, List<byte[]> keysAndArgs) {
+        return redisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands()
+                .eval(script, ReturnType.INTEGER, numKeys, keysAndArgs.toArray(byte[][]::new)));
+    }
+
+    private double observedFalsePositiveRate() {
+        double falsePositiveCount = falsePositives.count();
+        double total = falsePositiveCount + negatives.count();
+        return total == 0 ? 0 : falsePositiveCount / total;
+    }
+
+    private String formatKey(Long userId) {
+        return String.format(KEY_FORMAT, userId);
+    }
+
+    private String formatMetaKey(Long userId) {
+        return String.format(META_KEY_FORMAT, userId);
+    }
+
+    private String formatGenerationKey(Long userId) {
+        return String.format(GENERATION_KEY_FORMAT, userId);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
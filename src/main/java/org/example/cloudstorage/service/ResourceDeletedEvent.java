@@ -0,0 +1,4 @@
+package org.example.cloudstorage.service;
+
+public record ResourceDeletedEvent(Long userId, String path) {
+}
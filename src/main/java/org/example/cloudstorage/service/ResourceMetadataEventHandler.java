@@ -0,0 +1,32 @@
+package org.example.cloudstorage.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class ResourceMetadataEventHandler {
+    private final ResourceMetadataService resourceMetadataService;
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void handleResourcesCreatedEvent(ResourcesCreatedEvent event) {
+        resourceMetadataService.save(event.userId(), event.objects());
+    }
+
+    // after the quota, which reads the size of the deleted subtree from the index
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void handleResourceDeletedEvent(ResourceDeletedEvent event) {
+        resourceMetadataService.delete(event.userId(), event.path());
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void handleResourceMovedEvent(ResourceMovedEvent event) {
+        resourceMetadataService.move(event.userId(), event.oldPath(), event.newPath());
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.cloudstorage.service;
+
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public interface ResourceMetadataService {
+
+    boolean isIndexed(Long userId);
+
+    void reindex(Long userId, Iterator<StoredObject> objects);
+
+    boolean exists(Long userId, String path);
+
+    long count(Long userId, String path);
+
+    Optional<ResourceInfoResponseDto> getInfo(Long userId, String path);
+
+    List<ResourceInfoResponseDto> getDirectoryContent(Long userId, String path);
+
+    DirectoryPage getDirectoryContent(Long userId, String path, DirectoryCursor after, int limit);
+
+    List<ResourceInfoResponseDto> search(Long userId, String query);
+
+    void search(Long userId, String query, long limit, Consumer<ResourceInfoResponseDto> consumer);
+
+    void save(Long userId, List<StoredObject> objects);
+
+    void delete(Long userId, String path);
+
+    void move(Long userId, String oldPath, String newPath);
+
+}
@@ -0,0 +1,300 @@
+package org.example.cloudstorage.service;
+
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.entity.ResourceMetadata;
+import org.example.cloudstorage.repository.ResourceMetadataRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.example.cloudstorage.service.StoragePath.ancestors;
+import static org.example.cloudstorage.service.StoragePath.escapeLike;
+
+@Service
+@RequiredArgsConstructor
+public class ResourceMetadataServiceImpl implements ResourceMetadataService {
+    private static final int REINDEX_BATCH_SIZE = 1000;
+    private static final int SEARCH_PAGE_SIZE = 500;
+
+    private final ResourceMetadataRepository resourceMetadataRepository;
+    private final ResourceSearchIndex resourceSearchIndex;
+    private final Set<Long> indexedUsers = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public boolean isIndexed(Long userId) {
+        if (indexedUsers.contains(userId)) {
+            return true;
+        }
+        if (resourceMetadataRepository.existsByUserIdAndPath(userId, StoragePath.ROOT.path())) {
+            indexedUsers.add(userId);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    @Transactional
+    public void reindex(Long userId, Iterator<StoredObject> objects) {
+        resourceMetadataRepository.lockUser(userId);
+        // a concurrent request may have built the index while this one waited for the lock
+        if (resourceMetadataRepository.existsByUserIdAndPath(userId, StoragePath.ROOT.path())) {
+            indexedUsers.add(userId);
+            return;
+        }
+        resourceMetadataRepository.deleteAllByUser(userId);
+        List<StoredObject> batch = new ArrayList<>(REINDEX_BATCH_SIZE);
+        while (objects.hasNext()) {
+            batch.add(objects.next());
+            if (batch.size() == REINDEX_BATCH_SIZE) {
+                upsert(userId, batch);
+                batch.clear();
+            }
+        }
+        upsert(userId, batch);
+        indexedUsers.add(userId);
+    }
+
+    @Override
+    public boolean exists(Long userId, String path) {
+        return resourceMetadataRepository.existsByUserIdAndPath(userId, path);
+    }
+
+    @Override
+    public long count(Long userId, String path) {
+        if (StoragePath.ofStored(path).isDirectory()) {
+            return resourceMetadataRepository.countSubtree(userId, path, escapeLike(path) + "%");
+        }
+        return exists(userId, path) ? 1 : 0;
+    }
+
+    @Override
+    public Optional<ResourceInfoResponseDto> getInfo(Long userId, String path) {
+        return resourceMetadataRepository.findByUserIdAndPath(userId, path).map(this::toResponseDto);
+    }
+
+    @Override
+    public List<ResourceInfoResponseDto> getDirectoryContent(Long userId, String path) {
+        return resourceMetadataRepository.findAllByUserIdAndParentOrderByTypeAscNameAsc(userId, path).stream()
+                .map(this::toResponseDto)
+                .toList();
+    }
+
+    @Override
+    public DirectoryPage getDirectoryContent(Long userId, String path, DirectoryCursor after, int limit) {
+        Limit pageLimit = Limit.of(limit + 1);
+        List<ResourceMetadata> entries = after == null
+                ? resourceMetadataRepository.findAllByUserIdAndParentOrderByTypeAscNameAsc(userId, path, pageLimit)
+                : resourceMetadataRepository.findDirectoryPageAfter(userId, path, after.type(), after.name(), pageLimit);
+        return DirectoryPage.of(entries, limit, this::toResponseDto,
+                metadata -> new DirectoryCursor(metadata.getType(), metadata.getName()));
+    }
+
+    @Override
+    public List<ResourceInfoResponseDto> search(Long userId, String query) {
+        if (resourceSearchIndex.isEnabled()) {
+            return resourceSearchIndex.search(userId, query);
+        }
+        String pattern = "%" + escapeLike(query.toLowerCase()) + "%";
+        return resourceMetadataRepository.searchByName(userId, pattern).stream()
+                .map(this::toResponseDto)
+                .toList();
+    }
+
+    // every page is read in its own short transaction, no connection is held while the consumer writes it
+    @Override
+    public void search(Long userId, String query, long limit, Consumer<ResourceInfoResponseDto> consumer) {
+        if (resourceSearchIndex.isEnabled()) {
+            resourceSearchIndex.search(userId, query, limit, consumer);
+            return;
+        }
+        String pattern = "%" + escapeLike(query.toLowerCase()) + "%";
+        String after = null;
+        long remaining = limit;
+        while (remaining > 0) {
+            int pageSize = (int) Math.min(remaining, SEARCH_PAGE_SIZE);
+            List<ResourceMetadata> page = after == null
+                    ? resourceMetadataRepository.searchByName(userId, pattern, Limit.of(pageSize))
+                    : resourceMetadataRepository.searchByNameAfter(userId, pattern, after, Limit.of(pageSize));
+            page.forEach(metadata -> consumer.accept(toResponseDto(metadata)));
+            if (page.size() < pageSize) {
+                return;
+            }
+            remaining -= pageSize;
+            after = page.getLast().getPath();
+        }
+    }
+
+    @Override
+    @Transactional
+    public void save(Long userId, List<StoredObject> objects) {
+        upsert(userId, objects);
+    }
+
+    @Override
+    @Transactional
+    public void delete(Long userId, String path) {
+        Optional<ResourceMetadata> target = resourceMetadataRepository.findByUserIdAndPath(userId, path);
+        if (StoragePath.ofStored(path).isDirectory()) {
+            resourceMetadataRepository.deleteSubtree(userId, path, escapeLike(path) + "%");
+        } else {
+            target.ifPresent(resourceMetadataRepository::delete);
+        }
+        target.ifPresent(metadata -> {
+            Map<String, DirectoryTotals> totals = new HashMap<>();
+            addToAll(totals, ancestors(path), -bytesOf(metadata), -filesOf(metadata));
+            addToDirectories(userId, totals);
+        });
+    }
+
+    @Override
+    @Transactional
+    public void move(Long userId, String oldPath, String newPath) {
+        Optional<ResourceMetadata> source = resourceMetadataRepository.findByUserIdAndPath(userId, oldPath);
+        if (source.isEmpty()) {
+            return;
+        }
+        upsert(userId, List.of(), ancestors(newPath));
+        ResourceMetadata metadata = source.get();
+        long bytes = bytesOf(metadata);
+        long files = filesOf(metadata);
+        metadata.setPath(newPath);
+        StoragePath target = StoragePath.ofStored(newPath);
+        metadata.setParent(target.parent());
+        metadata.setName(target.name());
+        resourceMetadataRepository.saveAndFlush(metadata);
+        if (metadata.isDirectory()) {
+            resourceMetadataRepository.moveDescendants(userId, escapeLike(oldPath) + "%", newPath, oldPath.length());
+        }
+        Map<String, DirectoryTotals> totals = new HashMap<>();
+        addToAll(totals, ancestors(oldPath), -bytes, -files);
+        addToAll(totals, ancestors(newPath), bytes, files);
+        addToDirectories(userId, totals);
+    }
+
+    private void upsert(Long userId, List<StoredObject> objects) {
+        Set<String> paths = new LinkedHashSet<>();
+        for (StoredObject object : objects) {
+            paths.addAll(ancestors(object.path()));
+        }
+        upsert(userId, objects, paths);
+    }
+
+    private void upsert(Long userId, List<StoredObject> objects, Set<String> ancestors) {
+        Map<String, StoredObject> objectsByPath = objects.stream()
+                .collect(Collectors.toMap(StoredObject::path, Function.identity(), (first, second) -> second, LinkedHashMap::new));
+        Set<String> paths = new LinkedHashSet<>(ancestors);
+        paths.addAll(objectsByPath.keySet());
+        if (paths.isEmpty()) {
+            return;
+        }
+
+        Map<String, ResourceMetadata> existing = resourceMetadataRepository.findAllByUserIdAndPathIn(userId, paths).stream()
+                .collect(Collectors.toMap(ResourceMetadata::getPath, Function.identity()));
+        List<ResourceMetadata> changed = new ArrayList<>();
+        Map<String, DirectoryTotals> totals = new HashMap<>();
+        for (String path : paths) {
+            StoredObject object = objectsByPath.get(path);
+            ResourceMetadata metadata = existing.get(path);
+            if (metadata != null && object == null) {
+                continue;
+            }
+            boolean created = metadata == null;
+            if (created) {
+                metadata = new ResourceMetadata(userId, path);
+            }
+            StoragePath storagePath = StoragePath.ofStored(path);
+            metadata.setParent(storagePath.isRoot() ? null : storagePath.parent());
+            metadata.setName(storagePath.name());
+            metadata.setType(storagePath.isDirectory() ? ResourceMetadata.TYPE_DIRECTORY : ResourceMetadata.TYPE_FILE);
+            if (storagePath.isDirectory()) {
+                if (created) {
+                    metadata.setSize(0L);
+                    metadata.setFileCount(0L);
+                }
+            } else {
+                addToAll(totals, ancestors(path), object.size() - (created ? 0 : bytesOf(metadata)), created ? 1 : 0);
+                metadata.setSize(object.size());
+            }
+            metadata.setEtag(object != null ? object.etag() : null);
+            metadata.setModifiedAt(object != null && object.modifiedAt() != null ? object.modifiedAt() : Instant.now());
+            changed.add(metadata);
+        }
+        resourceMetadataRepository.saveAll(changed);
+        addToDirectories(userId, totals);
+    }
+
+    private void addToAll(Map<String, DirectoryTotals> totals, Collection<String> paths, long bytes, long files) {
+        for (String path : paths) {
+            totals.computeIfAbsent(path, key -> new DirectoryTotals()).add(bytes, files);
+        }
+    }
+
+    // all directories change in one statement, which locks them in path order
+    private void addToDirectories(Long userId, Map<String, DirectoryTotals> totals) {
+        List<Map.Entry<String, DirectoryTotals>> changes = new TreeMap<>(totals).entrySet().stream()
+                .filter(change -> change.getValue().bytes() != 0 || change.getValue().files() != 0)
+                .toList();
+        if (changes.isEmpty()) {
+            return;
+        }
+        resourceMetadataRepository.addToDirectories(userId,
+                changes.stream().map(Map.Entry::getKey).toArray(String[]::new),
+                changes.stream().map(change -> change.getValue().bytes()).toArray(Long[]::new),
+                changes.stream().map(change -> change.getValue().files()).toArray(Long[]::new));
+    }
+
+    private long bytesOf(ResourceMetadata metadata) {
+        return metadata.getSize() != null ? metadata.getSize() : 0;
+    }
+
+    private long filesOf(ResourceMetadata metadata) {
+        if (!metadata.isDirectory()) {
+            return 1;
+        }
+        return metadata.getFileCount() != null ? metadata.getFileCount() : 0;
+    }
+
+    private ResourceInfoResponseDto toResponseDto(ResourceMetadata metadata) {
+        String parent = metadata.getParent() != null ? metadata.getParent() : StoragePath.ROOT.path();
+        return metadata.isDirectory()
+                ? new ResourceInfoResponseDto(parent, metadata.getName() + "/", metadata.getSize(),
+                        ResourceMetadata.TYPE_DIRECTORY, metadata.getFileCount())
+                : new ResourceInfoResponseDto(parent, metadata.getName(), metadata.getSize(), ResourceMetadata.TYPE_FILE);
+    }
+
+    private static final class DirectoryTotals {
+        private long bytes;
+        private long files;
+
+        void add(long bytes, long files) {
+            this.bytes += bytes;
+            this.files += files;
+        }
+
+        long bytes() {
+            return bytes;
+        }
+
+        long files() {
+            return files;
+        }
+    }
+}
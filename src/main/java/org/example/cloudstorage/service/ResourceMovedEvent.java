@@ -0,0 +1,4 @@
+package org.example.cloudstorage.service;
+
+public record ResourceMovedEvent(Long userId, String oldPath, String newPath) {
+}
@@ -0,0 +1,213 @@
+package org.example.cloudstorage.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.cloudstorage.config.SearchIndexProperties;
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.entity.ResourceMetadata;
+import org.example.cloudstorage.repository.ResourceMetadataRepository;
+import org.example.cloudstorage.repository.ResourcePathSize;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Keeps a name index per user in memory, loaded from the metadata table on the first search and
+ * updated from storage events afterwards. Least recently searched users are evicted once the
+ * estimated size of all indexes exceeds the configured memory budget.
+ * <p>
+ * While any node holds the index of a user, Redis keeps a version for it: a random epoch chosen by
+ * the first load and a count of changes. Changes of a user on this node are applied one at a time,
+ * each one has to find the count right after the one the index last saw, otherwise a change made on
+ * another node was missed and the index is dropped. The version expires after a while without
+ * searches or changes; changes of users nobody holds an index for do not touch Redis.
+ */
+@Component
+@RequiredArgsConstructor
+public class ResourceSearchIndex {
+    private static final int SEARCH_PAGE_SIZE = 500;
+    private static final int USER_LOCKS = 64;
+    private static final String VERSION_KEY_FORMAT = "cloudstorage:search-index:{%d}:version";
+
+    private static final RedisScript<String> TOUCH = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                redis.call('HSET', KEYS[1], 'epoch', ARGV[1], 'count', '0')
+            end
+            redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            local version = redis.call('HMGET', KEYS[1], 'epoch', 'count')
+            return version[1] .. ':' .. version[2]
+            """, String.class);
+
+    private static final RedisScript<String> BUMP = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return false
+            end
+            local count = redis.call('HINCRBY', KEYS[1], 'count', 1)
+            redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            return redis.call('HGET', KEYS[1], 'epoch') .. ':' .. count
+            """, String.class);
+
+    private final SearchIndexProperties searchIndexProperties;
+    private final ResourceMetadataRepository resourceMetadataRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final LinkedHashMap<Long, UserSearchIndex> indexes = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, Long> generations = new HashMap<>();
+    private final Map<Long, Version> versions = new HashMap<>();
+    private final Object[] userLocks = IntStream.range(0, USER_LOCKS).mapToObj(i -> new Object()).toArray();
+
+    public boolean isEnabled() {
+        return searchIndexProperties.isEnabled();
+    }
+
+    public List<ResourceInfoResponseDto> search(Long userId, String query) {
+        return getOrLoad(userId).search(query).stream()
+                .map(this::toResponseDto)
+                .toList();
+    }
+
+    // matches are handed out page by page, the index is not locked while the consumer writes them
+    public void search(Long userId, String query, long limit, Consumer<ResourceInfoResponseDto> consumer) {
+        UserSearchIndex index = getOrLoad(userId);
+        String after = null;
+        long remaining = limit;
+        while (remaining > 0) {
+            int pageSize = (int) Math.min(remaining, SEARCH_PAGE_SIZE);
+            List<UserSearchIndex.Entry> page = index.search(query, after, pageSize);
+            page.forEach(entry -> consumer.accept(toResponseDto(entry)));
+            if (page.size() < pageSize) {
+                return;
+            }
+            remaining -= pageSize;
+            after = page.getLast().path();
+        }
+    }
+
+    @EventListener
+    public void handleResourcesCreatedEvent(ResourcesCreatedEvent event) {
+        update(event.userId(), index -> event.objects().forEach(object -> index.add(object.path(), object.size())));
+    }
+
+    @EventListener
+    public void handleResourceDeletedEvent(ResourceDeletedEvent event) {
+        update(event.userId(), index -> index.remove(event.path()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleResourceMovedEvent(ResourceMovedEvent event) {
+        update(event.userId(), index -> index.move(event.oldPath(), event.newPath()));
+    }
+
+    private void update(Long userId, Consumer<UserSearchIndex> change) {
+        if (!isEnabled()) {
+            return;
+        }
+        UserSearchIndex index;
+        // a local change bumps the version and is applied before the next one bumps it again
+        synchronized (userLocks[Math.floorMod(userId.hashCode(), USER_LOCKS)]) {
+            Version version = Version.parse(redisTemplate.execute(BUMP, List.of(versionKey(userId)), ttlMillis()));
+            synchronized (indexes) {
+                generations.merge(userId, 1L, Long::sum);
+                index = indexes.get(userId);
+                if (index != null && (version == null || !version.follows(versions.get(userId)))) {
+                    // another node changed the user since the index was last in sync
+                    drop(userId);
+                    index = null;
+                } else if (index != null) {
+                    versions.put(userId, version);
+                }
+            }
+            if (index != null) {
+                change.accept(index);
+            }
+        }
+        if (index != null) {
+            evictOverBudget();
+        }
+    }
+
+    private UserSearchIndex getOrLoad(Long userId) {
+        Version version = Version.parse(redisTemplate.execute(TOUCH, List.of(versionKey(userId)),
+                UUID.randomUUID().toString(), ttlMillis()));
+        long generation;
+        synchronized (indexes) {
+            UserSearchIndex index = indexes.get(userId);
+            if (index != null && version.equals(versions.get(userId))) {
+                return index;
+            }
+            drop(userId);
+            generation = generations.getOrDefault(userId, 0L);
+        }
+
+        UserSearchIndex loaded = new UserSearchIndex();
+        for (ResourcePathSize resource : resourceMetadataRepository.findPathSizesByUserId(userId)) {
+            loaded.add(resource.path(), resource.size());
+        }
+
+        synchronized (indexes) {
+            if (generations.getOrDefault(userId, 0L) == generation && indexes.putIfAbsent(userId, loaded) == null) {
+                versions.put(userId, version);
+            }
+        }
+        evictOverBudget();
+        return loaded;
+    }
+
+    private void evictOverBudget() {
+        synchronized (indexes) {
+            long totalBytes = indexes.values().stream().mapToLong(UserSearchIndex::estimatedBytes).sum();
+            long budget = searchIndexProperties.getMemoryBudget().toBytes();
+            Iterator<Map.Entry<Long, UserSearchIndex>> eldest = indexes.entrySet().iterator();
+            while (totalBytes > budget && indexes.size() > 1 && eldest.hasNext()) {
+                Map.Entry<Long, UserSearchIndex> entry = eldest.next();
+                totalBytes -= entry.getValue().estimatedBytes();
+                versions.remove(entry.getKey());
+                eldest.remove();
+            }
+        }
+    }
+
+    private void drop(Long userId) {
+        indexes.remove(userId);
+        versions.remove(userId);
+    }
+
+    private String versionKey(Long userId) {
+        return String.format(VERSION_KEY_FORMAT, userId);
+    }
+
+    private String ttlMillis() {
+        return Long.toString(searchIndexProperties.getVersionTtl().toMillis());
+    }
+
+    private ResourceInfoResponseDto toResponseDto(UserSearchIndex.Entry entry) {
+        return entry.size() == null
+                ? new ResourceInfoResponseDto(entry.parent(), entry.name() + "/", ResourceMetadata.TYPE_DIRECTORY)
+                : new ResourceInfoResponseDto(entry.parent(), entry.name(), entry.size(), ResourceMetadata.TYPE_FILE);
+    }
+
+    private record Version(String epoch, long count) {
+
+        static Version parse(String version) {
+            if (version == null) {
+                return null;
+            }
+            int separator = version.lastIndexOf(':');
+            return new Version(version.substring(0, separator), Long.parseLong(version.substring(separator + 1)));
+        }
+
+        boolean follows(Version previous) {
+            return previous != null && epoch.equals(previous.epoch()) && count == previous.count() + 1;
+        }
+    }
+}
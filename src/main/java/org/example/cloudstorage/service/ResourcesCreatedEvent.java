@@ -0,0 +1,6 @@
+package org.example.cloudstorage.service;
+
+import java.util.List;
+
+public record ResourcesCreatedEvent(Long userId, List<StoredObject> objects) {
+}
@@ -0,0 +1,17 @@
+package org.example.cloudstorage.service;
+
+public record StorageJob(String id, Long userId, Type type, String path, String targetPath, Status status,
+                         long processed, long total, String error) {
+
+    public enum Type {
+        DELETE,
+        MOVE
+    }
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.cloudstorage.service;
+
+import org.example.cloudstorage.dto.response.storage.StorageJobResponseDto;
+
+import java.util.Optional;
+
+public interface StorageJobService {
+
+    Optional<StorageJobResponseDto> deleteInBackground(Long userId, String path);
+
+    Optional<StorageJobResponseDto> moveInBackground(Long userId, String oldPath, String newPath);
+
+    StorageJobResponseDto getJob(Long userId, String jobId);
+
+}
@@ -0,0 +1,204 @@
+package org.example.cloudstorage.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.cloudstorage.config.StorageJobProperties;
+import org.example.cloudstorage.dto.response.storage.StorageJobResponseDto;
+import org.example.cloudstorage.exception.ResourceAlreadyExistsException;
+import org.example.cloudstorage.exception.ResourceNotFoundException;
+import org.example.cloudstorage.repository.FileStorageRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+
+/**
+ * Runs deletes and moves of large directories on a worker pool instead of the request thread.
+ * Every node renews the leases of the jobs it runs on its own scheduler thread and picks up
+ * unfinished jobs whose lease has expired, so jobs interrupted by a restart are resumed. Storage
+ * operations are restartable: a resumed delete removes what is left and a resumed move copies the
+ * remaining source again, or only removes what is left of the source once it has been moved.
+ */
+@Slf4j
+@Service
+public class StorageJobServiceImpl implements StorageJobService {
+    private static final long PROGRESS_BATCH = 100;
+
+    private final FileStorageRepository fileStorageRepository;
+    private final StorageJobStore storageJobStore;
+    private final StorageJobProperties storageJobProperties;
+    private final ExecutorService storageJobExecutor;
+    private final ScheduledExecutorService storageJobLeaseScheduler;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Set<String> runningJobs = ConcurrentHashMap.newKeySet();
+
+    public StorageJobServiceImpl(FileStorageRepository fileStorageRepository, StorageJobStore storageJobStore,
+                                 StorageJobProperties storageJobProperties,
+                                 @Qualifier("storageJobExecutor") ExecutorService storageJobExecutor,
+                                 @Qualifier("storageJobLeaseScheduler") ScheduledExecutorService storageJobLeaseScheduler) {
+        this.fileStorageRepository = fileStorageRepository;
+        this.storageJobStore = storageJobStore;
+        this.storageJobProperties = storageJobProperties;
+        this.storageJobExecutor = storageJobExecutor;
+        this.storageJobLeaseScheduler = storageJobLeaseScheduler;
+    }
+
+    @PostConstruct
+    void scheduleLeaseRenewal() {
+        long interval = storageJobProperties.getHeartbeatInterval().toMillis();
+        storageJobLeaseScheduler.scheduleWithFixedDelay(this::renewLeases, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Optional<StorageJobResponseDto> deleteInBackground(Long userId, String path) {
+        long objects = countLargeDirectory(userId, path);
+        if (objects == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(submit(storageJobStore.create(userId, StorageJob.Type.DELETE, path, null, objects)));
+    }
+
+    @Override
+    public Optional<StorageJobResponseDto> moveInBackground(Long userId, String oldPath, String newPath) {
+        long objects = countLargeDirectory(userId, oldPath);
+        if (objects == 0) {
+            return Optional.empty();
+        }
+        if (fileStorageRepository.countObjects(userId, newPath) > 0) {
+            throw new ResourceAlreadyExistsException("Object already exists");
+        }
+        // every object is copied and then removed
+        return Optional.of(submit(storageJobStore.create(userId, StorageJob.Type.MOVE, oldPath, newPath, 2 * objects)));
+    }
+
+    @Override
+    public StorageJobResponseDto getJob(Long userId, String jobId) {
+        return storageJobStore.find(userId, jobId)
+                .map(this::toResponseDto)
+                .orElseThrow(() -> new ResourceNotFoundException("Job does not exists"));
+    }
+
+    void renewLeases() {
+        try {
+            runningJobs.forEach(id -> storageJobStore.renew(id, nodeId));
+        } catch (RuntimeException e) {
+            // an exception would cancel the renewal for good
+            log.warn("Can not renew storage job leases: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cloudstorage.storage.jobs.heartbeat-interval:10s}")
+    public void resumeAbandonedJobs() {
+        if (!storageJobProperties.isEnabled()) {
+            return;
+        }
+        try {
+            for (String id : storageJobStore.findActiveIds()) {
+                if (!runningJobs.contains(id)) {
+                    dispatch(id);
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Can not check storage jobs: {}", e.getMessage());
+        }
+    }
+
+    private long countLargeDirectory(Long userId, String path) {
+        if (!storageJobProperties.isEnabled() || !StoragePath.ofStored(path).isDirectory()) {
+            return 0;
+        }
+        long objects = fileStorageRepository.countObjects(userId, path);
+        return objects > storageJobProperties.getObjectThreshold() ? objects : 0;
+    }
+
+    private StorageJobResponseDto submit(StorageJob job) {
+        dispatch(job.id());
+        return toResponseDto(job);
+    }
+
+    private void dispatch(String id) {
+        if (!storageJobStore.acquire(id, nodeId)) {
+            return;
+        }
+        runningJobs.add(id);
+        try {
+            storageJobExecutor.execute(() -> run(id));
+        } catch (RejectedExecutionException e) {
+            runningJobs.remove(id);
+            storageJobStore.release(id, nodeId);
+        }
+    }
+
+    private void run(String id) {
+        try {
+            storageJobStore.find(id).ifPresent(this::execute);
+        } catch (RuntimeException e) {
+            log.error("Storage job {} failed: {}", id, e.getMessage());
+        } finally {
+            runningJobs.remove(id);
+            storageJobStore.release(id, nodeId);
+        }
+    }
+
+    private void execute(StorageJob job) {
+        boolean resumed = job.status() == StorageJob.Status.RUNNING;
+        if (job.status() == StorageJob.Status.COMPLETED || job.status() == StorageJob.Status.FAILED) {
+            return;
+        }
+        storageJobStore.start(job.id());
+        Progress progress = new Progress(job.id());
+        try {
+            switch (job.type()) {
+                case DELETE -> fileStorageRepository.delete(job.userId(), job.path(), progress);
+                case MOVE -> fileStorageRepository.rename(job.userId(), job.path(), job.targetPath(), progress);
+            }
+        } catch (ResourceNotFoundException e) {
+            if (!resumed) {
+                storageJobStore.fail(job.id(), e.getMessage());
+                return;
+            }
+            // the previous run finished the work but not the bookkeeping
+        } catch (RuntimeException e) {
+            log.warn("Storage job {} of user {} failed: {}", job.id(), job.userId(), e.getMessage());
+            storageJobStore.fail(job.id(), e.getMessage());
+            return;
+        }
+        storageJobStore.complete(job.id(), job.total());
+    }
+
+    private StorageJobResponseDto toResponseDto(StorageJob job) {
+        return new StorageJobResponseDto(job.id(), job.type().name(), job.status().name(), job.path(), job.targetPath(),
+                Math.min(job.processed(), job.total()), job.total(), job.error());
+    }
+
+    private class Progress implements LongConsumer {
+        private final String jobId;
+        private final AtomicLong pending = new AtomicLong();
+
+        private Progress(String jobId) {
+            this.jobId = jobId;
+        }
+
+        @Override
+        public void accept(long processed) {
+            if (pending.addAndGet(processed) >= PROGRESS_BATCH) {
+                long batch = pending.getAndSet(0);
+                if (batch > 0) {
+                    storageJobStore.addProgress(jobId, batch);
+                }
+            }
+        }
+    }
+}
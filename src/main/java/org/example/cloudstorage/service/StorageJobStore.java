@@ -0,0 +1,141 @@
+package org.example.cloudstorage.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.cloudstorage.config.StorageJobProperties;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps background jobs in one Redis hash per job and the ids of unfinished jobs in a shared set.
+ * A job is executed by the node holding its lease, a lease that is not renewed lets another node
+ * pick the job up again.
+ */
+@Component
+@RequiredArgsConstructor
+public class StorageJobStore {
+    private static final String KEY_FORMAT = "cloudstorage:job:%s";
+    private static final String LEASE_KEY_FORMAT = "cloudstorage:job:%s:lease";
+    private static final String ACTIVE_KEY = "cloudstorage:jobs:active";
+    private static final String USER_ID = "userId";
+    private static final String TYPE = "type";
+    private static final String PATH = "path";
+    private static final String TARGET_PATH = "targetPath";
+    private static final String STATUS = "status";
+    private static final String PROCESSED = "processed";
+    private static final String TOTAL = "total";
+    private static final String ERROR = "error";
+
+    // the lease is only touched while it still belongs to the caller
+    private static final RedisScript<Long> RENEW = RedisScript.of("""
+            if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+                return 0
+            end
+            return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            """, Long.class);
+
+    private static final RedisScript<Long> RELEASE = RedisScript.of("""
+            if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+                return 0
+            end
+            return redis.call('DEL', KEYS[1])
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final StorageJobProperties storageJobProperties;
+
+    public StorageJob create(Long userId, StorageJob.Type type, String path, String targetPath, long total) {
+        StorageJob job = new StorageJob(UUID.randomUUID().toString(), userId, type, path, targetPath,
+                StorageJob.Status.PENDING, 0, total, null);
+        Map<String, String> fields = new HashMap<>(Map.of(
+                USER_ID, userId.toString(),
+                TYPE, type.name(),
+                PATH, path,
+                STATUS, job.status().name(),
+                PROCESSED, "0",
+                TOTAL, Long.toString(total)));
+        if (targetPath != null) {
+            fields.put(TARGET_PATH, targetPath);
+        }
+        redisTemplate.opsForHash().putAll(formatKey(job.id()), fields);
+        redisTemplate.opsForSet().add(ACTIVE_KEY, job.id());
+        return job;
+    }
+
+    public Optional<StorageJob> find(String id) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(formatKey(id));
+        if (fields.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new StorageJob(id,
+                Long.valueOf((String) fields.get(USER_ID)),
+                StorageJob.Type.valueOf((String) fields.get(TYPE)),
+                (String) fields.get(PATH),
+                (String) fields.get(TARGET_PATH),
+                StorageJob.Status.valueOf((String) fields.get(STATUS)),
+                Long.parseLong((String) fields.getOrDefault(PROCESSED, "0")),
+                Long.parseLong((String) fields.getOrDefault(TOTAL, "0")),
+                (String) fields.get(ERROR)));
+    }
+
+    public Optional<StorageJob> find(Long userId, String id) {
+        return find(id).filter(job -> job.userId().equals(userId));
+    }
+
+    public Set<String> findActiveIds() {
+        Set<String> ids = redisTemplate.opsForSet().members(ACTIVE_KEY);
+        return ids != null ? ids : Set.of();
+    }
+
+    public boolean acquire(String id, String owner) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(formatLeaseKey(id), owner, storageJobProperties.getLeaseTtl()));
+    }
+
+    public void renew(String id, String owner) {
+        redisTemplate.execute(RENEW, List.of(formatLeaseKey(id)), owner,
+                Long.toString(storageJobProperties.getLeaseTtl().toMillis()));
+    }
+
+    public void release(String id, String owner) {
+        redisTemplate.execute(RELEASE, List.of(formatLeaseKey(id)), owner);
+    }
+
+    public void start(String id) {
+        redisTemplate.opsForHash().putAll(formatKey(id), Map.of(STATUS, StorageJob.Status.RUNNING.name(), PROCESSED, "0"));
+    }
+
+    public void addProgress(String id, long processed) {
+        redisTemplate.opsForHash().increment(formatKey(id), PROCESSED, processed);
+    }
+
+    public void complete(String id, long total) {
+        finish(id, Map.of(STATUS, StorageJob.Status.COMPLETED.name(), PROCESSED, Long.toString(total)));
+    }
+
+    public void fail(String id, String error) {
+        finish(id, Map.of(STATUS, StorageJob.Status.FAILED.name(), ERROR, error != null ? error : "Unknown error"));
+    }
+
+    private void finish(String id, Map<String, String> fields) {
+        String key = formatKey(id);
+        redisTemplate.opsForHash().putAll(key, fields);
+        redisTemplate.expire(key, storageJobProperties.getRetention());
+        redisTemplate.opsForSet().remove(ACTIVE_KEY, id);
+    }
+
+    private String formatKey(String id) {
+        return String.format(KEY_FORMAT, id);
+    }
+
+    private String formatLeaseKey(String id) {
+        return String.format(LEASE_KEY_FORMAT, id);
+    }
+}
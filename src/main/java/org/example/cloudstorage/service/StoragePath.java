@@ -0,0 +1,160 @@
+package org.example.cloudstorage.service;
+
+import org.example.cloudstorage.exception.InvalidResourcePathException;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Path of a resource relative to the user's root, such as {@code docs/report.pdf} or {@code docs/},
+ * optionally still carrying the user prefix of the object key it was parsed from. Parent and name are
+ * kept as offsets into the original string, so parsing a listed key allocates nothing until one of
+ * the views is requested.
+ */
+public final class StoragePath {
+    public static final StoragePath ROOT = new StoragePath("", 0);
+
+    private static final String USER_PREFIX_START = "user-${";
+    private static final String USER_PREFIX_END = "}-files/";
+    private static final char SEPARATOR = '/';
+
+    private final String value;
+    private final int start;
+    private final int nameStart;
+    private final int nameEnd;
+
+    private StoragePath(String value, int start) {
+        this.value = value;
+        this.start = start;
+        this.nameEnd = value.length() > start && value.charAt(value.length() - 1) == SEPARATOR
+                ? value.length() - 1
+                : value.length();
+        this.nameStart = Math.max(value.lastIndexOf(SEPARATOR, nameEnd - 1) + 1, start);
+    }
+
+    /**
+     * Parses a path received from a client, rejecting it like {@link #validate(String)}.
+     */
+    public static StoragePath of(String path) {
+        validate(path);
+        return path.isEmpty() ? ROOT : new StoragePath(path, 0);
+    }
+
+    /**
+     * Rejects a path received from a client if it is absolute or contains backslashes, empty
+     * segments, {@code .} and {@code ..} segments or control characters.
+     */
+    public static void validate(String path) {
+        if (path == null) {
+            throw new InvalidResourcePathException("Path is missing");
+        }
+        int segmentStart = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            char c = i < path.length() ? path.charAt(i) : SEPARATOR;
+            if (c == '\\' || Character.isISOControl(c)) {
+                throw new InvalidResourcePathException("Path contains illegal characters: " + path);
+            }
+            if (c != SEPARATOR) {
+                continue;
+            }
+            int segmentLength = i - segmentStart;
+            if ((segmentLength == 0 && i < path.length())
+                    || (segmentLength == 1 && path.charAt(segmentStart) == '.')
+                    || (segmentLength == 2 && path.charAt(segmentStart) == '.' && path.charAt(segmentStart + 1) == '.')) {
+                throw new InvalidResourcePathException("Path contains illegal segments: " + path);
+            }
+            segmentStart = i + 1;
+        }
+    }
+
+    /**
+     * Wraps a relative path read back from storage or the metadata index, without validating it.
+     */
+    public static StoragePath ofStored(String path) {
+        return path.isEmpty() ? ROOT : new StoragePath(path, 0);
+    }
+
+    /**
+     * Wraps an object key listed from storage. Keys are trusted and only the user prefix is skipped.
+     */
+    public static StoragePath ofObjectKey(String objectKey) {
+        return new StoragePath(objectKey, objectKey.indexOf(SEPARATOR) + 1);
+    }
+
+    public static String userPrefix(Long userId) {
+        return USER_PREFIX_START + userId + USER_PREFIX_END;
+    }
+
+    /**
+     * Directories containing a stored path, nearest first and ending with the root. The root itself
+     * has no ancestors.
+     */
+    static Set<String> ancestors(String path) {
+        Set<String> ancestors = new LinkedHashSet<>();
+        if (path.isEmpty()) {
+            return ancestors;
+        }
+        int end = path.charAt(path.length() - 1) == SEPARATOR ? path.length() - 1 : path.length();
+        for (int i = path.lastIndexOf(SEPARATOR, end - 1); i >= 0; i = path.lastIndexOf(SEPARATOR, i - 1)) {
+            ancestors.add(path.substring(0, i + 1));
+        }
+        ancestors.add(ROOT.path());
+        return ancestors;
+    }
+
+    static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    public String path() {
+        return start == 0 ? value : value.substring(start);
+    }
+
+    /**
+     * Parent directory with a trailing slash, or an empty string for entries of the root.
+     */
+    public String parent() {
+        return value.substring(start, nameStart);
+    }
+
+    /**
+     * Last segment without the trailing slash of directories.
+     */
+    public String name() {
+        return value.substring(nameStart, nameEnd);
+    }
+
+    public boolean isRoot() {
+        return value.length() == start;
+    }
+
+    public boolean isDirectory() {
+        return isRoot() || nameEnd < value.length();
+    }
+
+    public String objectKey(Long userId) {
+        return userPrefix(userId) + path();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StoragePath other)) {
+            return false;
+        }
+        return value.length() - start == other.value.length() - other.start
+                && value.regionMatches(start, other.value, other.start, value.length() - start);
+    }
+
+    @Override
+    public int hashCode() {
+        return path().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path();
+    }
+}
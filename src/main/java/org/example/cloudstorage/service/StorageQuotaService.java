@@ -0,0 +1,20 @@
+package org.example.cloudstorage.service;
+
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.dto.response.storage.StorageUsageResponseDto;
+
+import java.util.function.Supplier;
+
+public interface StorageQuotaService {
+
+    <T> T withReservation(Long userId, long bytes, Supplier<T> save);
+
+    <T> T withUploadReservation(Long userId, String uploadId, long bytes, Supplier<T> uploadPart);
+
+    ResourceInfoResponseDto commitUpload(Long userId, String uploadId, Supplier<ResourceInfoResponseDto> completeUpload);
+
+    void releaseUpload(Long userId, String uploadId);
+
+    StorageUsageResponseDto getUsage(Long userId);
+
+}
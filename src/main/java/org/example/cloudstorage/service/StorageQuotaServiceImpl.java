@@ -0,0 +1,147 @@
+package org.example.cloudstorage.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.cloudstorage.config.StorageQuotaProperties;
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.dto.response.storage.StorageUsageResponseDto;
+import org.example.cloudstorage.exception.QuotaExceededException;
+import org.example.cloudstorage.repository.FileStorageRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Enforces the storage quota of every user with counters kept in Redis. Uploads reserve their size
+ * before any byte is stored and turn the reservation into used bytes once they are stored, deletes
+ * subtract the size recorded in the metadata index. The counters of a user are measured once when
+ * first needed and reconciled against the storage periodically to correct drift, unless they
+ * changed while the storage was listed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StorageQuotaServiceImpl implements StorageQuotaService {
+    private final FileStorageRepository fileStorageRepository;
+    private final ResourceMetadataService resourceMetadataService;
+    private final StorageQuotaStore storageQuotaStore;
+    private final StorageQuotaProperties storageQuotaProperties;
+
+    @Override
+    public <T> T withReservation(Long userId, long bytes, Supplier<T> save) {
+        String reservationId = UUID.randomUUID().toString();
+        reserve(userId, reservationId, bytes);
+        T result;
+        try {
+            result = save.get();
+        } catch (RuntimeException e) {
+            storageQuotaStore.release(userId, reservationId);
+            throw e;
+        }
+        storageQuotaStore.commit(userId, reservationId, bytes);
+        return result;
+    }
+
+    @Override
+    public <T> T withUploadReservation(Long userId, String uploadId, long bytes, Supplier<T> uploadPart) {
+        reserve(userId, uploadId, bytes);
+        try {
+            return uploadPart.get();
+        } catch (RuntimeException e) {
+            storageQuotaStore.release(userId, uploadId, bytes);
+            throw e;
+        }
+    }
+
+    @Override
+    public ResourceInfoResponseDto commitUpload(Long userId, String uploadId, Supplier<ResourceInfoResponseDto> completeUpload) {
+        ResourceInfoResponseDto object = completeUpload.get();
+        storageQuotaStore.commit(userId, uploadId, object.getSize() != null ? object.getSize() : 0);
+        return object;
+    }
+
+    @Override
+    public void releaseUpload(Long userId, String uploadId) {
+        storageQuotaStore.release(userId, uploadId);
+    }
+
+    @Override
+    public StorageUsageResponseDto getUsage(Long userId) {
+        StorageUsage usage = storageQuotaStore.find(userId, limit())
+                .orElseGet(() -> {
+                    initialize(userId);
+                    return storageQuotaStore.find(userId, limit()).orElseThrow();
+                });
+        return new StorageUsageResponseDto(usage.used(), usage.reserved(), usage.limit());
+    }
+
+    // runs before the metadata of the deleted subtree is removed
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void handleResourceDeletedEvent(ResourceDeletedEvent event) {
+        try {
+            resourceMetadataService.getInfo(event.userId(), event.path())
+                    .map(ResourceInfoResponseDto::getSize)
+                    .filter(size -> size > 0)
+                    .ifPresent(size -> storageQuotaStore.adjust(event.userId(), -size));
+        } catch (DataAccessException e) {
+            log.warn("Can not update the storage usage of user {}: {}", event.userId(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cloudstorage.storage.quota.reconcile-interval:6h}",
+            initialDelayString = "${cloudstorage.storage.quota.reconcile-interval:6h}")
+    public void reconcile() {
+        try {
+            if (!storageQuotaStore.acquireReconcileLease(storageQuotaProperties.getReconcileInterval())) {
+                return;
+            }
+            storageQuotaStore.findUserIds().forEach(this::reconcile);
+        } catch (DataAccessException e) {
+            log.warn("Can not reconcile storage usage: {}", e.getMessage());
+        }
+    }
+
+    void reconcile(Long userId) {
+        try {
+            long version = storageQuotaStore.version(userId);
+            long used = fileStorageRepository.usedBytes(userId);
+            // a change counted while the storage was listed may or may not be in the listing, the next run retries
+            storageQuotaStore.reconcile(userId, version, used).ifPresentOrElse(
+                    previous -> {
+                        if (previous != used) {
+                            log.info("Corrected storage usage of user {} by {} bytes", userId, used - previous);
+                        }
+                    },
+                    () -> log.debug("Storage usage of user {} changed while it was measured", userId));
+        } catch (RuntimeException e) {
+            log.warn("Can not reconcile storage usage of user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private void reserve(Long userId, String reservationId, long bytes) {
+        StorageQuotaStore.ReserveResult result = storageQuotaStore.reserve(userId, reservationId, bytes, limit(),
+                storageQuotaProperties.getReservationTtl());
+        if (result == StorageQuotaStore.ReserveResult.UNINITIALIZED) {
+            initialize(userId);
+            result = storageQuotaStore.reserve(userId, reservationId, bytes, limit(), storageQuotaProperties.getReservationTtl());
+        }
+        if (result != StorageQuotaStore.ReserveResult.ACCEPTED) {
+            throw new QuotaExceededException("Storage quota of user " + userId + " exceeded");
+        }
+    }
+
+    private void initialize(Long userId) {
+        storageQuotaStore.initialize(userId, fileStorageRepository.usedBytes(userId));
+    }
+
+    private long limit() {
+        return storageQuotaProperties.isEnabled() ? storageQuotaProperties.getLimit().toBytes() : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,194 @@
+package org.example.cloudstorage.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the storage usage of every user in Redis: the committed bytes and the bytes reserved by
+ * uploads in flight. Reservations are kept per upload together with their expiry, so the reservations
+ * of uploads that never finish are dropped by the next reservation. Every change runs as one Lua
+ * script, the keys of a user share a hash slot. Reserving, committing and releasing bump a version,
+ * and a measurement is only applied if the version is unchanged and no upload holds a reservation,
+ * since the objects of an upload may be stored before its reservation is committed.
+ */
+@Component
+@RequiredArgsConstructor
+public class StorageQuotaStore {
+    private static final String KEY_FORMAT = "cloudstorage:quota:{%d}";
+    private static final String RESERVATIONS_KEY_FORMAT = "cloudstorage:quota:{%d}:reservations";
+    private static final String EXPIRIES_KEY_FORMAT = "cloudstorage:quota:{%d}:expiries";
+    private static final String USERS_KEY = "cloudstorage:quota:users";
+    private static final String RECONCILE_LEASE_KEY = "cloudstorage:quota:reconcile:lease";
+    private static final String USED = "used";
+    private static final String RESERVED = "reserved";
+    private static final String VERSION = "version";
+
+    private static final RedisScript<Long> RESERVE = RedisScript.of("""
+            if redis.call('HEXISTS', KEYS[1], 'used') == 0 then
+                return -1
+            end
+            for _, id in ipairs(redis.call('ZRANGEBYSCORE', KEYS[3], '-inf', ARGV[4])) do
+                local size = tonumber(redis.call('HGET', KEYS[2], id) or '0')
+                redis.call('HDEL', KEYS[2], id)
+                redis.call('ZREM', KEYS[3], id)
+                redis.call('HINCRBY', KEYS[1], 'reserved', string.format('%d', -size))
+            end
+            local used = tonumber(redis.call('HGET', KEYS[1], 'used'))
+            local reserved = tonumber(redis.call('HGET', KEYS[1], 'reserved') or '0')
+            if used + reserved + tonumber(ARGV[2]) > tonumber(ARGV[3]) then
+                return 0
+            end
+            redis.call('HINCRBY', KEYS[2], ARGV[1], ARGV[2])
+            redis.call('ZADD', KEYS[3], ARGV[5], ARGV[1])
+            redis.call('HINCRBY', KEYS[1], 'reserved', ARGV[2])
+            redis.call('HINCRBY', KEYS[1], 'version', 1)
+            return 1
+            """, Long.class);
+
+    // without its reservation the bytes may already be in a measurement taken after the usage was lost
+    private static final RedisScript<Long> COMMIT = RedisScript.of("""
+            local size = redis.call('HGET', KEYS[2], ARGV[1])
+            if not size then
+                return -1
+            end
+            redis.call('HDEL', KEYS[2], ARGV[1])
+            redis.call('ZREM', KEYS[3], ARGV[1])
+            redis.call('HINCRBY', KEYS[1], 'reserved', string.format('%d', -tonumber(size)))
+            if redis.call('HEXISTS', KEYS[1], 'used') == 1 then
+                redis.call('HINCRBY', KEYS[1], 'used', ARGV[2])
+            end
+            redis.call('HINCRBY', KEYS[1], 'version', 1)
+            return tonumber(size)
+            """, Long.class);
+
+    private static final RedisScript<Long> RELEASE = RedisScript.of("""
+            local size = tonumber(redis.call('HGET', KEYS[2], ARGV[1]) or '0')
+            local bytes = tonumber(ARGV[2])
+            if bytes < 0 or bytes >= size then
+                bytes = size
+                redis.call('HDEL', KEYS[2], ARGV[1])
+                redis.call('ZREM', KEYS[3], ARGV[1])
+            else
+                redis.call('HINCRBY', KEYS[2], ARGV[1], string.format('%d', -bytes))
+            end
+            redis.call('HINCRBY', KEYS[1], 'reserved', string.format('%d', -bytes))
+            redis.call('HINCRBY', KEYS[1], 'version', 1)
+            return bytes
+            """, Long.class);
+
+    private static final RedisScript<Long> ADJUST = RedisScript.of("""
+            if redis.call('HEXISTS', KEYS[1], 'used') == 0 then
+                return -1
+            end
+            local used = math.max(tonumber(redis.call('HGET', KEYS[1], 'used')) + tonumber(ARGV[1]), 0)
+            redis.call('HSET', KEYS[1], 'used', string.format('%d', used))
+            redis.call('HINCRBY', KEYS[1], 'version', 1)
+            return used
+            """, Long.class);
+
+    private static final RedisScript<Long> RECONCILE = RedisScript.of("""
+            if redis.call('HEXISTS', KEYS[1], 'used') == 0
+                    or (redis.call('HGET', KEYS[1], 'version') or '0') ~= ARGV[1] then
+                return -1
+            end
+            for _, id in ipairs(redis.call('ZRANGEBYSCORE', KEYS[3], '-inf', ARGV[3])) do
+                local size = tonumber(redis.call('HGET', KEYS[2], id) or '0')
+                redis.call('HDEL', KEYS[2], id)
+                redis.call('ZREM', KEYS[3], id)
+                redis.call('HINCRBY', KEYS[1], 'reserved', string.format('%d', -size))
+            end
+            if tonumber(redis.call('HGET', KEYS[1], 'reserved') or '0') > 0 then
+                return -1
+            end
+            local used = tonumber(redis.call('HGET', KEYS[1], 'used'))
+            redis.call('HSET', KEYS[1], 'used', ARGV[2])
+            return used
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public ReserveResult reserve(Long userId, String reservationId, long bytes, long limit, Duration ttl) {
+        Instant now = Instant.now();
+        Long result = redisTemplate.execute(RESERVE, keys(userId), reservationId, Long.toString(bytes),
+                Long.toString(limit), Long.toString(now.toEpochMilli()), Long.toString(now.plus(ttl).toEpochMilli()));
+        if (result == null || result < 0) {
+            return ReserveResult.UNINITIALIZED;
+        }
+        return result == 1 ? ReserveResult.ACCEPTED : ReserveResult.REJECTED;
+    }
+
+    public void commit(Long userId, String reservationId, long bytes) {
+        redisTemplate.execute(COMMIT, keys(userId), reservationId, Long.toString(bytes));
+    }
+
+    public void release(Long userId, String reservationId) {
+        release(userId, reservationId, -1);
+    }
+
+    public void release(Long userId, String reservationId, long bytes) {
+        redisTemplate.execute(RELEASE, keys(userId), reservationId, Long.toString(bytes));
+    }
+
+    public void adjust(Long userId, long delta) {
+        redisTemplate.execute(ADJUST, keys(userId), Long.toString(delta));
+    }
+
+    public long version(Long userId) {
+        Object version = redisTemplate.opsForHash().get(formatKey(userId), VERSION);
+        return version != null ? Long.parseLong((String) version) : 0;
+    }
+
+    // replaces the committed bytes unless the usage changed since the version was read or uploads are in flight,
+    // returns the replaced value
+    public Optional<Long> reconcile(Long userId, long version, long used) {
+        Long previous = redisTemplate.execute(RECONCILE, keys(userId), Long.toString(version), Long.toString(used),
+                Long.toString(Instant.now().toEpochMilli()));
+        return previous != null && previous >= 0 ? Optional.of(previous) : Optional.empty();
+    }
+
+    public void initialize(Long userId, long used) {
+        redisTemplate.opsForHash().putIfAbsent(formatKey(userId), USED, Long.toString(used));
+        redisTemplate.opsForSet().add(USERS_KEY, userId.toString());
+    }
+
+    public Optional<StorageUsage> find(Long userId, long limit) {
+        List<Object> values = redisTemplate.opsForHash().multiGet(formatKey(userId), List.of(USED, RESERVED));
+        if (values.get(0) == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new StorageUsage(Long.parseLong((String) values.get(0)),
+                values.get(1) != null ? Long.parseLong((String) values.get(1)) : 0, limit));
+    }
+
+    public Set<Long> findUserIds() {
+        Set<String> ids = redisTemplate.opsForSet().members(USERS_KEY);
+        return ids != null ? ids.stream().map(Long::valueOf).collect(Collectors.toSet()) : Set.of();
+    }
+
+    public boolean acquireReconcileLease(Duration ttl) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(RECONCILE_LEASE_KEY, "1", ttl));
+    }
+
+    private List<String> keys(Long userId) {
+        return List.of(formatKey(userId), String.format(RESERVATIONS_KEY_FORMAT, userId), String.format(EXPIRIES_KEY_FORMAT, userId));
+    }
+
+    private String formatKey(Long userId) {
+        return String.format(KEY_FORMAT, userId);
+    }
+
+    public enum ReserveResult {
+        ACCEPTED,
+        REJECTED,
+        UNINITIALIZED
+    }
+}
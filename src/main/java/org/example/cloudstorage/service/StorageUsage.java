@@ -0,0 +1,4 @@
+package org.example.cloudstorage.service;
+
+public record StorageUsage(long used, long reserved, long limit) {
+}
@@ -0,0 +1,6 @@
+package org.example.cloudstorage.service;
+
+import java.time.Instant;
+
+public record StoredObject(String path, long size, String etag, Instant modifiedAt) {
+}
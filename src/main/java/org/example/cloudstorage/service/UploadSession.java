@@ -0,0 +1,4 @@
+package org.example.cloudstorage.service;
+
+public record UploadSession(String id, Long userId, String path, String storageUploadId, String objectKey) {
+}
@@ -0,0 +1,98 @@
+package org.example.cloudstorage.service;
+
+import lombok.RequiredArgsConstructor;
+import org.example.cloudstorage.config.UploadProperties;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps resumable upload sessions in Redis until they expire. Every session is also registered with
+ * its expiry, so the backend can abort its storage upload or delete its parts once the session is gone.
+ */
+@Component
+@RequiredArgsConstructor
+public class UploadSessionStore {
+    private static final String KEY_FORMAT = "cloudstorage:upload:%s";
+    private static final String EXPIRIES_KEY = "cloudstorage:upload:expiries";
+    private static final String TARGETS_KEY = "cloudstorage:upload:targets";
+    private static final char TARGET_SEPARATOR = '\n';
+    private static final String USER_ID = "userId";
+    private static final String PATH = "path";
+    private static final String STORAGE_UPLOAD_ID = "storageUploadId";
+    private static final String OBJECT_KEY = "objectKey";
+
+    private final StringRedisTemplate redisTemplate;
+    private final UploadProperties uploadProperties;
+
+    public UploadSession create(Long userId, String path, String storageUploadId) {
+        return create(userId, path, storageUploadId, null);
+    }
+
+    // the object key is set when the upload is stored apart from the user path
+    public UploadSession create(Long userId, String path, String storageUploadId, String objectKey) {
+        UploadSession session = new UploadSession(UUID.randomUUID().toString(), userId, path, storageUploadId, objectKey);
+        String key = formatKey(session.id());
+        Map<String, String> fields = new HashMap<>(Map.of(
+                USER_ID, userId.toString(),
+                PATH, path,
+                STORAGE_UPLOAD_ID, storageUploadId));
+        if (objectKey != null) {
+            fields.put(OBJECT_KEY, objectKey);
+        }
+        redisTemplate.opsForHash().putAll(key, fields);
+        redisTemplate.expire(key, uploadProperties.getSessionTtl());
+        long expiresAt = System.currentTimeMillis() + uploadProperties.getSessionTtl().toMillis();
+        redisTemplate.opsForHash().put(TARGETS_KEY, session.id(),
+                objectKey != null ? objectKey + TARGET_SEPARATOR + storageUploadId : storageUploadId);
+        redisTemplate.opsForZSet().add(EXPIRIES_KEY, session.id(), expiresAt);
+        return session;
+    }
+
+    public Optional<UploadSession> find(Long userId, String id) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(formatKey(id));
+        if (fields.isEmpty() || !userId.toString().equals(fields.get(USER_ID))) {
+            return Optional.empty();
+        }
+        return Optional.of(new UploadSession(id, userId, (String) fields.get(PATH), (String) fields.get(STORAGE_UPLOAD_ID),
+                (String) fields.get(OBJECT_KEY)));
+    }
+
+    public void delete(String id) {
+        redisTemplate.delete(formatKey(id));
+        forget(id);
+    }
+
+    // only the node that removes an expired session from the schedule gets it back
+    public List<ExpiredUpload> claimExpired(int limit) {
+        Set<String> ids = redisTemplate.opsForZSet().rangeByScore(EXPIRIES_KEY, 0, System.currentTimeMillis(), 0, limit);
+        List<ExpiredUpload> claimed = new ArrayList<>();
+        for (String id : ids != null ? ids : Set.<String>of()) {
+            String target = (String) redisTemplate.opsForHash().get(TARGETS_KEY, id);
+            if (forget(id) && target != null) {
+                int separator = target.lastIndexOf(TARGET_SEPARATOR);
+                claimed.add(separator < 0
+                        ? new ExpiredUpload(null, target)
+                        : new ExpiredUpload(target.substring(0, separator), target.substring(separator + 1)));
+            }
+        }
+        return claimed;
+    }
+
+    private boolean forget(String id) {
+        Long removed = redisTemplate.opsForZSet().remove(EXPIRIES_KEY, id);
+        redisTemplate.opsForHash().delete(TARGETS_KEY, id);
+        return removed != null && removed > 0;
+    }
+
+    private String formatKey(String id) {
+        return String.format(KEY_FORMAT, id);
+    }
+}
@@ -0,0 +1,210 @@
+package org.example.cloudstorage.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.example.cloudstorage.service.StoragePath.ancestors;
+
+/**
+ * Trigram index over the file and directory names of one user. Removed entries are left as tombstones
+ * in the posting lists and dropped when more than half of the entries are dead.
+ */
+class UserSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+    private static final int POSTING_BYTES = 8;
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final NavigableMap<String, Integer> idsByPath = new TreeMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private int removedEntries;
+    private long estimatedBytes;
+
+    synchronized void add(String path, Long size) {
+        for (String ancestor : ancestors(path)) {
+            if (!ancestor.isEmpty() && !idsByPath.containsKey(ancestor)) {
+                insert(ancestor, null);
+            }
+        }
+        if (path.isEmpty()) {
+            return;
+        }
+        Integer existing = idsByPath.get(path);
+        if (existing != null) {
+            Entry entry = entries.get(existing);
+            entries.set(existing, new Entry(entry.path(), entry.parent(), entry.name(), entry.lowerName(),
+                    StoragePath.ofStored(path).isDirectory() ? null : size));
+            return;
+        }
+        insert(path, size);
+    }
+
+    synchronized void remove(String path) {
+        for (Map.Entry<String, Integer> entry : List.copyOf(subtree(path).entrySet())) {
+            remove(entry.getKey(), entry.getValue());
+        }
+        if (removedEntries > entries.size() / 2) {
+            compact();
+        }
+    }
+
+    synchronized void move(String oldPath, String newPath) {
+        Integer rootId = idsByPath.get(oldPath);
+        if (rootId == null) {
+            return;
+        }
+        Long rootSize = entries.get(rootId).size();
+        List<Integer> descendants = new ArrayList<>(subtree(oldPath).values());
+        descendants.remove(rootId);
+        remove(oldPath, rootId);
+        for (Integer id : descendants) {
+            Entry entry = entries.get(id);
+            String path = newPath + entry.path().substring(oldPath.length());
+            idsByPath.remove(entry.path());
+            idsByPath.put(path, id);
+            entries.set(id, new Entry(path, StoragePath.ofStored(path).parent(), entry.name(), entry.lowerName(), entry.size()));
+        }
+        add(newPath, rootSize);
+    }
+
+    synchronized List<Entry> search(String query) {
+        return search(query, null, Integer.MAX_VALUE);
+    }
+
+    // the first matches in path order after the given path, so callers can page without holding the lock
+    synchronized List<Entry> search(String query, String after, int limit) {
+        String lowerQuery = query.toLowerCase();
+        List<Entry> result = new ArrayList<>();
+        if (lowerQuery.length() < GRAM_LENGTH) {
+            NavigableMap<String, Integer> remaining = after == null ? idsByPath : idsByPath.tailMap(after, false);
+            for (Integer id : remaining.values()) {
+                if (result.size() == limit) {
+                    break;
+                }
+                Entry entry = entries.get(id);
+                if (entry.lowerName().contains(lowerQuery)) {
+                    result.add(entry);
+                }
+            }
+            return result;
+        }
+        Postings candidates = null;
+        for (long gram : grams(lowerQuery)) {
+            Postings gramPostings = postings.get(gram);
+            if (gramPostings == null) {
+                return result;
+            }
+            if (candidates == null || gramPostings.size() < candidates.size()) {
+                candidates = gramPostings;
+            }
+        }
+        // keeps the smallest paths only, the heap head is the largest of them
+        PriorityQueue<Entry> first = new PriorityQueue<>(Comparator.comparing(Entry::path).reversed());
+        for (int i = 0; i < candidates.size(); i++) {
+            Entry entry = entries.get(candidates.get(i));
+            if (entry == null || (after != null && entry.path().compareTo(after) <= 0)
+                    || !entry.lowerName().contains(lowerQuery)) {
+                continue;
+            }
+            if (first.size() < limit) {
+                first.add(entry);
+            } else if (entry.path().compareTo(first.peek().path()) < 0) {
+                first.poll();
+                first.add(entry);
+            }
+        }
+        result.addAll(first);
+        result.sort(Comparator.comparing(Entry::path));
+        return result;
+    }
+
+    synchronized long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    private void insert(String path, Long size) {
+        StoragePath storagePath = StoragePath.ofStored(path);
+        String name = storagePath.name();
+        Entry entry = new Entry(path, storagePath.parent(), name, name.toLowerCase(),
+                storagePath.isDirectory() ? null : size);
+        int id = entries.size();
+        entries.add(entry);
+        idsByPath.put(path, id);
+        for (long gram : grams(entry.lowerName())) {
+            postings.computeIfAbsent(gram, key -> new Postings()).add(id);
+        }
+        estimatedBytes += estimateBytes(entry);
+    }
+
+    private void remove(String path, int id) {
+        Entry entry = entries.set(id, null);
+        idsByPath.remove(path);
+        estimatedBytes -= estimateBytes(entry);
+        removedEntries++;
+    }
+
+    private NavigableMap<String, Integer> subtree(String path) {
+        if (!StoragePath.ofStored(path).isDirectory()) {
+            Integer id = idsByPath.get(path);
+            return id == null ? new TreeMap<>() : new TreeMap<>(Map.of(path, id));
+        }
+        return idsByPath.subMap(path, true, path + Character.MAX_VALUE, false);
+    }
+
+    private void compact() {
+        List<Entry> live = entries.stream().filter(entry -> entry != null).toList();
+        entries.clear();
+        idsByPath.clear();
+        postings.clear();
+        removedEntries = 0;
+        estimatedBytes = 0;
+        for (Entry entry : live) {
+            insert(entry.path(), entry.size());
+        }
+    }
+
+    private long estimateBytes(Entry entry) {
+        return ENTRY_OVERHEAD_BYTES + 2L * (entry.path().length() + entry.name().length())
+                + (long) POSTING_BYTES * Math.max(entry.lowerName().length() - GRAM_LENGTH + 1, 0);
+    }
+
+    private static Set<Long> grams(String value) {
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+            grams.add(((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2));
+        }
+        return grams;
+    }
+
+    record Entry(String path, String parent, String name, String lowerName, Long size) {
+    }
+
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        int get(int index) {
+            return ids[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
@@ -7,8 +7,10 @@ import org.example.cloudstorage.service.UserService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.containers.MinIOContainer;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
@@ -36,6 +38,10 @@ public class AuthIntegrationTest {
         registry.add("spring.jpa.generate-ddl", () -> true);
     }
 
+    @Container
+    @ServiceConnection(name = "redis")
+    static GenericContainer<?> redisContainer = new GenericContainer<>("redis").withExposedPorts(6379);
+
     @Container
     static MinIOContainer minIOContainer = new MinIOContainer("minio/minio")
             .withUserName("user")
@@ -43,7 +49,7 @@ public class AuthIntegrationTest {
 
     @DynamicPropertySource
     static void datasourceProperties(DynamicPropertyRegistry registry) {
-        registry.add("cloudstorage.storage.minio.enabled", () -> true);
+        registry.add("cloudstorage.storage.backend", () -> "minio");
         registry.add("cloudstorage.storage.minio.endpoint", minIOContainer::getS3URL);
         registry.add("cloudstorage.storage.minio.user", () -> "user");
         registry.add("cloudstorage.storage.minio.password", () -> "password");
@@ -1,10 +1,15 @@
 package org.example.cloudstorage;
 
 import io.minio.BucketExistsArgs;
+import io.minio.ListObjectsArgs;
 import io.minio.MakeBucketArgs;
 import io.minio.MinioClient;
+import io.minio.Result;
+import io.minio.messages.Item;
+import org.example.cloudstorage.config.DedupProperties;
 import org.example.cloudstorage.config.MinioProperties;
 import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.exception.InvalidUploadException;
 import org.example.cloudstorage.exception.ResourceAlreadyExistsException;
 import org.example.cloudstorage.exception.ResourceNotFoundException;
 import org.example.cloudstorage.repository.MinioRepository;
@@ -20,13 +25,23 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.containers.MinIOContainer;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -42,6 +57,7 @@ public class MinioRepositoryIntegrationTest {
     private static final String BASE_FOLDER = "folder/";
     private static final String INNER_FOLDER = "folder2/";
     private static final String FILE_NAME = "test1.txt";
+    private static final String LARGE_FILE_NAME = "large.bin";
     private static final String CONTENT_TYPE = "text/plain";
 
     private static final List<MultipartFile> MULTIPART_FILE = List.of(
@@ -56,6 +72,10 @@ public class MinioRepositoryIntegrationTest {
     @ServiceConnection
     static PostgreSQLContainer<?> container = new PostgreSQLContainer<>("postgres");
 
+    @Container
+    @ServiceConnection(name = "redis")
+    static GenericContainer<?> redisContainer = new GenericContainer<>("redis").withExposedPorts(6379);
+
     @Container
     static MinIOContainer minIOContainer = new MinIOContainer("minio/minio")
             .withUserName("user")
@@ -63,11 +83,12 @@ public class MinioRepositoryIntegrationTest {
 
     @DynamicPropertySource
     static void datasourceProperties(DynamicPropertyRegistry registry) {
-        registry.add("cloudstorage.storage.minio.enabled", () -> true);
+        registry.add("cloudstorage.storage.backend", () -> "minio");
         registry.add("cloudstorage.storage.minio.endpoint", minIOContainer::getS3URL);
         registry.add("cloudstorage.storage.minio.user", () -> "user");
         registry.add("cloudstorage.storage.minio.password", () -> "password");
         registry.add("cloudstorage.storage.minio.bucket", () -> "bucket");
+        registry.add("cloudstorage.storage.minio.multipart-part-size", () -> "5MB");
     }
 
     @Autowired
@@ -76,6 +97,9 @@ public class MinioRepositoryIntegrationTest {
     @Autowired
     private MinioProperties minioProperties;
 
+    @Autowired
+    private DedupProperties dedupProperties;
+
     @Autowired
     private MinioRepository minioRepository;
 
@@ -116,6 +140,27 @@ public class MinioRepositoryIntegrationTest {
         assertFalse(response.isEmpty());
     }
 
+    @Test
+    void testSaveLargeFileUsesMultipartAlongsideSmallFiles() throws Exception {
+        long partSize = minioProperties.getMultipartPartSize().toBytes();
+        byte[] content = new byte[(int) partSize * 2 + 1];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        List<MultipartFile> files = List.of(
+                new MockMultipartFile("file1", FILE_NAME, CONTENT_TYPE, FILE_NAME.getBytes()),
+                new MockMultipartFile("file2", LARGE_FILE_NAME, CONTENT_TYPE, content));
+
+        List<ResourceInfoResponseDto> response = minioRepository.save(USER_ID, "", files);
+
+        assertEquals(2, response.size());
+        assertEquals((long) content.length, minioRepository.getInfo(USER_ID, LARGE_FILE_NAME).getSize());
+        try (InputStream inputStream = minioRepository.get(USER_ID, LARGE_FILE_NAME).getInputStream()) {
+            assertArrayEquals(content, inputStream.readAllBytes());
+        }
+        assertEquals("3", partCount(LARGE_FILE_NAME));
+    }
+
     @Test
     void testSaveExceptionThrownWhenDuplicatedFile() {
         minioRepository.save(USER_ID, "", MULTIPART_FILE);
@@ -156,15 +201,43 @@ public class MinioRepositoryIntegrationTest {
 
     }
 
+    @Test
+    void testGetFileRange() throws Exception {
+        minioRepository.save(USER_ID, "", MULTIPART_FILE);
+
+        Resource response = minioRepository.get(USER_ID, FILE_NAME, 2, 3);
+        try (InputStream inputStream = response.getInputStream()) {
+            assertEquals(FILE_NAME.substring(2, 5), new String(inputStream.readAllBytes()));
+        }
+        assertEquals(FILE_NAME.length(), minioRepository.stat(USER_ID, FILE_NAME).size());
+    }
+
     @Test
     void testGetFolder() {
         minioRepository.save(USER_ID, "", MULTIPART_FILES);
 
-        Resource response = minioRepository.get(USER_ID, BASE_FOLDER);
+        StreamingResponseBody response = minioRepository.getArchive(USER_ID, BASE_FOLDER);
         assertNotNull(response);
 
     }
 
+    @Test
+    void testGetFolderArchiveContainsAllFiles() throws Exception {
+        minioRepository.save(USER_ID, "", MULTIPART_FILES);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        minioRepository.getArchive(USER_ID, BASE_FOLDER).writeTo(outputStream);
+
+        List<String> entries = new ArrayList<>();
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            for (ZipEntry entry = zipInputStream.getNextEntry(); entry != null; entry = zipInputStream.getNextEntry()) {
+                assertEquals(FILE_NAME, new String(zipInputStream.readAllBytes()));
+                entries.add(entry.getName());
+            }
+        }
+        assertEquals(List.of(INNER_FOLDER + FILE_NAME, FILE_NAME), entries);
+    }
+
     @Test
     void testGetExceptionThrownWhenNonexistentFile() {
         assertThrows(ResourceNotFoundException.class, () -> minioRepository.get(USER_ID, FILE_NAME));
@@ -172,7 +245,7 @@ public class MinioRepositoryIntegrationTest {
 
     @Test
     void testGetExceptionThrownWhenNonexistentFolder() {
-        assertThrows(ResourceNotFoundException.class, () -> minioRepository.get(USER_ID, BASE_FOLDER));
+        assertThrows(ResourceNotFoundException.class, () -> minioRepository.getArchive(USER_ID, BASE_FOLDER));
     }
 
     @Test
@@ -226,6 +299,132 @@ public class MinioRepositoryIntegrationTest {
         assertNotNull(minioRepository.getInfo(USER_ID, FILE_NAME));
     }
 
+    @Test
+    void testDirectoryTotalsFollowSaveRenameAndDelete() {
+        minioRepository.save(USER_ID, "", MULTIPART_FILES);
+        long fileSize = FILE_NAME.getBytes().length;
+
+        ResourceInfoResponseDto directory = minioRepository.getInfo(USER_ID, BASE_FOLDER);
+        assertEquals(2 * fileSize, directory.getSize());
+        assertEquals(2, directory.getFileCount());
+
+        minioRepository.rename(USER_ID, BASE_FOLDER + INNER_FOLDER, INNER_FOLDER);
+        assertEquals(1, minioRepository.getInfo(USER_ID, BASE_FOLDER).getFileCount());
+        assertEquals(fileSize, minioRepository.getInfo(USER_ID, INNER_FOLDER).getSize());
+
+        minioRepository.delete(USER_ID, BASE_FOLDER + FILE_NAME);
+        assertEquals(0, minioRepository.getInfo(USER_ID, BASE_FOLDER).getFileCount());
+        assertEquals(0, minioRepository.getInfo(USER_ID, BASE_FOLDER).getSize());
+    }
+
+    @Test
+    void testDeduplicatedFilesShareOneBlob() throws Exception {
+        dedupProperties.setEnabled(true);
+        try {
+            minioRepository.save(USER_ID, "", MULTIPART_FILE);
+            minioRepository.save(USER_ID, BASE_FOLDER, MULTIPART_FILE);
+            minioRepository.rename(USER_ID, BASE_FOLDER, INNER_FOLDER);
+            minioRepository.delete(USER_ID, FILE_NAME);
+
+            try (InputStream inputStream = minioRepository.get(USER_ID, INNER_FOLDER + FILE_NAME).getInputStream()) {
+                assertEquals(FILE_NAME, new String(inputStream.readAllBytes()));
+            }
+            long blobs = 0;
+            for (Result<Item> result : minioClient.listObjects(ListObjectsArgs.builder()
+                    .bucket(minioProperties.getBucket())
+                    .prefix("blobs/")
+                    .recursive(true)
+                    .build())) {
+                result.get();
+                blobs++;
+            }
+            assertEquals(1, blobs);
+        } finally {
+            dedupProperties.setEnabled(false);
+        }
+    }
+
+    @Test
+    void testRenameDirectoryKeepsFileObjects() throws Exception {
+        String movedFolder = "moved/";
+        minioRepository.save(USER_ID, "", MULTIPART_FILES);
+        List<String> objectKeys = listObjectKeys("objects/");
+
+        minioRepository.rename(USER_ID, BASE_FOLDER, movedFolder);
+
+        assertEquals(objectKeys, listObjectKeys("objects/"));
+        try (InputStream inputStream = minioRepository.get(USER_ID, movedFolder + INNER_FOLDER + FILE_NAME).getInputStream()) {
+            assertEquals(FILE_NAME, new String(inputStream.readAllBytes()));
+        }
+        assertThrows(ResourceNotFoundException.class, () -> minioRepository.getInfo(USER_ID, BASE_FOLDER + FILE_NAME));
+    }
+
+    // a multipart object's ETag ends with the number of its parts
+    private String partCount(String filename) throws Exception {
+        for (Result<Item> result : minioClient.listObjects(ListObjectsArgs.builder()
+                .bucket(minioProperties.getBucket())
+                .recursive(true)
+                .build())) {
+            Item item = result.get();
+            if (item.objectName().endsWith("/" + filename)) {
+                String etag = item.etag().replace("\"", "");
+                return etag.substring(etag.lastIndexOf('-') + 1);
+            }
+        }
+        return null;
+    }
+
+    private List<String> listObjectKeys(String prefix) throws Exception {
+        List<String> objectKeys = new ArrayList<>();
+        for (Result<Item> result : minioClient.listObjects(ListObjectsArgs.builder()
+                .bucket(minioProperties.getBucket())
+                .prefix(prefix)
+                .recursive(true)
+                .build())) {
+            objectKeys.add(result.get().objectName());
+        }
+        return objectKeys;
+    }
+
+    @Test
+    void testResumableUploadAssemblesParts() throws Exception {
+        byte[] first = new byte[5 * 1024 * 1024];
+        first[0] = 1;
+        byte[] last = {2, 3};
+        String uploadId = minioRepository.startUpload(USER_ID, LARGE_FILE_NAME).uploadId();
+
+        minioRepository.uploadPart(USER_ID, uploadId, 2, new ByteArrayInputStream(last), last.length);
+        minioRepository.uploadPart(USER_ID, uploadId, 1, new ByteArrayInputStream(first), first.length);
+        assertEquals(2, minioRepository.getUpload(USER_ID, uploadId).parts().size());
+        ResourceInfoResponseDto info = minioRepository.completeUpload(USER_ID, uploadId);
+
+        assertEquals(first.length + last.length, info.getSize());
+        try (InputStream inputStream = minioRepository.get(USER_ID, LARGE_FILE_NAME).getInputStream()) {
+            byte[] content = inputStream.readAllBytes();
+            assertEquals(1, content[0]);
+            assertArrayEquals(last, Arrays.copyOfRange(content, first.length, content.length));
+        }
+    }
+
+    @Test
+    void testResumableUploadRejectsSmallPartBeforeLast() {
+        String uploadId = minioRepository.startUpload(USER_ID, LARGE_FILE_NAME).uploadId();
+        minioRepository.uploadPart(USER_ID, uploadId, 1, new ByteArrayInputStream(new byte[10]), 10);
+        minioRepository.uploadPart(USER_ID, uploadId, 2, new ByteArrayInputStream(new byte[10]), 10);
+
+        assertThrows(InvalidUploadException.class, () -> minioRepository.completeUpload(USER_ID, uploadId));
+        minioRepository.abortUpload(USER_ID, uploadId);
+    }
+
+    @Test
+    void testUploadPartRejectsIncompleteBody() {
+        String uploadId = minioRepository.startUpload(USER_ID, LARGE_FILE_NAME).uploadId();
+
+        assertThrows(InvalidUploadException.class, () ->
+                minioRepository.uploadPart(USER_ID, uploadId, 1, new ByteArrayInputStream(new byte[5]), 10));
+        minioRepository.abortUpload(USER_ID, uploadId);
+    }
+
     @Test
     void testGetInfoThrownExceptionWhenObjectDoesNotExist() {
         assertThrows(ResourceNotFoundException.class, () -> minioRepository.getInfo(USER_ID, FILE_NAME));
@@ -235,7 +434,7 @@ public class MinioRepositoryIntegrationTest {
     void testCreateEmptyDirectory() {
         minioRepository.createEmptyDirectory(USER_ID, BASE_FOLDER);
 
-        assertNotNull(minioRepository.get(USER_ID, BASE_FOLDER));
+        assertNotNull(minioRepository.getArchive(USER_ID, BASE_FOLDER));
     }
 
     @Test
@@ -0,0 +1,86 @@
+package org.example.cloudstorage.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.cloudstorage.repository.StorageCallAccounting;
+import org.example.cloudstorage.repository.StorageMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StorageAccountingFilterTest {
+    private final StorageMetrics storageMetrics = new StorageMetrics(new SimpleMeterRegistry());
+
+    @Test
+    void testReportsCallsMadeWhileHandlingRequest() throws Exception {
+        StorageAccountingFilter filter = new StorageAccountingFilter(new StorageAccountingProperties());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/resource"), response, (request, servletResponse) -> {
+            try {
+                storageMetrics.record("statObject", () -> "stat");
+                storageMetrics.record("getObject", () -> "object");
+                servletResponse.getWriter().write("body");
+                servletResponse.flushBuffer();
+                storageMetrics.record("statObject", () -> "stat");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertEquals("2", response.getHeader(StorageAccountingFilter.CALLS_HEADER));
+        assertTrue(response.getHeader(StorageAccountingFilter.SERVER_TIMING_HEADER).startsWith("storage;dur="));
+    }
+
+    @Test
+    void testCountsCallsOfAsyncRequestOnAnotherThread() throws Exception {
+        StorageAccountingFilter filter = new StorageAccountingFilter(new StorageAccountingProperties());
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/resource/download");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<Runnable> body = new AtomicReference<>();
+
+        filter.doFilter(request, response, (servletRequest, servletResponse) -> {
+            servletRequest.startAsync();
+            body.set(StorageCallAccounting.wrap(() -> {
+                try {
+                    storageMetrics.record("getObject", () -> "object");
+                    servletResponse.getWriter().write("body");
+                    servletResponse.flushBuffer();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture.runAsync(body.get(), executor).get();
+        } finally {
+            executor.shutdownNow();
+        }
+        request.getAsyncContext().complete();
+
+        assertEquals("1", response.getHeader(StorageAccountingFilter.CALLS_HEADER));
+    }
+
+    @Test
+    void testDisabledAccountingAddsNoHeaders() throws Exception {
+        StorageAccountingProperties properties = new StorageAccountingProperties();
+        properties.setEnabled(false);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new StorageAccountingFilter(properties).doFilter(new MockHttpServletRequest("GET", "/api/resource"), response,
+                (request, servletResponse) -> {
+                });
+
+        assertNull(response.getHeader(StorageAccountingFilter.CALLS_HEADER));
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.cloudstorage.controller;
+
+import org.example.cloudstorage.advice.GlobalExceptionHandler;
+import org.example.cloudstorage.config.InMemoryStorageProperties;
+import org.example.cloudstorage.config.UploadProperties;
+import org.example.cloudstorage.repository.InMemoryFileStorageRepository;
+import org.example.cloudstorage.security.CustomUserDetails;
+import org.example.cloudstorage.service.ResourceMetadataService;
+import org.example.cloudstorage.service.UploadSessionStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class DirectoryControllerTest {
+    private static final Long USER_ID = 1L;
+    private static final byte[] CONTENT = "0123456789".getBytes();
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        ResourceMetadataService resourceMetadataService = mock(ResourceMetadataService.class);
+        when(resourceMetadataService.isIndexed(any())).thenReturn(true);
+        InMemoryFileStorageRepository repository = new InMemoryFileStorageRepository(new InMemoryStorageProperties(),
+                resourceMetadataService, mock(UploadSessionStore.class), new UploadProperties(),
+                mock(ApplicationEventPublisher.class));
+        repository.createDefaultUserDirectory(USER_ID);
+        repository.save(USER_ID, "docs/", List.of(
+                file("b.txt"), file("a.txt"), file("inner/c.txt"), file("archive/d.txt"), file("zeta/e.txt")));
+        mockMvc = MockMvcBuilders.standaloneSetup(new DirectoryController(repository))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .build();
+        CustomUserDetails user = new CustomUserDetails("user", USER_ID);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testListingWithoutLimitHasNoCursor() throws Exception {
+        mockMvc.perform(get("/api/directory").param("path", "docs/"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(DirectoryController.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$.length()").value(5));
+    }
+
+    @Test
+    void testPagesListDirectoriesBeforeFiles() throws Exception {
+        MvcResult first = mockMvc.perform(get("/api/directory").param("path", "docs/").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("archive/"))
+                .andExpect(jsonPath("$[1].name").value("inner/"))
+                .andReturn();
+        String cursor = first.getResponse().getHeader(DirectoryController.NEXT_CURSOR_HEADER);
+        assertNotNull(cursor);
+
+        MvcResult second = mockMvc.perform(get("/api/directory").param("path", "docs/").param("limit", "2")
+                        .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("zeta/"))
+                .andExpect(jsonPath("$[1].name").value("a.txt"))
+                .andReturn();
+
+        mockMvc.perform(get("/api/directory").param("path", "docs/").param("limit", "2")
+                        .param("cursor", second.getResponse().getHeader(DirectoryController.NEXT_CURSOR_HEADER)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(DirectoryController.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("b.txt"));
+    }
+
+    @Test
+    void testLastFullPageHasNoCursor() throws Exception {
+        mockMvc.perform(get("/api/directory").param("path", "docs/").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(DirectoryController.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$.length()").value(5));
+    }
+
+    @Test
+    void testMalformedCursorIsRejected() throws Exception {
+        mockMvc.perform(get("/api/directory").param("path", "docs/").param("cursor", "not a cursor!"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor"));
+    }
+
+    private static MockMultipartFile file(String name) {
+        return new MockMultipartFile("object", name, "text/plain", CONTENT);
+    }
+}
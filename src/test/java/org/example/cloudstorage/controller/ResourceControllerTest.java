@@ -0,0 +1,206 @@
+package org.example.cloudstorage.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.cloudstorage.advice.GlobalExceptionHandler;
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.repository.FileStorageRepository;
+import org.example.cloudstorage.security.CustomUserDetails;
+import org.example.cloudstorage.service.StorageJobService;
+import org.example.cloudstorage.service.StorageQuotaService;
+import org.example.cloudstorage.service.StoredObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ResourceControllerTest {
+    private static final Long USER_ID = 1L;
+    private static final String PATH = "docs/a.txt";
+    private static final String CONTENT = "0123456789";
+    private static final Instant MODIFIED_AT = Instant.parse("2024-05-01T10:15:30.250Z");
+
+    private final FileStorageRepository fileStorageRepository = mock(FileStorageRepository.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        ResourceController controller = new ResourceController(fileStorageRepository, mock(StorageJobService.class),
+                mock(StorageQuotaService.class), new ObjectMapper());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .build();
+        CustomUserDetails user = new CustomUserDetails("user", USER_ID);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user, null, List.of()));
+        when(fileStorageRepository.stat(USER_ID, PATH)).thenReturn(new StoredObject(PATH, CONTENT.length(), "etag", MODIFIED_AT));
+        when(fileStorageRepository.get(USER_ID, PATH)).thenAnswer(invocation -> resource(CONTENT));
+        when(fileStorageRepository.get(USER_ID, PATH, 2, 3)).thenAnswer(invocation -> resource("234"));
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testDownloadRange() throws Exception {
+        perform(download().header(HttpHeaders.RANGE, "bytes=2-4"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-4/10"))
+                .andExpect(content().string("234"));
+    }
+
+    @Test
+    void testDownloadIgnoresRangeWhenIfRangeDoesNotMatch() throws Exception {
+        perform(download().header(HttpHeaders.RANGE, "bytes=2-4").header(HttpHeaders.IF_RANGE, "\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void testDownloadIgnoresRangeWhenIfRangeIsWeak() throws Exception {
+        perform(download().header(HttpHeaders.RANGE, "bytes=2-4").header(HttpHeaders.IF_RANGE, "W/\"etag\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void testDownloadRangeWhenIfRangeDateMatchesLastModified() throws Exception {
+        perform(download().header(HttpHeaders.RANGE, "bytes=2-4").header(HttpHeaders.IF_RANGE, httpDate(MODIFIED_AT)))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("234"));
+    }
+
+    @Test
+    void testDownloadIgnoresRangeWhenIfRangeDateDiffers() throws Exception {
+        perform(download().header(HttpHeaders.RANGE, "bytes=2-4").header(HttpHeaders.IF_RANGE, httpDate(MODIFIED_AT.minusSeconds(60))))
+                .andExpect(status().isOk())
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void testDownloadIgnoresMalformedRange() throws Exception {
+        perform(download().header(HttpHeaders.RANGE, "bytes=abc"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void testDownloadAnswersSeveralRangesWithWholeFile() throws Exception {
+        perform(download().header(HttpHeaders.RANGE, "bytes=0-0,-1"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void testDownloadEmptyFileIgnoresRange() throws Exception {
+        when(fileStorageRepository.stat(USER_ID, PATH)).thenReturn(new StoredObject(PATH, 0, "etag", MODIFIED_AT));
+        when(fileStorageRepository.get(USER_ID, PATH)).thenAnswer(invocation -> resource(""));
+
+        perform(download().header(HttpHeaders.RANGE, "bytes=0-10"))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 0))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void testDownloadUnsatisfiableRange() throws Exception {
+        mockMvc.perform(download().header(HttpHeaders.RANGE, "bytes=20-30"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+    }
+
+    @Test
+    void testSearchWithLimit() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<ResourceInfoResponseDto> consumer = invocation.getArgument(3);
+            consumer.accept(new ResourceInfoResponseDto("docs/", "a.txt", 10L, "FILE"));
+            return null;
+        }).when(fileStorageRepository).search(eq(USER_ID), eq("a"), eq(1L), any());
+
+        mockMvc.perform(get("/api/resource/search").param("query", "a").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].name").value("a.txt"));
+    }
+
+    @Test
+    void testSearchStreamsOneMatchPerLine() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<ResourceInfoResponseDto> consumer = invocation.getArgument(3);
+            consumer.accept(new ResourceInfoResponseDto("docs/", "a.txt", 10L, "FILE"));
+            consumer.accept(new ResourceInfoResponseDto("", "docs/", "DIRECTORY"));
+            return null;
+        }).when(fileStorageRepository).search(eq(USER_ID), eq("a"), eq(Long.MAX_VALUE), any());
+
+        perform(get("/api/resource/search").param("query", "a").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("""
+                        {"path":"docs/","name":"a.txt","size":10,"type":"FILE"}
+                        {"path":"","name":"docs/","type":"DIRECTORY"}
+                        """));
+    }
+
+    @Test
+    void testSearchStreamPassesLimit() throws Exception {
+        perform(get("/api/resource/search").param("query", "a").param("limit", "5").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+
+        verify(fileStorageRepository).search(eq(USER_ID), eq("a"), eq(5L), any());
+    }
+
+    private MockHttpServletRequestBuilder download() {
+        return get("/api/resource/download").param("path", PATH);
+    }
+
+    private ResultActions perform(RequestBuilder requestBuilder) throws Exception {
+        MvcResult result = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+    private static ByteArrayResource resource(String content) {
+        return new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String httpDate(Instant instant) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(instant.atZone(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.cloudstorage.controller;
+
+import org.example.cloudstorage.advice.GlobalExceptionHandler;
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.dto.response.storage.UploadPartResponseDto;
+import org.example.cloudstorage.dto.response.storage.UploadSessionResponseDto;
+import org.example.cloudstorage.exception.InvalidUploadException;
+import org.example.cloudstorage.repository.FileStorageRepository;
+import org.example.cloudstorage.security.CustomUserDetails;
+import org.example.cloudstorage.service.StorageQuotaService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class UploadControllerTest {
+    private static final Long USER_ID = 1L;
+    private static final String UPLOAD_ID = "upload";
+
+    private final FileStorageRepository fileStorageRepository = mock(FileStorageRepository.class);
+    private final StorageQuotaService storageQuotaService = mock(StorageQuotaService.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        when(storageQuotaService.withUploadReservation(any(), any(), anyLong(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(3).get());
+        when(storageQuotaService.commitUpload(any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get());
+        mockMvc = MockMvcBuilders.standaloneSetup(new UploadController(fileStorageRepository, storageQuotaService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .build();
+        CustomUserDetails user = new CustomUserDetails("user", USER_ID);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testStartUpload() throws Exception {
+        when(fileStorageRepository.startUpload(USER_ID, "docs/a.bin"))
+                .thenReturn(new UploadSessionResponseDto(UPLOAD_ID, "docs/a.bin", 1024, List.of()));
+
+        mockMvc.perform(post("/api/resource/uploads").param("path", "docs/a.bin"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.uploadId").value(UPLOAD_ID));
+    }
+
+    @Test
+    void testUploadPartPassesBodyWithContentLength() throws Exception {
+        when(fileStorageRepository.uploadPart(eq(USER_ID), eq(UPLOAD_ID), eq(2), any(InputStream.class), eq(10L)))
+                .thenReturn(new UploadPartResponseDto(2, "etag", 10));
+
+        mockMvc.perform(put("/api/resource/uploads/{uploadId}/parts/{partNumber}", UPLOAD_ID, 2).content(new byte[10]))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.partNumber").value(2))
+                .andExpect(jsonPath("$.size").value(10));
+        verify(storageQuotaService).withUploadReservation(eq(USER_ID), eq(UPLOAD_ID), eq(10L), any());
+    }
+
+    @Test
+    void testCompleteUpload() throws Exception {
+        when(fileStorageRepository.completeUpload(USER_ID, UPLOAD_ID))
+                .thenReturn(new ResourceInfoResponseDto("docs/", "a.bin", 10L, "FILE"));
+
+        mockMvc.perform(post("/api/resource/uploads/{uploadId}/complete", UPLOAD_ID))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.name").value("a.bin"));
+    }
+
+    @Test
+    void testCompleteUploadWithInvalidPartsIsBadRequest() throws Exception {
+        when(fileStorageRepository.completeUpload(USER_ID, UPLOAD_ID))
+                .thenThrow(new InvalidUploadException("Part 1 is smaller than 5242880 bytes, only the last part may be"));
+
+        mockMvc.perform(post("/api/resource/uploads/{uploadId}/complete", UPLOAD_ID))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testAbortUploadReleasesReservation() throws Exception {
+        mockMvc.perform(delete("/api/resource/uploads/{uploadId}", UPLOAD_ID))
+                .andExpect(status().isNoContent());
+
+        verify(fileStorageRepository).abortUpload(USER_ID, UPLOAD_ID);
+        verify(storageQuotaService).releaseUpload(USER_ID, UPLOAD_ID);
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.cloudstorage.repository;
+
+import org.example.cloudstorage.config.InMemoryStorageProperties;
+import org.example.cloudstorage.config.UploadProperties;
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.exception.ResourceNotFoundException;
+import org.example.cloudstorage.service.DirectoryPage;
+import org.example.cloudstorage.service.ExpiredUpload;
+import org.example.cloudstorage.service.ResourceDeletedEvent;
+import org.example.cloudstorage.service.ResourceMetadataService;
+import org.example.cloudstorage.service.UploadSession;
+import org.example.cloudstorage.service.UploadSessionStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class InMemoryFileStorageRepositoryTest {
+    private static final Long USER_ID = 1L;
+    private static final byte[] CONTENT = new byte[1000];
+
+    private InMemoryStorageProperties properties;
+    private UploadSessionStore uploadSessionStore;
+    private ResourceMetadataService resourceMetadataService;
+    private ApplicationEventPublisher eventPublisher;
+    private final List<Duration> delays = new ArrayList<>();
+    private InMemoryFileStorageRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        properties = new InMemoryStorageProperties();
+        resourceMetadataService = mock(ResourceMetadataService.class);
+        when(resourceMetadataService.isIndexed(any())).thenReturn(true);
+        uploadSessionStore = mock(UploadSessionStore.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        repository = new InMemoryFileStorageRepository(properties, resourceMetadataService, uploadSessionStore,
+                new UploadProperties(), eventPublisher, delays::add);
+        repository.createDefaultUserDirectory(USER_ID);
+    }
+
+    @Test
+    void testDirectoryContentAfterRename() {
+        repository.save(USER_ID, "docs/", List.of(
+                new MockMultipartFile("object", "a.txt", "text/plain", CONTENT),
+                new MockMultipartFile("object", "inner/b.txt", "text/plain", CONTENT)));
+
+        repository.rename(USER_ID, "docs/inner/", "docs/moved/");
+
+        assertEquals(List.of(
+                new ResourceInfoResponseDto("docs/", "moved/", "DIRECTORY"),
+                new ResourceInfoResponseDto("docs/", "a.txt", (long) CONTENT.length, "FILE")),
+                repository.getDirectoryContentInfo(USER_ID, "docs/"));
+        assertEquals(CONTENT.length, repository.stat(USER_ID, "docs/moved/b.txt").size());
+    }
+
+    @Test
+    void testDirectoryContentPages() {
+        repository.save(USER_ID, "docs/", List.of(
+                new MockMultipartFile("object", "c.txt", "text/plain", CONTENT),
+                new MockMultipartFile("object", "a.txt", "text/plain", CONTENT),
+                new MockMultipartFile("object", "inner/b.txt", "text/plain", CONTENT)));
+
+        DirectoryPage first = repository.getDirectoryContentPage(USER_ID, "docs/", null, 2);
+        DirectoryPage second = repository.getDirectoryContentPage(USER_ID, "docs/", first.nextCursor(), 2);
+
+        assertEquals(List.of("inner/", "a.txt"), first.items().stream().map(ResourceInfoResponseDto::getName).toList());
+        assertEquals(List.of("c.txt"), second.items().stream().map(ResourceInfoResponseDto::getName).toList());
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    void testResumableUploadAssemblesPartsInOrder() throws Exception {
+        AtomicReference<UploadSession> session = new AtomicReference<>();
+        when(uploadSessionStore.create(eq(USER_ID), eq("big.bin"), any())).thenAnswer(invocation -> {
+            session.set(new UploadSession("upload", USER_ID, "big.bin", invocation.getArgument(2), null));
+            return session.get();
+        });
+        when(uploadSessionStore.find(USER_ID, "upload")).thenAnswer(invocation -> Optional.ofNullable(session.get()));
+
+        String uploadId = repository.startUpload(USER_ID, "big.bin").uploadId();
+        repository.uploadPart(USER_ID, uploadId, 2, new ByteArrayInputStream(new byte[]{3, 4}), 2);
+        repository.uploadPart(USER_ID, uploadId, 1, new ByteArrayInputStream(new byte[]{1, 2}), 2);
+        repository.completeUpload(USER_ID, uploadId);
+
+        try (InputStream inputStream = repository.get(USER_ID, "big.bin").getInputStream()) {
+            assertArrayEquals(new byte[]{1, 2, 3, 4}, inputStream.readAllBytes());
+        }
+        verify(uploadSessionStore).delete(uploadId);
+    }
+
+    @Test
+    void testReadsWaitForLatencyAndBandwidth() {
+        repository.save(USER_ID, "", List.of(new MockMultipartFile("object", "a.txt", "text/plain", CONTENT)));
+        properties.setLatency(Map.of("read", Duration.ofMillis(50)));
+        properties.setBandwidth(DataSize.ofKilobytes(10));
+        delays.clear();
+
+        repository.get(USER_ID, "a.txt");
+
+        // 1000 bytes at 10240 bytes per second
+        assertEquals(List.of(Duration.ofMillis(50).plusNanos(97_656_250)), delays);
+    }
+
+    @Test
+    void testIndexOfPreviousRunIsDropped() {
+        InMemoryFileStorageRepository restarted = new InMemoryFileStorageRepository(properties, resourceMetadataService,
+                uploadSessionStore, new UploadProperties(), eventPublisher, delays::add);
+
+        assertEquals(List.of(), restarted.getDirectoryContentInfo(USER_ID, ""));
+        restarted.getDirectoryContentInfo(USER_ID, "");
+
+        verify(eventPublisher).publishEvent(new ResourceDeletedEvent(USER_ID, ""));
+        assertEquals(0, restarted.stat(USER_ID, "").size());
+    }
+
+    @Test
+    void testIndexOfCurrentRunIsKept() {
+        repository.getDirectoryContentInfo(USER_ID, "");
+
+        verify(eventPublisher, never()).publishEvent(any(ResourceDeletedEvent.class));
+    }
+
+    @Test
+    void testExpiredUploadPartsAreDeleted() {
+        AtomicReference<UploadSession> session = new AtomicReference<>();
+        when(uploadSessionStore.create(eq(USER_ID), eq("big.bin"), any())).thenAnswer(invocation -> {
+            session.set(new UploadSession("upload", USER_ID, "big.bin", invocation.getArgument(2), null));
+            return session.get();
+        });
+        when(uploadSessionStore.find(USER_ID, "upload")).thenAnswer(invocation -> Optional.ofNullable(session.get()));
+        String uploadId = repository.startUpload(USER_ID, "big.bin").uploadId();
+        when(uploadSessionStore.claimExpired(anyInt()))
+                .thenReturn(List.of(new ExpiredUpload(null, session.get().storageUploadId())));
+
+        repository.deleteExpiredUploads();
+
+        assertThrows(ResourceNotFoundException.class, () -> repository.getUpload(USER_ID, uploadId));
+    }
+}
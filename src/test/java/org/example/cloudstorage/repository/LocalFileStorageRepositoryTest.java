@@ -0,0 +1,126 @@
+package org.example.cloudstorage.repository;
+
+import org.example.cloudstorage.config.LocalStorageProperties;
+import org.example.cloudstorage.config.UploadProperties;
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.exception.ResourceAlreadyExistsException;
+import org.example.cloudstorage.exception.ResourceNotFoundException;
+import org.example.cloudstorage.service.DirectoryPage;
+import org.example.cloudstorage.service.ExpiredUpload;
+import org.example.cloudstorage.service.ResourceMetadataService;
+import org.example.cloudstorage.service.UploadSession;
+import org.example.cloudstorage.service.UploadSessionStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LocalFileStorageRepositoryTest {
+    private static final Long USER_ID = 1L;
+    private static final byte[] CONTENT = "0123456789".getBytes();
+
+    @TempDir
+    Path root;
+
+    private final UploadSessionStore uploadSessionStore = mock(UploadSessionStore.class);
+    private LocalFileStorageRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        LocalStorageProperties properties = new LocalStorageProperties();
+        properties.setRoot(root);
+        ResourceMetadataService resourceMetadataService = mock(ResourceMetadataService.class);
+        when(resourceMetadataService.isIndexed(any())).thenReturn(true);
+        repository = new LocalFileStorageRepository(properties, resourceMetadataService, uploadSessionStore,
+                new UploadProperties(), mock(ApplicationEventPublisher.class));
+        repository.createDefaultUserDirectory(USER_ID);
+    }
+
+    @Test
+    void testSaveAndReadRange() throws Exception {
+        repository.save(USER_ID, "docs/", List.of(new MockMultipartFile("object", "a.txt", "text/plain", CONTENT)));
+
+        Resource range = repository.get(USER_ID, "docs/a.txt", 2, 5);
+        try (InputStream inputStream = range.getInputStream()) {
+            assertEquals("23456", new String(inputStream.readAllBytes()));
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ((FileRegionResource) repository.get(USER_ID, "docs/a.txt")).writeTo(outputStream);
+        assertArrayEquals(CONTENT, outputStream.toByteArray());
+        assertThrows(ResourceAlreadyExistsException.class, () -> repository.save(USER_ID, "docs/",
+                List.of(new MockMultipartFile("object", "a.txt", "text/plain", CONTENT))));
+    }
+
+    @Test
+    void testRenameDirectoryMovesSubtree() {
+        repository.save(USER_ID, "docs/inner/", List.of(new MockMultipartFile("object", "a.txt", "text/plain", CONTENT)));
+
+        ResourceInfoResponseDto moved = repository.rename(USER_ID, "docs/", "archive/docs/");
+
+        assertEquals(new ResourceInfoResponseDto("archive/", "docs/", "DIRECTORY"), moved);
+        assertEquals(CONTENT.length, repository.stat(USER_ID, "archive/docs/inner/a.txt").size());
+        assertThrows(ResourceNotFoundException.class, () -> repository.getInfo(USER_ID, "docs/"));
+    }
+
+    @Test
+    void testDirectoryContentListsDirectoriesFirst() {
+        repository.save(USER_ID, "", List.of(
+                new MockMultipartFile("object", "b.txt", "text/plain", CONTENT),
+                new MockMultipartFile("object", "z/a.txt", "text/plain", CONTENT)));
+
+        List<ResourceInfoResponseDto> content = repository.getDirectoryContentInfo(USER_ID, "");
+
+        assertEquals(List.of(
+                new ResourceInfoResponseDto("", "z/", "DIRECTORY"),
+                new ResourceInfoResponseDto("", "b.txt", (long) CONTENT.length, "FILE")), content);
+    }
+
+    @Test
+    void testDirectoryContentPagesListDirectoriesFirst() {
+        repository.save(USER_ID, "", List.of(
+                new MockMultipartFile("object", "b.txt", "text/plain", CONTENT),
+                new MockMultipartFile("object", "a.txt", "text/plain", CONTENT),
+                new MockMultipartFile("object", "z/a.txt", "text/plain", CONTENT)));
+
+        DirectoryPage first = repository.getDirectoryContentPage(USER_ID, "", null, 2);
+        DirectoryPage second = repository.getDirectoryContentPage(USER_ID, "", first.nextCursor(), 2);
+
+        assertEquals(List.of("z/", "a.txt"), first.items().stream().map(ResourceInfoResponseDto::getName).toList());
+        assertEquals(List.of("b.txt"), second.items().stream().map(ResourceInfoResponseDto::getName).toList());
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    void testExpiredUploadPartsAreDeleted() {
+        when(uploadSessionStore.create(eq(USER_ID), eq("big.bin"), any())).thenAnswer(invocation ->
+                new UploadSession("session", USER_ID, "big.bin", invocation.getArgument(2), null));
+        repository.startUpload(USER_ID, "big.bin");
+        Path uploads = root.resolve(".uploads");
+        Path parts = uploads.resolve(uploads.toFile().list()[0]);
+        when(uploadSessionStore.claimExpired(anyInt()))
+                .thenReturn(List.of(new ExpiredUpload(null, parts.getFileName().toString())));
+
+        repository.deleteExpiredUploads();
+
+        assertFalse(Files.exists(parts));
+    }
+}
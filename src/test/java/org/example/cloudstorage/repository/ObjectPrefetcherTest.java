@@ -0,0 +1,77 @@
+package org.example.cloudstorage.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ObjectPrefetcherTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testCloseClosesStreamsOfRunningLoads() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(2);
+        List<ObjectPrefetcher.Source> items = List.of(
+                new ObjectPrefetcher.Source("a", "a", 10),
+                new ObjectPrefetcher.Source("b", "b", 10));
+
+        ObjectPrefetcher prefetcher = new ObjectPrefetcher(items.iterator(), key -> {
+            if (key.equals("b")) {
+                loading.countDown();
+                await(release);
+            }
+            return new FilterInputStream(new ByteArrayInputStream(new byte[10])) {
+                @Override
+                public void close() {
+                    closed.countDown();
+                }
+            };
+        }, executor, 2, 0);
+
+        try (ObjectPrefetcher.PrefetchedObject object = prefetcher.next()) {
+            assertEquals("a", object.name());
+        }
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        prefetcher.close();
+        release.countDown();
+
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testMemoryCapIsClampedToArraySize() throws Exception {
+        List<ObjectPrefetcher.Source> items = List.of(new ObjectPrefetcher.Source("a", "a", 3L * Integer.MAX_VALUE));
+        try (ObjectPrefetcher prefetcher = new ObjectPrefetcher(items.iterator(),
+                key -> new ByteArrayInputStream(new byte[]{1}), executor, 1, Long.MAX_VALUE);
+             ObjectPrefetcher.PrefetchedObject object = prefetcher.next()) {
+            InputStream inputStream = object.inputStream();
+            assertEquals(1, inputStream.read());
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
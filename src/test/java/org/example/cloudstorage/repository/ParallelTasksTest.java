@@ -0,0 +1,55 @@
+package org.example.cloudstorage.repository;
+
+import org.example.cloudstorage.exception.StorageException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelTasksTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testForEachRunsEveryItemWithinConcurrencyLimit() {
+        Set<Integer> processed = ConcurrentHashMap.newKeySet();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Integer> items = IntStream.range(0, 100).boxed().toList();
+
+        ParallelTasks.forEach(items.iterator(), item -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            processed.add(item);
+            running.decrementAndGet();
+        }, executor, 3);
+
+        assertEquals(100, processed.size());
+        assertTrue(maxRunning.get() <= 3);
+    }
+
+    @Test
+    void testForEachRethrowsFirstFailure() {
+        List<Integer> items = IntStream.range(0, 10).boxed().toList();
+
+        assertThrows(StorageException.class, () -> ParallelTasks.forEach(items.iterator(), item -> {
+            if (item == 5) {
+                throw new StorageException("Can not copy " + item);
+            }
+        }, executor, 2));
+    }
+}
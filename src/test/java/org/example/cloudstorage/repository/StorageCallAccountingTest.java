@@ -0,0 +1,58 @@
+package org.example.cloudstorage.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class StorageCallAccountingTest {
+    private final StorageMetrics storageMetrics = new StorageMetrics(new SimpleMeterRegistry());
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        StorageCallAccounting.finish();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testCallsOnWorkerThreadsAreAccountedToRequest() {
+        StorageCallAccounting accounting = StorageCallAccounting.start();
+
+        ParallelTasks.forEach(List.of("a", "b", "c").iterator(), name -> {
+            try {
+                storageMetrics.record("copyObject", () -> name);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }, executor, 2);
+
+        assertEquals(3, accounting.calls());
+        assertEquals(3, accounting.callsByOperation().get("copyObject"));
+    }
+
+    @Test
+    void testWrappedTaskRunsWithAccountingOfSubmitter() throws Exception {
+        StorageCallAccounting accounting = StorageCallAccounting.start();
+        Runnable task = StorageCallAccounting.wrap(() -> {
+            try {
+                storageMetrics.record("getObject", () -> "object");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        StorageCallAccounting.finish();
+
+        CompletableFuture.runAsync(task, executor).get();
+
+        assertEquals(1, accounting.calls());
+        assertNull(CompletableFuture.supplyAsync(StorageCallAccounting::current, executor).get());
+    }
+}
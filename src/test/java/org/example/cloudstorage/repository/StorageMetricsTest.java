@@ -0,0 +1,90 @@
+package org.example.cloudstorage.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.Result;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StorageMetricsTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StorageMetrics storageMetrics = new StorageMetrics(meterRegistry);
+
+    @Test
+    void testRecordTagsOperationAndOutcome() throws Exception {
+        storageMetrics.record("statObject", () -> "stat");
+        assertThrows(IllegalStateException.class, () -> storageMetrics.record("statObject", () -> {
+            throw new IllegalStateException("unavailable");
+        }));
+        storageMetrics.recordAsync("uploadPart", CompletableFuture.completedFuture("etag")).join();
+
+        assertEquals(1, requests("statObject", "success"));
+        assertEquals(1, requests("statObject", "error"));
+        assertEquals(1, requests("uploadPart", "success"));
+    }
+
+    @Test
+    void testListingRecordsObjectCountOnceExhausted() {
+        Iterable<Result<String>> listing = storageMetrics.recordListing(List.of(
+                new Result<>("a"), new Result<>("b"), new Result<>("c")));
+
+        listing.forEach(result -> {
+        });
+
+        assertEquals(1, requests("listObjects", "success"));
+        assertEquals(3, meterRegistry.get("cloudstorage.storage.listing.objects").summary().totalAmount());
+    }
+
+    @Test
+    void testAbandonedListingIsRecordedOnceCollected() throws InterruptedException {
+        Iterable<Result<String>> listing = storageMetrics.recordListing(List.of(
+                new Result<>("a"), new Result<>("b"), new Result<>("c")));
+        Iterator<Result<String>> iterator = listing.iterator();
+        iterator.hasNext();
+        iterator.next();
+        iterator = null;
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (meterRegistry.find("cloudstorage.storage.requests").tag("outcome", "abandoned").timer() == null
+                && System.nanoTime() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, requests("listObjects", "abandoned"));
+        assertEquals(1, meterRegistry.get("cloudstorage.storage.listing.objects").summary().totalAmount());
+    }
+
+    @Test
+    void testTransferredBytes() throws IOException {
+        try (InputStream inputStream = storageMetrics.recordDownload(new ByteArrayInputStream(new byte[1000]))) {
+            inputStream.readAllBytes();
+        }
+        storageMetrics.recordUpload(250);
+        StorageMetrics.ArchiveOutputStream archive = storageMetrics.recordArchive(new ByteArrayOutputStream());
+        archive.write(new byte[400]);
+        archive.complete();
+
+        assertEquals(1000, meterRegistry.get("cloudstorage.storage.transferred").tag("direction", "download").counter().count());
+        assertEquals(250, meterRegistry.get("cloudstorage.storage.transferred").tag("direction", "upload").counter().count());
+        assertEquals(400, meterRegistry.get("cloudstorage.storage.archive.size").summary().totalAmount());
+    }
+
+    private long requests(String operation, String outcome) {
+        return meterRegistry.get("cloudstorage.storage.requests")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .timer()
+                .count();
+    }
+}
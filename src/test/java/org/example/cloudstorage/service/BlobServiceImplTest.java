@@ -0,0 +1,66 @@
+package org.example.cloudstorage.service;
+
+import org.example.cloudstorage.config.DedupProperties;
+import org.example.cloudstorage.entity.Blob;
+import org.example.cloudstorage.entity.ResourceBlob;
+import org.example.cloudstorage.repository.BlobRepository;
+import org.example.cloudstorage.repository.ResourceBlobRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BlobServiceImplTest {
+    private static final Long USER_ID = 1L;
+    private static final Limit PAGE = Limit.of(1000);
+
+    private final ResourceBlobRepository resourceBlobRepository = mock(ResourceBlobRepository.class);
+    private final BlobServiceImpl service = new BlobServiceImpl(mock(BlobRepository.class), resourceBlobRepository,
+            new DedupProperties());
+
+    @Test
+    void testSubtreeIsReadPageByPageAsTheStreamAdvances() {
+        when(resourceBlobRepository.findSubtreePage(USER_ID, "docs/", "docs/%", "", PAGE)).thenReturn(files(0, 1000));
+        when(resourceBlobRepository.findSubtreePage(USER_ID, "docs/", "docs/%", "docs/0999.txt", PAGE)).thenReturn(files(1000, 1));
+
+        Iterator<BlobObject> blobs = service.findSubtree(USER_ID, "docs/").iterator();
+        assertEquals("docs/0000.txt", blobs.next().path());
+        verify(resourceBlobRepository, never()).findSubtreePage(eq(USER_ID), eq("docs/"), eq("docs/%"), eq("docs/0999.txt"), any());
+
+        List<String> rest = IntStream.range(0, 1000).mapToObj(i -> blobs.next().path()).toList();
+        assertEquals("docs/1000.txt", rest.getLast());
+        assertFalse(blobs.hasNext());
+    }
+
+    @Test
+    void testFileSubtreeStopsAfterShortPage() {
+        when(resourceBlobRepository.findSubtreePage(USER_ID, "a.txt", "a.txt", "", PAGE)).thenReturn(List.of(file("a.txt")));
+
+        assertEquals(List.of("a.txt"), service.findSubtree(USER_ID, "a.txt").map(BlobObject::path).toList());
+        verify(resourceBlobRepository, never()).findSubtreePage(eq(USER_ID), eq("a.txt"), eq("a.txt"), eq("a.txt"), any());
+    }
+
+    private static List<ResourceBlob> files(int from, int count) {
+        return IntStream.range(from, from + count)
+                .mapToObj(i -> file(String.format("docs/%04d.txt", i)))
+                .toList();
+    }
+
+    private static ResourceBlob file(String path) {
+        Blob blob = new Blob();
+        blob.setObjectKey("blobs/" + path);
+        blob.setSize(1);
+        return new ResourceBlob(USER_ID, path, blob);
+    }
+}
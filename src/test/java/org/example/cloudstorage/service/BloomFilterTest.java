@@ -0,0 +1,56 @@
+package org.example.cloudstorage.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BloomFilterTest {
+
+    @Test
+    void testAddedValuesAreAlwaysReported() {
+        BloomFilter filter = new BloomFilter(8 * 1024 * 8, 0.01);
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            paths.add("folder-" + i % 50 + "/file-" + i + ".txt");
+        }
+        byte[] bitmap = filter.toBitmap(paths);
+
+        assertEquals(filter.sizeInBytes(), bitmap.length);
+        for (String path : paths) {
+            assertTrue(filter.mightContain(bitmap, path));
+        }
+    }
+
+    @Test
+    void testFalsePositiveRateStaysNearTargetAtCapacity() {
+        BloomFilter filter = new BloomFilter(8 * 1024 * 8, 0.01);
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < filter.capacity(); i++) {
+            paths.add("docs/" + i);
+        }
+        byte[] bitmap = filter.toBitmap(paths);
+
+        int falsePositives = 0;
+        int checks = 20000;
+        for (int i = 0; i < checks; i++) {
+            if (filter.mightContain(bitmap, "missing/" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < checks * 0.02, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void testBitsForHoldsRequestedCapacity() {
+        long bits = BloomFilter.bitsFor(1000, 0.01);
+        BloomFilter filter = new BloomFilter(bits, 0.01);
+
+        assertEquals(0, bits % 8);
+        assertTrue(filter.capacity() >= 1000, "capacity: " + filter.capacity());
+        assertTrue(filter.capacity() < 1010, "capacity: " + filter.capacity());
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.cloudstorage.service;
+
+import org.example.cloudstorage.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DirectoryCursorTest {
+
+    @Test
+    void testEncodedCursorDecodesToSamePosition() {
+        DirectoryCursor cursor = new DirectoryCursor("FILE", "отчёт\nfinal.pdf");
+
+        String encoded = cursor.encode();
+
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"), encoded);
+        assertEquals(cursor, DirectoryCursor.decode(encoded));
+    }
+
+    @Test
+    void testDirectoriesAreOrderedBeforeFiles() {
+        DirectoryCursor directory = new DirectoryCursor("DIRECTORY", "zeta/");
+        DirectoryCursor file = new DirectoryCursor("FILE", "a.txt");
+
+        assertTrue(DirectoryCursor.ORDER.compare(directory, file) < 0);
+        assertTrue(DirectoryCursor.ORDER.compare(new DirectoryCursor("FILE", "b.txt"), file) > 0);
+    }
+
+    @Test
+    void testMalformedCursorIsRejected() {
+        String withoutType = Base64.getUrlEncoder().encodeToString("\na.txt".getBytes(StandardCharsets.UTF_8));
+        String withoutSeparator = Base64.getUrlEncoder().encodeToString("FILE".getBytes(StandardCharsets.UTF_8));
+
+        for (String cursor : new String[]{"not a cursor!", withoutType, withoutSeparator}) {
+            assertThrows(InvalidCursorException.class, () -> DirectoryCursor.decode(cursor), cursor);
+        }
+    }
+}
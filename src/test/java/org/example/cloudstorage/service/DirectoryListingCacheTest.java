@@ -0,0 +1,142 @@
+package org.example.cloudstorage.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.cloudstorage.config.ListingCacheProperties;
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Testcontainers(disabledWithoutDocker = true)
+public class DirectoryListingCacheTest {
+    private static final Long USER_ID = 1L;
+
+    @Container
+    static GenericContainer<?> redisContainer = new GenericContainer<>("redis").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private final List<String> loads = new ArrayList<>();
+    private DirectoryListingCache cache;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(redisContainer.getHost(), redisContainer.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+        cache = new DirectoryListingCache(new StringRedisTemplate(connectionFactory), new ObjectMapper(),
+                new ListingCacheProperties(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testCachedListingIsServedWithoutLoading() {
+        assertEquals(List.of(file("docs/", "a.txt")), get("docs/"));
+        assertEquals(List.of(file("docs/", "a.txt")), get("docs/"));
+
+        assertEquals(List.of("docs/"), loads);
+    }
+
+    @Test
+    void testCreatedFileEvictsOnlyItsAncestors() {
+        get("");
+        get("docs/");
+        get("photos/");
+
+        cache.handleResourcesCreatedEvent(new ResourcesCreatedEvent(USER_ID,
+                List.of(new StoredObject("docs/b.txt", 1, null, Instant.now()))));
+        get("");
+        get("docs/");
+        get("photos/");
+
+        assertEquals(List.of("", "docs/", "photos/", "", "docs/"), loads);
+    }
+
+    @Test
+    void testDeletedDirectoryEvictsListingsInsideIt() {
+        get("docs/");
+        get("docs/sub/");
+        get("docs-old/");
+
+        cache.handleResourceDeletedEvent(new ResourceDeletedEvent(USER_ID, "docs/"));
+        get("docs/");
+        get("docs/sub/");
+        get("docs-old/");
+
+        assertEquals(List.of("docs/", "docs/sub/", "docs-old/", "docs/", "docs/sub/"), loads);
+    }
+
+    @Test
+    void testMoveEvictsSourceAndTargetListings() {
+        get("docs/sub/");
+        get("archive/");
+        get("photos/");
+
+        cache.handleResourceMovedEvent(new ResourceMovedEvent(USER_ID, "docs/sub/", "archive/sub/"));
+        get("docs/sub/");
+        get("archive/");
+        get("photos/");
+
+        assertEquals(List.of("docs/sub/", "archive/", "photos/", "docs/sub/", "archive/"), loads);
+    }
+
+    @Test
+    void testListingLoadedWhileAnEvictionRanIsNotStored() {
+        cache.get(USER_ID, "docs/", () -> {
+            loads.add("docs/");
+            // another request changes the directory while this listing is read
+            cache.handleResourceDeletedEvent(new ResourceDeletedEvent(USER_ID, "docs/a.txt"));
+            return List.of(file("docs/", "a.txt"));
+        });
+
+        get("docs/");
+
+        assertEquals(List.of("docs/", "docs/"), loads);
+    }
+
+    @Test
+    void testEvictionOfAnotherUserDoesNotAffectListing() {
+        get("docs/");
+
+        cache.handleResourceDeletedEvent(new ResourceDeletedEvent(2L, "docs/a.txt"));
+        get("docs/");
+
+        assertEquals(List.of("docs/"), loads);
+    }
+
+    private List<ResourceInfoResponseDto> get(String path) {
+        return cache.get(USER_ID, path, () -> {
+            loads.add(path);
+            return List.of(file(path, "a.txt"));
+        });
+    }
+
+    private static ResourceInfoResponseDto file(String parent, String name) {
+        return new ResourceInfoResponseDto(parent, name, 1L, "FILE");
+    }
+}
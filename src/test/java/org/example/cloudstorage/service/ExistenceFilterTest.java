@@ -0,0 +1,150 @@
+package org.example.cloudstorage.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.cloudstorage.config.ExistenceFilterProperties;
+import org.example.cloudstorage.repository.ResourceMetadataRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Testcontainers(disabledWithoutDocker = true)
+public class ExistenceFilterTest {
+    private static final Long USER_ID = 1L;
+    private static final String META_KEY = "cloudstorage:exists:{1}:meta";
+    private static final String GENERATION_KEY = "cloudstorage:exists:{1}:generation";
+
+    @Container
+    static GenericContainer<?> redisContainer = new GenericContainer<>("redis").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private final ResourceMetadataRepository resourceMetadataRepository = mock(ResourceMetadataRepository.class);
+    private final ResourceMetadataService resourceMetadataService = mock(ResourceMetadataService.class);
+    private final List<String> loads = new ArrayList<>();
+    private StringRedisTemplate redisTemplate;
+    private ExistenceFilter filter;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(redisContainer.getHost(), redisContainer.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        filter = filter(redisTemplate);
+        when(resourceMetadataService.isIndexed(USER_ID)).thenReturn(true);
+        when(resourceMetadataRepository.findPathsByUserId(USER_ID)).thenReturn(List.of("", "docs/", "docs/a.txt"));
+    }
+
+    @Test
+    void testMissingPathIsAnsweredWithoutLoader() {
+        assertFalse(exists("photos/b.txt"));
+        assertTrue(exists("docs/a.txt"));
+        assertFalse(exists("docs/b.txt"));
+
+        assertEquals(List.of("docs/a.txt"), loads);
+        assertTrue(redisTemplate.hasKey(META_KEY));
+    }
+
+    @Test
+    void testBuildThatLostGenerationRaceIsNotPublished() {
+        when(resourceMetadataRepository.findPathsByUserId(USER_ID)).thenAnswer(invocation -> {
+            // a file is saved while the build reads the metadata table
+            filter.handleResourcesCreatedEvent(created("docs/new.txt"));
+            return List.of("", "docs/", "docs/a.txt");
+        });
+
+        exists("docs/a.txt");
+
+        assertFalse(redisTemplate.hasKey(META_KEY));
+    }
+
+    @Test
+    void testWriteWithoutFilterBumpsGeneration() {
+        filter.handleResourcesCreatedEvent(created("docs/new.txt"));
+        filter.handleResourcesCreatedEvent(created("docs/other.txt"));
+
+        assertEquals("2", redisTemplate.opsForValue().get(GENERATION_KEY));
+        assertFalse(redisTemplate.hasKey(META_KEY));
+    }
+
+    @Test
+    void testWriteWithFilterAddsPath() {
+        exists("docs/a.txt");
+
+        filter.handleResourcesCreatedEvent(created("docs/new.txt"));
+
+        assertTrue(exists("docs/new.txt"));
+        assertEquals(List.of("docs/a.txt", "docs/new.txt"), loads);
+    }
+
+    @Test
+    void testFilterIsResetOnceEntriesExceedCapacity() {
+        exists("docs/a.txt");
+        long bits = Long.parseLong((String) redisTemplate.opsForHash().get(META_KEY, "bits"));
+        long capacity = new BloomFilter(bits, new ExistenceFilterProperties().getFalsePositiveRate()).capacity();
+
+        List<StoredObject> objects = IntStream.rangeClosed(0, (int) capacity)
+                .mapToObj(i -> new StoredObject("docs/file-" + i + ".txt", 1, null, Instant.now()))
+                .toList();
+        filter.handleResourcesCreatedEvent(new ResourcesCreatedEvent(USER_ID, objects));
+
+        assertFalse(redisTemplate.hasKey(META_KEY));
+    }
+
+    @Test
+    void testLoaderIsUsedWhenRedisFails() {
+        StringRedisTemplate failingTemplate = mock(StringRedisTemplate.class);
+        when(failingTemplate.opsForHash()).thenThrow(new RedisConnectionFailureException("Redis is down"));
+        ExistenceFilter failingFilter = filter(failingTemplate);
+
+        assertTrue(failingFilter.exists(USER_ID, "docs/a.txt", () -> true));
+        assertFalse(failingFilter.exists(USER_ID, "docs/b.txt", () -> false));
+    }
+
+    private boolean exists(String path) {
+        return filter.exists(USER_ID, path, () -> {
+            loads.add(path);
+            return path.equals("docs/a.txt") || path.equals("docs/new.txt");
+        });
+    }
+
+    private ExistenceFilter filter(StringRedisTemplate template) {
+        return new ExistenceFilter(template, resourceMetadataRepository, resourceMetadataService,
+                new ExistenceFilterProperties(), new SimpleMeterRegistry());
+    }
+
+    private static ResourcesCreatedEvent created(String path) {
+        return new ResourcesCreatedEvent(USER_ID, List.of(new StoredObject(path, 1, null, Instant.now())));
+    }
+}
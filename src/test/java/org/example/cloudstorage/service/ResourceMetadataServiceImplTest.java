@@ -0,0 +1,79 @@
+package org.example.cloudstorage.service;
+
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.entity.ResourceMetadata;
+import org.example.cloudstorage.repository.ResourceMetadataRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ResourceMetadataServiceImplTest {
+    private static final Long USER_ID = 1L;
+    private static final String PATTERN = "%report%";
+
+    private final ResourceMetadataRepository resourceMetadataRepository = mock(ResourceMetadataRepository.class);
+    private final ResourceMetadataServiceImpl service =
+            new ResourceMetadataServiceImpl(resourceMetadataRepository, mock(ResourceSearchIndex.class));
+
+    @Test
+    void testSearchStopsAtLimit() {
+        when(resourceMetadataRepository.searchByName(USER_ID, PATTERN, Limit.of(3))).thenReturn(files(0, 3));
+
+        List<String> names = new ArrayList<>();
+        service.search(USER_ID, "Report", 3, match -> names.add(match.getName()));
+
+        assertEquals(List.of("report-0.pdf", "report-1.pdf", "report-2.pdf"), names);
+        verify(resourceMetadataRepository, never()).searchByNameAfter(eq(USER_ID), eq(PATTERN), anyString(), eq(Limit.of(3)));
+    }
+
+    @Test
+    void testSearchReadsPagesAfterLastPath() {
+        when(resourceMetadataRepository.searchByName(USER_ID, PATTERN, Limit.of(500))).thenReturn(files(0, 500));
+        when(resourceMetadataRepository.searchByNameAfter(USER_ID, PATTERN, "docs/report-499.pdf", Limit.of(100)))
+                .thenReturn(files(500, 20));
+
+        List<ResourceInfoResponseDto> matches = new ArrayList<>();
+        service.search(USER_ID, "report", 600, matches::add);
+
+        assertEquals(520, matches.size());
+        assertEquals("report-519.pdf", matches.getLast().getName());
+    }
+
+    @Test
+    void testMoveUpdatesChangedAncestorsInPathOrderWithOneStatement() {
+        ResourceMetadata file = new ResourceMetadata(USER_ID, "b/old/a.txt");
+        file.setType(ResourceMetadata.TYPE_FILE);
+        file.setSize(10L);
+        when(resourceMetadataRepository.findByUserIdAndPath(USER_ID, "b/old/a.txt")).thenReturn(Optional.of(file));
+
+        service.move(USER_ID, "b/old/a.txt", "a/new/a.txt");
+
+        verify(resourceMetadataRepository).addToDirectories(USER_ID,
+                new String[]{"a/", "a/new/", "b/", "b/old/"}, new Long[]{10L, 10L, -10L, -10L}, new Long[]{1L, 1L, -1L, -1L});
+    }
+
+    private static List<ResourceMetadata> files(int from, int count) {
+        return IntStream.range(from, from + count)
+                .mapToObj(i -> {
+                    ResourceMetadata metadata = new ResourceMetadata(USER_ID, "docs/report-" + i + ".pdf");
+                    metadata.setParent("docs/");
+                    metadata.setName("report-" + i + ".pdf");
+                    metadata.setSize(1L);
+                    metadata.setType(ResourceMetadata.TYPE_FILE);
+                    return metadata;
+                })
+                .toList();
+    }
+}
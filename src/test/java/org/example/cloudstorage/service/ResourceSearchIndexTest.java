@@ -0,0 +1,124 @@
+package org.example.cloudstorage.service;
+
+import org.example.cloudstorage.config.SearchIndexProperties;
+import org.example.cloudstorage.dto.response.storage.ResourceInfoResponseDto;
+import org.example.cloudstorage.repository.ResourceMetadataRepository;
+import org.example.cloudstorage.repository.ResourcePathSize;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Testcontainers(disabledWithoutDocker = true)
+public class ResourceSearchIndexTest {
+    private static final Long USER_ID = 1L;
+
+    @Container
+    static GenericContainer<?> redisContainer = new GenericContainer<>("redis").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private final ResourceMetadataRepository resourceMetadataRepository = mock(ResourceMetadataRepository.class);
+    private StringRedisTemplate redisTemplate;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(redisContainer.getHost(), redisContainer.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+        when(resourceMetadataRepository.findPathSizesByUserId(USER_ID))
+                .thenReturn(List.of(new ResourcePathSize("docs/", 0L), new ResourcePathSize("docs/report.pdf", 10L)));
+    }
+
+    @Test
+    void testLocalChangesKeepIndex() {
+        ResourceSearchIndex index = node();
+        index.search(USER_ID, "report");
+
+        index.handleResourcesCreatedEvent(created("docs/report-2.pdf"));
+        index.handleResourceDeletedEvent(new ResourceDeletedEvent(USER_ID, "docs/report.pdf"));
+
+        assertEquals(List.of("report-2.pdf"), names(index.search(USER_ID, "report")));
+        verify(resourceMetadataRepository, times(1)).findPathSizesByUserId(USER_ID);
+    }
+
+    @Test
+    void testConcurrentLocalChangesKeepIndex() throws Exception {
+        ResourceSearchIndex index = node();
+        index.search(USER_ID, "report");
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 200; i++) {
+                String path = "docs/report-" + i + ".pdf";
+                executor.execute(() -> index.handleResourcesCreatedEvent(created(path)));
+            }
+        }
+
+        assertEquals(201, index.search(USER_ID, "report").size());
+        verify(resourceMetadataRepository, times(1)).findPathSizesByUserId(USER_ID);
+    }
+
+    @Test
+    void testChangeOnAnotherNodeReloadsIndex() {
+        ResourceSearchIndex index = node();
+        index.search(USER_ID, "report");
+        when(resourceMetadataRepository.findPathSizesByUserId(USER_ID))
+                .thenReturn(List.of(new ResourcePathSize("docs/", 0L), new ResourcePathSize("docs/summary.pdf", 10L)));
+
+        node().handleResourceMovedEvent(new ResourceMovedEvent(USER_ID, "docs/report.pdf", "docs/summary.pdf"));
+
+        assertEquals(List.of("summary.pdf"), names(index.search(USER_ID, "summary")));
+        verify(resourceMetadataRepository, times(2)).findPathSizesByUserId(USER_ID);
+    }
+
+    @Test
+    void testChangesOfUserWithoutIndexDoNotTouchRedis() {
+        node().handleResourcesCreatedEvent(created("docs/report-2.pdf"));
+
+        assertFalse(Boolean.TRUE.equals(redisTemplate.hasKey("cloudstorage:search-index:{1}:version")));
+    }
+
+    private ResourceSearchIndex node() {
+        return new ResourceSearchIndex(new SearchIndexProperties(), resourceMetadataRepository, redisTemplate);
+    }
+
+    private static ResourcesCreatedEvent created(String path) {
+        return new ResourcesCreatedEvent(USER_ID, List.of(new StoredObject(path, 1, null, Instant.now())));
+    }
+
+    private static List<String> names(List<ResourceInfoResponseDto> matches) {
+        return matches.stream().map(ResourceInfoResponseDto::getName).toList();
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.cloudstorage.service;
+
+import org.example.cloudstorage.config.StorageJobProperties;
+import org.example.cloudstorage.dto.response.storage.StorageJobResponseDto;
+import org.example.cloudstorage.exception.ResourceNotFoundException;
+import org.example.cloudstorage.repository.FileStorageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StorageJobServiceImplTest {
+    private static final Long USER_ID = 1L;
+
+    private final FileStorageRepository fileStorageRepository = mock(FileStorageRepository.class);
+    private final StorageJobStore storageJobStore = mock(StorageJobStore.class);
+    private final StorageJobProperties properties = new StorageJobProperties();
+
+    @BeforeEach
+    void setUp() {
+        properties.setObjectThreshold(10);
+        when(storageJobStore.acquire(anyString(), anyString())).thenReturn(true);
+    }
+
+    @Test
+    void testSmallDirectoryIsDeletedOnRequestThread() {
+        when(fileStorageRepository.countObjects(USER_ID, "docs/")).thenReturn(10L);
+
+        assertTrue(service(Executors.newVirtualThreadPerTaskExecutor()).deleteInBackground(USER_ID, "docs/").isEmpty());
+        verify(storageJobStore, never()).create(any(), any(), any(), any(), anyLong());
+    }
+
+    @Test
+    void testLargeDirectoryIsDeletedInBackground() {
+        StorageJob job = pending(StorageJob.Type.DELETE, "docs/", null, 11);
+        when(fileStorageRepository.countObjects(USER_ID, "docs/")).thenReturn(11L);
+        when(storageJobStore.create(USER_ID, StorageJob.Type.DELETE, "docs/", null, 11)).thenReturn(job);
+        when(storageJobStore.find(job.id())).thenReturn(Optional.of(job));
+
+        Optional<StorageJobResponseDto> response;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            response = service(executor).deleteInBackground(USER_ID, "docs/");
+        }
+
+        assertEquals("PENDING", response.orElseThrow().status());
+        verify(fileStorageRepository).delete(eq(USER_ID), eq("docs/"), any(LongConsumer.class));
+        verify(storageJobStore).complete(job.id(), 11);
+        verify(storageJobStore).release(eq(job.id()), anyString());
+    }
+
+    @Test
+    void testResumedMoveCompletesWhenSourceIsAlreadyGone() {
+        StorageJob job = new StorageJob("job", USER_ID, StorageJob.Type.MOVE, "docs/", "archive/",
+                StorageJob.Status.RUNNING, 40, 60, null);
+        when(storageJobStore.findActiveIds()).thenReturn(Set.of(job.id()));
+        when(storageJobStore.find(job.id())).thenReturn(Optional.of(job));
+        doThrow(new ResourceNotFoundException("Object does not exists"))
+                .when(fileStorageRepository).rename(eq(USER_ID), eq("docs/"), eq("archive/"), any(LongConsumer.class));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            service(executor).resumeAbandonedJobs();
+        }
+
+        verify(storageJobStore).complete(job.id(), 60);
+        verify(storageJobStore, never()).fail(anyString(), anyString());
+    }
+
+    @Test
+    void testLeaseRenewalSurvivesStoreFailure() {
+        StorageJob job = pending(StorageJob.Type.DELETE, "docs/", null, 11);
+        when(fileStorageRepository.countObjects(USER_ID, "docs/")).thenReturn(11L);
+        when(storageJobStore.create(USER_ID, StorageJob.Type.DELETE, "docs/", null, 11)).thenReturn(job);
+        ExecutorService idle = mock(ExecutorService.class);
+        StorageJobServiceImpl service = service(idle);
+        service.deleteInBackground(USER_ID, "docs/");
+        doThrow(new RedisConnectionFailureException("Redis is down")).doNothing().when(storageJobStore).renew(eq(job.id()), anyString());
+
+        service.renewLeases();
+        service.renewLeases();
+
+        verify(storageJobStore, times(2)).renew(eq(job.id()), anyString());
+    }
+
+    private StorageJobServiceImpl service(ExecutorService executor) {
+        return new StorageJobServiceImpl(fileStorageRepository, storageJobStore, properties, executor,
+                mock(ScheduledExecutorService.class));
+    }
+
+    private StorageJob pending(StorageJob.Type type, String path, String targetPath, long total) {
+        return new StorageJob("job", USER_ID, type, path, targetPath, StorageJob.Status.PENDING, 0, total, null);
+    }
+}
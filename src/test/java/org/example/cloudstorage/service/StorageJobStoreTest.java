@@ -0,0 +1,96 @@
+package org.example.cloudstorage.service;
+
+import org.example.cloudstorage.config.StorageJobProperties;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Testcontainers(disabledWithoutDocker = true)
+public class StorageJobStoreTest {
+    private static final String JOB_ID = "job";
+    private static final String LEASE_KEY = "cloudstorage:job:job:lease";
+
+    @Container
+    static GenericContainer<?> redisContainer = new GenericContainer<>("redis").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private StringRedisTemplate redisTemplate;
+    private StorageJobStore store;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(redisContainer.getHost(), redisContainer.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        StorageJobProperties properties = new StorageJobProperties();
+        properties.setLeaseTtl(Duration.ofMinutes(1));
+        store = new StorageJobStore(redisTemplate, properties);
+    }
+
+    @Test
+    void testOwnerRenewsLease() {
+        assertTrue(store.acquire(JOB_ID, "node-1"));
+        redisTemplate.expire(LEASE_KEY, Duration.ofSeconds(5));
+
+        store.renew(JOB_ID, "node-1");
+
+        assertTrue(redisTemplate.getExpire(LEASE_KEY, TimeUnit.SECONDS) > 5);
+    }
+
+    @Test
+    void testLeaseOfAnotherOwnerIsNotRenewed() {
+        assertTrue(store.acquire(JOB_ID, "node-2"));
+        redisTemplate.expire(LEASE_KEY, Duration.ofSeconds(5));
+
+        store.renew(JOB_ID, "node-1");
+
+        assertTrue(redisTemplate.getExpire(LEASE_KEY, TimeUnit.SECONDS) <= 5);
+    }
+
+    @Test
+    void testLeaseOfAnotherOwnerIsNotReleased() {
+        assertTrue(store.acquire(JOB_ID, "node-2"));
+
+        store.release(JOB_ID, "node-1");
+
+        assertEquals("node-2", redisTemplate.opsForValue().get(LEASE_KEY));
+        assertFalse(store.acquire(JOB_ID, "node-1"));
+    }
+
+    @Test
+    void testReleasedLeaseCanBeAcquired() {
+        assertTrue(store.acquire(JOB_ID, "node-1"));
+
+        store.release(JOB_ID, "node-1");
+
+        assertTrue(store.acquire(JOB_ID, "node-2"));
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.cloudstorage.service;
+
+import org.example.cloudstorage.exception.InvalidResourcePathException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StoragePathTest {
+
+    @Test
+    void testFileViews() {
+        StoragePath path = StoragePath.of("docs/2024/report.pdf");
+
+        assertEquals("docs/2024/report.pdf", path.path());
+        assertEquals("docs/2024/", path.parent());
+        assertEquals("report.pdf", path.name());
+        assertFalse(path.isDirectory());
+        assertEquals("user-${7}-files/docs/2024/report.pdf", path.objectKey(7L));
+    }
+
+    @Test
+    void testDirectoryViews() {
+        StoragePath path = StoragePath.of("docs/2024/");
+
+        assertEquals("docs/", path.parent());
+        assertEquals("2024", path.name());
+        assertTrue(path.isDirectory());
+        assertEquals("", StoragePath.of("docs/").parent());
+        assertTrue(StoragePath.of("").isRoot());
+    }
+
+    @Test
+    void testObjectKeyViewsSkipUserPrefix() {
+        StoragePath path = StoragePath.ofObjectKey("user-${12}-files/photos/beach.jpg");
+
+        assertEquals("photos/beach.jpg", path.path());
+        assertEquals("photos/", path.parent());
+        assertEquals("beach.jpg", path.name());
+        assertEquals(StoragePath.of("photos/beach.jpg"), path);
+        assertTrue(StoragePath.ofObjectKey("user-${12}-files/").isRoot());
+    }
+
+    @Test
+    void testAncestorsEndWithRoot() {
+        assertEquals(List.of("docs/2024/", "docs/", ""), List.copyOf(StoragePath.ancestors("docs/2024/report.pdf")));
+        assertEquals(List.of("docs/", ""), List.copyOf(StoragePath.ancestors("docs/2024/")));
+        assertEquals(List.of(""), List.copyOf(StoragePath.ancestors("report.pdf")));
+        assertTrue(StoragePath.ancestors("").isEmpty());
+    }
+
+    @Test
+    void testInvalidPathsAreRejected() {
+        for (String path : new String[]{"/etc/passwd", "docs//a.txt", "../a.txt", "docs/./a.txt", "docs/..",
+                "docs\\a.txt", "docs/a\n.txt"}) {
+            assertThrows(InvalidResourcePathException.class, () -> StoragePath.of(path), path);
+            assertThrows(InvalidResourcePathException.class, () -> StoragePath.validate(path), path);
+        }
+        assertThrows(InvalidResourcePathException.class, () -> StoragePath.validate(null));
+        StoragePath.validate("docs/a.txt");
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.cloudstorage.service;
+
+import org.example.cloudstorage.config.StorageQuotaProperties;
+import org.example.cloudstorage.exception.QuotaExceededException;
+import org.example.cloudstorage.exception.ResourceAlreadyExistsException;
+import org.example.cloudstorage.repository.FileStorageRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StorageQuotaServiceImplTest {
+    private static final Long USER_ID = 1L;
+
+    private final FileStorageRepository fileStorageRepository = mock(FileStorageRepository.class);
+    private final StorageQuotaStore storageQuotaStore = mock(StorageQuotaStore.class);
+    private final StorageQuotaServiceImpl service = new StorageQuotaServiceImpl(fileStorageRepository,
+            mock(ResourceMetadataService.class), storageQuotaStore, new StorageQuotaProperties());
+
+    @Test
+    void testReservationIsCommittedAfterSave() {
+        when(storageQuotaStore.reserve(eq(USER_ID), anyString(), eq(100L), anyLong(), any()))
+                .thenReturn(StorageQuotaStore.ReserveResult.ACCEPTED);
+
+        assertEquals("saved", service.withReservation(USER_ID, 100, () -> "saved"));
+        verify(storageQuotaStore).commit(eq(USER_ID), anyString(), eq(100L));
+    }
+
+    @Test
+    void testReservationIsReleasedWhenSaveFails() {
+        when(storageQuotaStore.reserve(eq(USER_ID), anyString(), eq(100L), anyLong(), any()))
+                .thenReturn(StorageQuotaStore.ReserveResult.ACCEPTED);
+
+        assertThrows(ResourceAlreadyExistsException.class, () -> service.withReservation(USER_ID, 100, () -> {
+            throw new ResourceAlreadyExistsException("Object already exists");
+        }));
+        verify(storageQuotaStore).release(eq(USER_ID), anyString());
+        verify(storageQuotaStore, never()).commit(any(), any(), anyLong());
+    }
+
+    @Test
+    void testSaveIsRejectedOverQuota() {
+        when(storageQuotaStore.reserve(eq(USER_ID), anyString(), eq(100L), anyLong(), any()))
+                .thenReturn(StorageQuotaStore.ReserveResult.REJECTED);
+
+        assertThrows(QuotaExceededException.class, () -> service.withReservation(USER_ID, 100, () -> {
+            throw new AssertionError("save must not run");
+        }));
+    }
+
+    @Test
+    void testUsageIsMeasuredBeforeFirstReservation() {
+        when(storageQuotaStore.reserve(eq(USER_ID), eq("upload"), eq(100L), anyLong(), any()))
+                .thenReturn(StorageQuotaStore.ReserveResult.UNINITIALIZED, StorageQuotaStore.ReserveResult.ACCEPTED);
+        when(fileStorageRepository.usedBytes(USER_ID)).thenReturn(4096L);
+
+        service.withUploadReservation(USER_ID, "upload", 100, () -> "part");
+
+        verify(storageQuotaStore).initialize(USER_ID, 4096L);
+        verify(storageQuotaStore, never()).commit(any(), any(), anyLong());
+    }
+
+    @Test
+    void testReconcileReplacesUsageMeasuredWithoutConcurrentChanges() {
+        when(storageQuotaStore.version(USER_ID)).thenReturn(7L);
+        when(fileStorageRepository.usedBytes(USER_ID)).thenReturn(800L);
+        when(storageQuotaStore.reconcile(USER_ID, 7L, 800L)).thenReturn(Optional.of(1000L));
+
+        service.reconcile(USER_ID);
+
+        verify(storageQuotaStore).reconcile(USER_ID, 7L, 800L);
+        verify(storageQuotaStore, never()).adjust(any(), anyLong());
+    }
+
+    @Test
+    void testReconcileReadsVersionBeforeListing() {
+        when(storageQuotaStore.version(USER_ID)).thenReturn(7L);
+        when(fileStorageRepository.usedBytes(USER_ID)).thenAnswer(invocation -> {
+            // an upload committed while the storage is listed
+            when(storageQuotaStore.version(USER_ID)).thenReturn(8L);
+            return 800L;
+        });
+        when(storageQuotaStore.reconcile(USER_ID, 7L, 800L)).thenReturn(Optional.empty());
+
+        service.reconcile(USER_ID);
+
+        verify(storageQuotaStore).reconcile(USER_ID, 7L, 800L);
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.cloudstorage.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@Testcontainers(disabledWithoutDocker = true)
+public class StorageQuotaStoreTest {
+    private static final Long USER_ID = 1L;
+    private static final long LIMIT = 1000;
+    private static final Duration TTL = Duration.ofHours(1);
+
+    @Container
+    static GenericContainer<?> redisContainer = new GenericContainer<>("redis").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private StorageQuotaStore store;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(redisContainer.getHost(), redisContainer.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+        store = new StorageQuotaStore(new StringRedisTemplate(connectionFactory));
+        store.initialize(USER_ID, 100);
+    }
+
+    @Test
+    void testCommittedReservationIsUsed() {
+        assertEquals(StorageQuotaStore.ReserveResult.ACCEPTED, store.reserve(USER_ID, "save", 50, LIMIT, TTL));
+        store.commit(USER_ID, "save", 50);
+
+        assertEquals(new StorageUsage(150, 0, LIMIT), store.find(USER_ID, LIMIT).orElseThrow());
+    }
+
+    @Test
+    void testReservationOverLimitIsRejected() {
+        assertEquals(StorageQuotaStore.ReserveResult.REJECTED, store.reserve(USER_ID, "save", 901, LIMIT, TTL));
+        assertEquals(StorageQuotaStore.ReserveResult.UNINITIALIZED, store.reserve(2L, "save", 1, LIMIT, TTL));
+    }
+
+    @Test
+    void testReconcileIsRefusedWhileUploadIsInFlight() {
+        long version = store.version(USER_ID);
+        store.reserve(USER_ID, "save", 50, LIMIT, TTL);
+
+        // the listing already contains the stored but uncommitted objects
+        assertEquals(Optional.empty(), store.reconcile(USER_ID, store.version(USER_ID), 150));
+        assertEquals(Optional.empty(), store.reconcile(USER_ID, version, 150));
+        store.commit(USER_ID, "save", 50);
+
+        assertEquals(150, store.find(USER_ID, LIMIT).orElseThrow().used());
+    }
+
+    @Test
+    void testReconcileIsRefusedAfterReservationWasReleased() {
+        long version = store.version(USER_ID);
+        store.reserve(USER_ID, "save", 50, LIMIT, TTL);
+        store.release(USER_ID, "save");
+
+        assertEquals(Optional.empty(), store.reconcile(USER_ID, version, 150));
+        assertEquals(Optional.of(100L), store.reconcile(USER_ID, store.version(USER_ID), 120));
+        assertEquals(120, store.find(USER_ID, LIMIT).orElseThrow().used());
+    }
+
+    @Test
+    void testCommitWithoutReservationIsNotCounted() {
+        store.reserve(USER_ID, "save", 50, LIMIT, TTL);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+        // the usage is measured again while the save is in flight and includes its objects
+        store.initialize(USER_ID, 150);
+
+        store.commit(USER_ID, "save", 50);
+
+        assertEquals(150, store.find(USER_ID, LIMIT).orElseThrow().used());
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.cloudstorage.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UserSearchIndexTest {
+
+    private static List<String> paths(List<UserSearchIndex.Entry> entries) {
+        return entries.stream().map(UserSearchIndex.Entry::path).toList();
+    }
+
+    @Test
+    void testSearchFindsFilesAndImplicitDirectories() {
+        UserSearchIndex index = new UserSearchIndex();
+        index.add("photos/summer/beach.jpg", 10L);
+        index.add("docs/Report.pdf", 20L);
+
+        assertEquals(List.of("photos/summer/beach.jpg"), paths(index.search("BEACH")));
+        assertEquals(List.of("photos/summer/"), paths(index.search("summ")));
+        assertEquals(List.of("docs/Report.pdf"), paths(index.search("rt")));
+        assertTrue(index.search("missing").isEmpty());
+    }
+
+    @Test
+    void testRemoveDirectoryDropsWholeSubtree() {
+        UserSearchIndex index = new UserSearchIndex();
+        index.add("photos/summer/beach.jpg", 10L);
+        index.add("photos/winter.jpg", 10L);
+        index.add("notes.txt", 1L);
+
+        index.remove("photos/");
+
+        assertTrue(index.search("jpg").isEmpty());
+        assertTrue(index.search("photos").isEmpty());
+        assertEquals(List.of("notes.txt"), paths(index.search("notes")));
+    }
+
+    @Test
+    void testMoveDirectoryRewritesDescendantPaths() {
+        UserSearchIndex index = new UserSearchIndex();
+        index.add("photos/summer/beach.jpg", 10L);
+
+        index.move("photos/", "archive/pictures/");
+
+        assertEquals(List.of("archive/pictures/summer/beach.jpg"), paths(index.search("beach")));
+        assertEquals(List.of("archive/pictures/"), paths(index.search("pictures")));
+        assertTrue(index.search("photos").isEmpty());
+    }
+
+    @Test
+    void testSearchPagesInPathOrder() {
+        UserSearchIndex index = new UserSearchIndex();
+        index.add("c/report-3.pdf", 3L);
+        index.add("a/report-1.pdf", 1L);
+        index.add("b/report-2.pdf", 2L);
+
+        assertEquals(List.of("a/report-1.pdf", "b/report-2.pdf"), paths(index.search("report", null, 2)));
+        assertEquals(List.of("c/report-3.pdf"), paths(index.search("report", "b/report-2.pdf", 2)));
+        assertEquals(List.of("b/report-2.pdf"), paths(index.search("2", "a/", 1)));
+        assertTrue(index.search("3", "c/report-3.pdf", 1).isEmpty());
+    }
+}